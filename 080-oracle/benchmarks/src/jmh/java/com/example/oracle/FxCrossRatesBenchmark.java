@@ -0,0 +1,71 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import javafx.util.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quote throughput over a matrix of 150 currencies where most pairs have to be triangulated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FxCrossRatesBenchmark {
+
+    private static final int CURRENCY_COUNT = 150;
+    private static final int PAIR_COUNT = 1024;
+
+    private FxRateSnapshot snapshot;
+    private List<Pair<TokenType, TokenType>> pairs;
+    private List<FxRateUpdate> legUpdates;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final List<TokenType> currencies = new ArrayList<>(CURRENCY_COUNT);
+        for (int i = 0; i < CURRENCY_COUNT; i++) currencies.add(new TokenType(String.format("C%03d", i), 2));
+        // Every currency is quoted against the hub, and a few against each other.
+        final List<FxRateUpdate> updates = new ArrayList<>();
+        for (int i = 1; i < CURRENCY_COUNT; i++) {
+            updates.add(update(currencies.get(0), currencies.get(i), 0.5 + random.nextDouble()));
+            final int other = 1 + random.nextInt(CURRENCY_COUNT - 1);
+            if (other != i) updates.add(update(currencies.get(i), currencies.get(other), 0.5 + random.nextDouble()));
+        }
+        snapshot = FxRateSnapshot.EMPTY.with(updates);
+        pairs = new ArrayList<>(PAIR_COUNT);
+        legUpdates = new ArrayList<>(PAIR_COUNT);
+        while (pairs.size() < PAIR_COUNT) {
+            final TokenType base = currencies.get(random.nextInt(CURRENCY_COUNT));
+            final TokenType counter = currencies.get(random.nextInt(CURRENCY_COUNT));
+            if (base.equals(counter)) continue;
+            pairs.add(new Pair<>(base, counter));
+            legUpdates.add(update(currencies.get(0), counter, 0.5 + random.nextDouble()));
+        }
+    }
+
+    private static FxRateUpdate update(final TokenType base, final TokenType counter, final double rate) {
+        return new FxRateUpdate(new Pair<>(base, counter), BigDecimal.valueOf(rate), Instant.now());
+    }
+
+    @Benchmark
+    public BigDecimal quote() {
+        next = (next + 1) & (PAIR_COUNT - 1);
+        return snapshot.get(pairs.get(next));
+    }
+
+    @Benchmark
+    public FxRateSnapshot updateLeg() {
+        next = (next + 1) & (PAIR_COUNT - 1);
+        return snapshot.with(Collections.singletonList(legUpdates.get(next)));
+    }
+
+}
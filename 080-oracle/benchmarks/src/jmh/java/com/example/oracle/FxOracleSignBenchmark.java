@@ -0,0 +1,77 @@
+package com.example.oracle;
+
+import com.example.contract.FxContract.Commands.Swap;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.FilteredTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link FxOracle#sign}, with as many visible swap commands as asked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FxOracleSignBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int visibleComponents;
+
+    private MockNetwork network;
+    private StartedMockNode oracleNode;
+    private Party notary;
+    private Party oracleParty;
+    private FxOracle oracle;
+    private FilteredTransaction ftx;
+
+    @Setup(Level.Trial)
+    public void startNetwork() {
+        network = new MockNetwork(OracleBenchmarkHelpers.prepareMockNetworkParameters());
+        notary = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        oracleNode = network.createNode(new MockNodeParameters().withLegalName(OracleBenchmarkHelpers.ORACLE));
+        oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+        network.runNetwork();
+        oracle = oracleNode.getServices().cordaService(FxOracle.class);
+    }
+
+    /**
+     * Quotes only live for {@link FxOracle#VALID_DURATION}, so they are fetched anew for each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void prepareTransaction() {
+        final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+        final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+        ftx = oracleNode.transaction(() -> {
+            final TransactionBuilder builder = OracleBenchmarkHelpers.prepareBuilder(oracleNode, notary);
+            for (int i = 0; i < visibleComponents; i++) {
+                //noinspection ConstantConditions
+                builder.addCommand(new Swap(oracle.getQuote(usd, cad)), oracleParty.getOwningKey());
+            }
+            return FxOracleUtilities.filter(builder.toWireTransaction(oracleNode.getServices()), oracleParty);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void stopNetwork() {
+        network.stopNodes();
+    }
+
+    @Benchmark
+    public void verify() throws Exception {
+        ftx.verify();
+    }
+
+    @Benchmark
+    public TransactionSignature sign() throws Exception {
+        return oracle.sign(ftx);
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The latency a quote pays to be journaled, on top of being kept in memory, as in {@link FxOracle#getQuote}. With a
+ * force interval of 0, it includes forcing the segment to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FxQuoteJournalBenchmark {
+
+    private final TokenType usd = new TokenType("USD", 2);
+    private final TokenType cad = new TokenType("CAD", 2);
+    @Param({"0", "100"})
+    public long forceMillis;
+    private Path directory;
+    private FxQuoteRegistry registry;
+    private FxQuoteJournal journal;
+    private long next;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("fx-quote-journal");
+        registry = new FxQuoteRegistry(FxOracle.VALID_DURATION);
+        journal = new FxQuoteJournal(directory, FxQuoteJournal.DEFAULT_RECORDS_PER_SEGMENT,
+                Duration.ofMillis(forceMillis), registry::register);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    private FxQuote nextQuote() {
+        next++;
+        return new FxQuote(usd, cad, BigDecimal.valueOf(139_000 + (next & 0xFFF), 5),
+                Instant.now().plus(FxOracle.VALID_DURATION));
+    }
+
+    @Benchmark
+    public FxQuote inMemory() {
+        final FxQuote quote = nextQuote();
+        registry.register(quote);
+        return quote;
+    }
+
+    @Benchmark
+    public FxQuote journaled() {
+        final FxQuote quote = nextQuote();
+        registry.register(quote);
+        journal.append(quote);
+        return quote;
+    }
+
+}
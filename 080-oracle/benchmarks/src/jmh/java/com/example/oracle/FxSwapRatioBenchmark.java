@@ -0,0 +1,66 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ratio check of {@code FxContract} over 1,000 swaps, with {@link BigDecimal#divide} as it was, and in fixed
+ * point with {@link CompactFxQuote#matchesRatio}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FxSwapRatioBenchmark {
+
+    private static final int SWAP_COUNT = 1_000;
+
+    private final FxQuote[] quotes = new FxQuote[SWAP_COUNT];
+    private final CompactFxQuote[] compactQuotes = new CompactFxQuote[SWAP_COUNT];
+    private final long[] baseAmounts = new long[SWAP_COUNT];
+    private final long[] counterAmounts = new long[SWAP_COUNT];
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final TokenType usd = new TokenType("USD", 2);
+        final TokenType cad = new TokenType("CAD", 2);
+        final Instant expiry = Instant.now().plusSeconds(20).truncatedTo(ChronoUnit.MILLIS);
+        for (int i = 0; i < SWAP_COUNT; i++) {
+            final BigDecimal rate = BigDecimal.valueOf(100_000 + random.nextInt(100_000), 5);
+            quotes[i] = new FxQuote(usd, cad, rate, expiry);
+            compactQuotes[i] = CompactFxQuote.from(quotes[i]);
+            baseAmounts[i] = 1 + random.nextInt(1_000_000);
+            counterAmounts[i] = rate.multiply(BigDecimal.valueOf(baseAmounts[i]))
+                    .setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        }
+    }
+
+    @Benchmark
+    public int bigDecimalDivide() {
+        int matching = 0;
+        for (int i = 0; i < SWAP_COUNT; i++) {
+            final BigDecimal rate = quotes[i].getRate();
+            if (BigDecimal.valueOf(counterAmounts[i])
+                    .divide(BigDecimal.valueOf(baseAmounts[i]), rate.scale(), RoundingMode.HALF_EVEN)
+                    .equals(rate)) matching++;
+        }
+        return matching;
+    }
+
+    @Benchmark
+    public int fixedPoint() {
+        int matching = 0;
+        for (int i = 0; i < SWAP_COUNT; i++) {
+            if (compactQuotes[i].matchesRatio(baseAmounts[i], counterAmounts[i])) matching++;
+        }
+        return matching;
+    }
+
+}
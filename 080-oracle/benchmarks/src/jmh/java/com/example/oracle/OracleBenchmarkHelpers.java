@@ -0,0 +1,57 @@
+package com.example.oracle;
+
+import com.example.state.FxState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.common.internal.ParametersUtilitiesKt;
+import net.corda.testing.node.MockNetworkNotarySpec;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import net.corda.testing.node.TestCordapp;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+
+public interface OracleBenchmarkHelpers {
+    CordaX500Name NOTARY = CordaX500Name.parse("O=Notary, L=London, C=GB");
+    CordaX500Name ORACLE = CordaX500Name.parse("O=Oracle, L=London, C=GB");
+
+    /**
+     * All the oracles can run on the same node.
+     */
+    @NotNull
+    static MockNetworkParameters prepareMockNetworkParameters() {
+        return new MockNetworkParameters()
+                .withNotarySpecs(Collections.singletonList(new MockNetworkNotarySpec(NOTARY)))
+                .withCordappsForAllNodes(ImmutableList.of(
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.contracts"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.workflows"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.money"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.selection"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.accounts.contracts"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.accounts.workflows"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.ci.workflows"),
+                        TestCordapp.findCordapp("com.example.contract"),
+                        TestCordapp.findCordapp("com.example.state"),
+                        TestCordapp.findCordapp("com.example.oracle"),
+                        TestCordapp.findCordapp("com.template.car.state"),
+                        TestCordapp.findCordapp("com.template.car.flow"),
+                        TestCordapp.findCordapp("com.template.diligence.state"),
+                        TestCordapp.findCordapp("com.template.diligence.flow")))
+                .withNetworkParameters(ParametersUtilitiesKt.testNetworkParameters(
+                        Collections.emptyList(), 4
+                ));
+    }
+
+    /**
+     * @return A builder with an output the oracles do not get to see, as in a real transaction.
+     */
+    @NotNull
+    static TransactionBuilder prepareBuilder(@NotNull final StartedMockNode node, @NotNull final Party notary) {
+        final Party me = node.getInfo().getLegalIdentities().get(0);
+        return new TransactionBuilder(notary)
+                .addOutputState(new FxState(Collections.singletonList(me)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.oracle;
+
+import com.example.contract.TemperatureContract.Commands.HowWarm;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.FilteredTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link TemperatureOracle#sign}, with as many visible HowWarm commands as asked, plus the time window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TemperatureOracleSignBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int visibleComponents;
+
+    private MockNetwork network;
+    private TemperatureOracle oracle;
+    private FilteredTransaction ftx;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        network = new MockNetwork(OracleBenchmarkHelpers.prepareMockNetworkParameters());
+        final Party notary = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        final StartedMockNode oracleNode = network.createNode(new MockNodeParameters()
+                .withLegalName(OracleBenchmarkHelpers.ORACLE));
+        final Party oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+        network.runNetwork();
+        oracle = oracleNode.getServices().cordaService(TemperatureOracle.class);
+        // A known sample before the time window, so that the oracle does not depend on its simulated sensor.
+        final Instant now = Instant.now();
+        final Path samples = Files.createTempFile("temperatures", ".csv");
+        Files.write(samples, ((now.toEpochMilli() - 10_000) + ",21.5\n").getBytes(StandardCharsets.UTF_8));
+        final ReplayTemperatureSource source = new ReplayTemperatureSource(samples, false);
+        oracle.useSource(source);
+        source.awaitDone(10, TimeUnit.SECONDS);
+        Files.delete(samples);
+        ftx = oracleNode.transaction(() -> {
+            final TransactionBuilder builder = OracleBenchmarkHelpers.prepareBuilder(oracleNode, notary)
+                    .setTimeWindow(TimeWindow.untilOnly(now.minusSeconds(1)));
+            for (int i = 0; i < visibleComponents; i++) {
+                builder.addCommand(new HowWarm(BigDecimal.valueOf(20), BigDecimal.valueOf(25)),
+                        oracleParty.getOwningKey());
+            }
+            return TemperatureOracleUtilities.filter(builder.toWireTransaction(oracleNode.getServices()),
+                    oracleParty);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Benchmark
+    public void verify() throws Exception {
+        ftx.verify();
+    }
+
+    @Benchmark
+    public TransactionSignature sign() throws Exception {
+        return oracle.sign(ftx);
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.template.diligence.flow;
+
+import com.example.oracle.OracleBenchmarkHelpers;
+import com.template.diligence.state.DiligenceOracleUtilities;
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import com.template.diligence.state.DueDiligenceContract.Commands.Certify;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.FilteredTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link DiligenceOracle#sign}, with as many visible Certify commands as asked, plus the time window.
+ * It sits in this package so as to set the oracle key without running a flow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DiligenceOracleSignBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int visibleComponents;
+
+    private MockNetwork network;
+    private DiligenceOracle oracle;
+    private FilteredTransaction ftx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        network = new MockNetwork(OracleBenchmarkHelpers.prepareMockNetworkParameters());
+        final Party notary = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        final StartedMockNode oracleNode = network.createNode(new MockNodeParameters()
+                .withLegalName(OracleBenchmarkHelpers.ORACLE));
+        final Party oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+        network.runNetwork();
+        oracle = oracleNode.getServices().cordaService(DiligenceOracle.class);
+        oracle.setOracleKey(oracleParty.getOwningKey());
+        ftx = oracleNode.transaction(() -> {
+            final TransactionBuilder builder = OracleBenchmarkHelpers.prepareBuilder(oracleNode, notary)
+                    .setTimeWindow(TimeWindow.untilOnly(Instant.now().plus(DiligenceOracleUtilities.VALID_DURATION)
+                            .minusSeconds(60)));
+            for (int i = 0; i < visibleComponents; i++) {
+                builder.addCommand(new Certify(new UniqueIdentifier(), Status.Clear), oracleParty.getOwningKey());
+            }
+            return DiligenceOracleUtilities.filter(builder.toWireTransaction(oracleNode.getServices()), oracleParty);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Benchmark
+    public void verify() throws Exception {
+        ftx.verify();
+    }
+
+    @Benchmark
+    public TransactionSignature sign() throws Exception {
+        return oracle.sign(ftx);
+    }
+
+}
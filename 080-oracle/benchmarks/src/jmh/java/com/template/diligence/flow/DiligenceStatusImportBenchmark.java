@@ -0,0 +1,86 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.flow.DiligenceOracleInternalFlows.ImportReport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * How long {@link DiligenceStatusImporter} takes to load a million statuses into a logged registry, a fifth of them
+ * linked. Divide the record count by the time for the records per second, also logged by each import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class DiligenceStatusImportBenchmark {
+
+    private static final int RECORD_COUNT = 1_000_000;
+
+    @Param({".csv", ".bin"})
+    public String extension;
+    @Param({"1024", "65536"})
+    public int batchSize;
+
+    private Path directory;
+    private Path file;
+    private DiligenceStatusRegistry registry;
+
+    @Setup(Level.Trial)
+    public void writeFile() throws IOException {
+        directory = Files.createTempDirectory("diligence-import");
+        file = directory.resolve("statuses" + extension);
+        if (extension.equals(DiligenceStatusImporter.CSV_EXTENSION)) {
+            try (final Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < RECORD_COUNT; i++) {
+                    out.write(UUID.randomUUID() + (i % 5 == 0 ? ",Linked\n" : ",Clear\n"));
+                }
+            }
+        } else {
+            try (final OutputStream out = Files.newOutputStream(file)) {
+                final ByteBuffer record = ByteBuffer.allocate(DiligenceStatusImporter.BINARY_RECORD_SIZE);
+                for (int i = 0; i < RECORD_COUNT; i++) {
+                    final UUID id = UUID.randomUUID();
+                    record.clear();
+                    record.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                            .put((byte) (i % 5 == 0 ? 1 : 0));
+                    out.write(record.array());
+                }
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openRegistry() throws IOException {
+        registry = new DiligenceStatusRegistry(Files.createTempDirectory(directory, "log"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRegistry() {
+        registry.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public ImportReport importFile() throws IOException {
+        return new DiligenceStatusImporter(registry, batchSize, it -> {}).importFrom(file);
+    }
+
+}
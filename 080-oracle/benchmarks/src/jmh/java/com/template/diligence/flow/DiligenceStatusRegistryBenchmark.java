@@ -0,0 +1,81 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import net.corda.core.contracts.UniqueIdentifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * How long {@link DiligenceStatusRegistry} takes to recover its linked ids, and to answer a query once they are in.
+ * Run the recovery alone with {@code -Pjmh.include=DiligenceStatusRegistryBenchmark.recover}, as it is single shot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DiligenceStatusRegistryBenchmark {
+
+    private static final int QUERIED = 1 << 16;
+    private static final int BATCH = 1 << 16;
+
+    @Param({"10000000"})
+    public int linkedCount;
+
+    private Path directory;
+    private DiligenceStatusRegistry registry;
+    private final UniqueIdentifier[] linked = new UniqueIdentifier[QUERIED];
+    private final UniqueIdentifier[] unknown = new UniqueIdentifier[QUERIED];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("diligence-statuses");
+        try (final DiligenceStatusRegistry writer = new DiligenceStatusRegistry(directory)) {
+            final StatusBatch batch = new StatusBatch(BATCH);
+            for (int i = 0; i < linkedCount; i++) {
+                final UniqueIdentifier tokenId = new UniqueIdentifier();
+                if (i < QUERIED) linked[i] = tokenId;
+                if (batch.add(tokenId.getId(), true)) {
+                    writer.setAll(batch);
+                    batch.clear();
+                }
+            }
+            writer.setAll(batch);
+        }
+        for (int i = 0; i < QUERIED; i++) unknown[i] = new UniqueIdentifier();
+        registry = new DiligenceStatusRegistry(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        registry.close();
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recover() throws IOException {
+        try (final DiligenceStatusRegistry recovered = new DiligenceStatusRegistry(directory)) {
+            return recovered.getLinkedCount();
+        }
+    }
+
+    @Benchmark
+    public Status queryClear() {
+        return registry.get(unknown[next++ & (QUERIED - 1)]);
+    }
+
+    @Benchmark
+    public Status queryLinked() {
+        return registry.get(linked[next++ & (QUERIED - 1)]);
+    }
+
+}
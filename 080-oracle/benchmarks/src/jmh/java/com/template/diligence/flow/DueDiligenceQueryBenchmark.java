@@ -0,0 +1,76 @@
+package com.template.diligence.flow;
+
+import com.example.oracle.OracleBenchmarkHelpers;
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.Party;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dealer checking a whole lot of cars, one flow per car, against one flow for the lot. One in 20 is linked. The
+ * requester cache is bypassed, so that each flow reaches the oracle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DueDiligenceQueryBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int lotSize;
+
+    private MockNetwork network;
+    private StartedMockNode dealer;
+    private Party oracleParty;
+    private final List<UniqueIdentifier> lot = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        network = new MockNetwork(OracleBenchmarkHelpers.prepareMockNetworkParameters());
+        final StartedMockNode oracleNode = network.createNode(new MockNodeParameters()
+                .withLegalName(OracleBenchmarkHelpers.ORACLE));
+        oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+        dealer = network.createNode();
+        network.runNetwork();
+        final DiligenceOracle oracle = oracleNode.getServices().cordaService(DiligenceOracle.class);
+        for (int i = 0; i < lotSize; i++) {
+            final UniqueIdentifier tokenId = new UniqueIdentifier();
+            if (i % 20 == 0) oracle.setStatus(tokenId, Status.Linked);
+            lot.add(tokenId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Benchmark
+    public List<Status> oneFlowPerToken() throws Exception {
+        final List<CordaFuture<Status>> futures = new ArrayList<>(lotSize);
+        for (final UniqueIdentifier tokenId : lot) {
+            futures.add(dealer.startFlow(new DueDiligenceOracleFlows.Query.Request(oracleParty, tokenId, false)));
+        }
+        network.runNetwork();
+        final List<Status> statuses = new ArrayList<>(lotSize);
+        for (final CordaFuture<Status> future : futures) statuses.add(future.get());
+        return statuses;
+    }
+
+    @Benchmark
+    public Set<UniqueIdentifier> oneFlowPerLot() throws Exception {
+        final CordaFuture<Set<UniqueIdentifier>> future = dealer.startFlow(
+                new DueDiligenceOracleFlows.QueryBatch.Request(oracleParty, lot, false));
+        network.runNetwork();
+        return future.get();
+    }
+
+}
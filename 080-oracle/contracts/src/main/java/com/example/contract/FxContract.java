@@ -1,16 +1,17 @@
 package com.example.contract;
 
+import com.example.oracle.CompactFxQuote;
 import com.example.oracle.FxQuote;
 import com.example.state.FxState;
 import com.r3.corda.lib.tokens.contracts.states.FungibleToken;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
+import net.corda.core.serialization.ConstructorForDeserialization;
 import net.corda.core.transactions.LedgerTransaction;
 import org.jetbrains.annotations.NotNull;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.List;
 import java.util.Objects;
 
@@ -27,13 +28,15 @@ public class FxContract implements Contract {
         final List<FungibleToken> inputs = tx.inputsOfType(FungibleToken.class);
 
         if (command.getValue() instanceof Commands.Swap) {
-            final FxQuote quote = ((Commands.Swap) command.getValue()).quote;
+            final CompactFxQuote quote = ((Commands.Swap) command.getValue()).compactQuote;
+            final TokenType base = quote.getBase();
+            final TokenType counter = quote.getCounter();
             final long baseInputTotal = inputs.stream()
-                    .filter(it -> it.getTokenType().equals(quote.getBase()))
+                    .filter(it -> it.getTokenType().equals(base))
                     .map(it -> it.getAmount().getQuantity())
                     .reduce(0L, Math::addExact);
             final long counterInputTotal = inputs.stream()
-                    .filter(it -> it.getTokenType().equals(quote.getCounter()))
+                    .filter(it -> it.getTokenType().equals(counter))
                     .map(it -> it.getAmount().getQuantity())
                     .reduce(0L, Math::addExact);
             requireThat(req -> {
@@ -42,12 +45,10 @@ public class FxContract implements Contract {
                 req.using("There should be no FxOracleStates in output",
                         tx.outputsOfType(FxState.class).isEmpty());
                 req.using("The inputs should have the right ratio",
-                        BigDecimal.valueOf(counterInputTotal)
-                                .divide(BigDecimal.valueOf(baseInputTotal), RoundingMode.HALF_EVEN)
-                                .equals(quote.getRate()));
+                        quote.matchesRatio(baseInputTotal, counterInputTotal));
                 //noinspection ConstantConditions
                 req.using("The quote should not have expired",
-                        tx.getTimeWindow().getUntilTime().isBefore(quote.getExpirationDate()));
+                        tx.getTimeWindow().getUntilTime().toEpochMilli() < quote.getExpiryMillis());
                 return null;
             });
         } else {
@@ -57,16 +58,38 @@ public class FxContract implements Contract {
 
     public interface Commands extends CommandData {
 
+        /**
+         * Only the {@link CompactFxQuote} is serialised.
+         */
         class Swap implements Commands {
+            @NotNull
+            private final CompactFxQuote compactQuote;
             @NotNull
             private final FxQuote quote;
 
+            @ConstructorForDeserialization
+            public Swap(@NotNull final CompactFxQuote compactQuote) {
+                //noinspection ConstantConditions
+                if (compactQuote == null) throw new NullPointerException("compactQuote cannot be null");
+                this.compactQuote = compactQuote;
+                this.quote = compactQuote.toFxQuote();
+            }
+
+            /**
+             * @throws IllegalArgumentException When the quote cannot be compacted without loss.
+             */
             public Swap(@NotNull final FxQuote quote) {
                 //noinspection ConstantConditions
                 if (quote == null) throw new NullPointerException("quote cannot be null");
+                this.compactQuote = CompactFxQuote.from(quote);
                 this.quote = quote;
             }
 
+            @NotNull
+            public CompactFxQuote getCompactQuote() {
+                return compactQuote;
+            }
+
             @NotNull
             public FxQuote getQuote() {
                 return quote;
@@ -77,12 +100,12 @@ public class FxContract implements Contract {
                 if (this == o) return true;
                 if (o == null || getClass() != o.getClass()) return false;
                 final Swap swap = (Swap) o;
-                return quote.equals(swap.quote);
+                return compactQuote.equals(swap.compactQuote);
             }
 
             @Override
             public int hashCode() {
-                return Objects.hash(quote);
+                return Objects.hash(compactQuote);
             }
         }
     }
@@ -1,11 +1,13 @@
 package com.example.contract;
 
+import com.example.oracle.TemperatureOracleUtilities;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.Contract;
 import net.corda.core.transactions.LedgerTransaction;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Objects;
 
 public class TemperatureContract implements Contract {
@@ -20,6 +22,9 @@ public class TemperatureContract implements Contract {
             private final BigDecimal lowBound;
             @NotNull
             private final BigDecimal highBound;
+            // The bounds in fixed point, rounded inwards, so that readings compare without BigDecimal.
+            private final long lowBoundReading;
+            private final long highBoundReading;
 
             public HowWarm(
                     @NotNull final BigDecimal lowBound,
@@ -30,6 +35,8 @@ public class TemperatureContract implements Contract {
                 if (highBound == null) throw new NullPointerException("highBound cannot be null");
                 this.lowBound = lowBound;
                 this.highBound = highBound;
+                this.lowBoundReading = TemperatureOracleUtilities.toReading(lowBound, RoundingMode.CEILING);
+                this.highBoundReading = TemperatureOracleUtilities.toReading(highBound, RoundingMode.FLOOR);
             }
 
             @NotNull
@@ -42,6 +49,13 @@ public class TemperatureContract implements Contract {
                 return highBound;
             }
 
+            /**
+             * @return Whether the fixed-point reading is within the bounds, inclusive.
+             */
+            public boolean contains(final long reading) {
+                return lowBoundReading <= reading && reading <= highBoundReading;
+            }
+
             @Override
             public boolean equals(Object o) {
                 if (this == o) return true;
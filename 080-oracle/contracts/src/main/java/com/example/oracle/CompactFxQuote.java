@@ -0,0 +1,222 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import net.corda.core.serialization.ConstructorForDeserialization;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.utilities.OpaqueBytes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The form in which an {@link FxQuote} travels in a transaction. The currencies are interned codes, the rate is a
+ * long with the fixed exponent -{@link #RATE_SCALE} and the expiration date is in epoch milliseconds. The scale of
+ * the original rate is kept, so that the conversion back to {@link FxQuote} is lossless and an oracle MAC still
+ * matches.
+ */
+@CordaSerializable
+public class CompactFxQuote {
+
+    public static final int RATE_SCALE = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+    // So that deserialised quotes share their currencies.
+    private static final ConcurrentMap<String, TokenType> TOKEN_TYPES = new ConcurrentHashMap<>();
+
+    @NotNull
+    private final String baseCode;
+    private final int baseFractionDigits;
+    @NotNull
+    private final String counterCode;
+    private final int counterFractionDigits;
+    /**
+     * The rate multiplied by 10^{@link #RATE_SCALE}.
+     */
+    private final long scaledRate;
+    /**
+     * The scale of the rate as quoted, at most {@link #RATE_SCALE}.
+     */
+    private final int rateScale;
+    private final long expiryMillis;
+    @Nullable
+    private final OpaqueBytes mac;
+
+    @ConstructorForDeserialization
+    public CompactFxQuote(
+            @NotNull final String baseCode,
+            final int baseFractionDigits,
+            @NotNull final String counterCode,
+            final int counterFractionDigits,
+            final long scaledRate,
+            final int rateScale,
+            final long expiryMillis,
+            @Nullable final OpaqueBytes mac) {
+        //noinspection ConstantConditions
+        if (baseCode == null) throw new NullPointerException("baseCode cannot be null");
+        //noinspection ConstantConditions
+        if (counterCode == null) throw new NullPointerException("counterCode cannot be null");
+        if (rateScale < 0 || RATE_SCALE < rateScale)
+            throw new IllegalArgumentException("rateScale must be between 0 and " + RATE_SCALE);
+        if (scaledRate % POWERS_OF_TEN[RATE_SCALE - rateScale] != 0)
+            throw new IllegalArgumentException("scaledRate has more digits than rateScale");
+        this.baseCode = baseCode.intern();
+        this.baseFractionDigits = baseFractionDigits;
+        this.counterCode = counterCode.intern();
+        this.counterFractionDigits = counterFractionDigits;
+        this.scaledRate = scaledRate;
+        this.rateScale = rateScale;
+        this.expiryMillis = expiryMillis;
+        this.mac = mac;
+    }
+
+    /**
+     * @throws IllegalArgumentException When the quote cannot be represented without loss, i.e. its currencies are not
+     *                                  plain token types, its rate has more than {@link #RATE_SCALE} decimals or does
+     *                                  not fit, or its expiration date has a fraction of millisecond.
+     */
+    @NotNull
+    public static CompactFxQuote from(@NotNull final FxQuote quote) {
+        if (quote.getBase().getClass() != TokenType.class || quote.getCounter().getClass() != TokenType.class)
+            throw new IllegalArgumentException("Only plain token types can be compacted");
+        if (quote.getRate().scale() < 0 || RATE_SCALE < quote.getRate().scale())
+            throw new IllegalArgumentException("The rate scale must be between 0 and " + RATE_SCALE);
+        if (quote.getExpirationDate().getNano() % 1_000_000 != 0)
+            throw new IllegalArgumentException("The expiration date cannot have a fraction of millisecond");
+        final long scaledRate;
+        try {
+            scaledRate = quote.getRate().setScale(RATE_SCALE, RoundingMode.UNNECESSARY)
+                    .unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The rate does not fit", e);
+        }
+        return new CompactFxQuote(
+                quote.getBase().getTokenIdentifier(), quote.getBase().getFractionDigits(),
+                quote.getCounter().getTokenIdentifier(), quote.getCounter().getFractionDigits(),
+                scaledRate, quote.getRate().scale(),
+                quote.getExpirationDate().toEpochMilli(),
+                quote.getMac());
+    }
+
+    @NotNull
+    public FxQuote toFxQuote() {
+        return new FxQuote(getBase(), getCounter(), getRate(), getExpirationDate(), mac);
+    }
+
+    /**
+     * Tells, without dividing, whether the counter amount over the base amount, rounded half-even to the scale of
+     * the rate, is the rate.
+     */
+    public boolean matchesRatio(final long baseAmount, final long counterAmount) {
+        if (baseAmount <= 0 || counterAmount < 0) return false;
+        // The rate at its own scale, r, and the counter amount at that scale, c. The rounded ratio is r when
+        // (2r - 1) * base <= 2c <= (2r + 1) * base, with the bounds included only when r is even.
+        final long rate = scaledRate / POWERS_OF_TEN[RATE_SCALE - rateScale];
+        final boolean evenRate = (rate & 1) == 0;
+        try {
+            final long twiceCounter = Math.multiplyExact(Math.multiplyExact(counterAmount, 2L),
+                    POWERS_OF_TEN[rateScale]);
+            final long low = Math.multiplyExact(Math.subtractExact(Math.multiplyExact(rate, 2L), 1L), baseAmount);
+            final long high = Math.multiplyExact(Math.addExact(Math.multiplyExact(rate, 2L), 1L), baseAmount);
+            return evenRate
+                    ? low <= twiceCounter && twiceCounter <= high
+                    : low < twiceCounter && twiceCounter < high;
+        } catch (ArithmeticException e) {
+            // Only for amounts beyond 10^9 units of the smallest denomination at the finest scale.
+            final BigInteger twiceCounter = BigInteger.valueOf(counterAmount).shiftLeft(1)
+                    .multiply(BigInteger.valueOf(POWERS_OF_TEN[rateScale]));
+            final BigInteger twiceRate = BigInteger.valueOf(rate).shiftLeft(1);
+            final BigInteger base = BigInteger.valueOf(baseAmount);
+            final int vsLow = twiceCounter.compareTo(twiceRate.subtract(BigInteger.ONE).multiply(base));
+            final int vsHigh = twiceCounter.compareTo(twiceRate.add(BigInteger.ONE).multiply(base));
+            return evenRate ? 0 <= vsLow && vsHigh <= 0 : 0 < vsLow && vsHigh < 0;
+        }
+    }
+
+    @NotNull
+    public String getBaseCode() {
+        return baseCode;
+    }
+
+    public int getBaseFractionDigits() {
+        return baseFractionDigits;
+    }
+
+    @NotNull
+    public String getCounterCode() {
+        return counterCode;
+    }
+
+    public int getCounterFractionDigits() {
+        return counterFractionDigits;
+    }
+
+    public long getScaledRate() {
+        return scaledRate;
+    }
+
+    public int getRateScale() {
+        return rateScale;
+    }
+
+    public long getExpiryMillis() {
+        return expiryMillis;
+    }
+
+    @Nullable
+    public OpaqueBytes getMac() {
+        return mac;
+    }
+
+    @NotNull
+    public TokenType getBase() {
+        return tokenType(baseCode, baseFractionDigits);
+    }
+
+    @NotNull
+    public TokenType getCounter() {
+        return tokenType(counterCode, counterFractionDigits);
+    }
+
+    @NotNull
+    public BigDecimal getRate() {
+        return BigDecimal.valueOf(scaledRate / POWERS_OF_TEN[RATE_SCALE - rateScale], rateScale);
+    }
+
+    @NotNull
+    public Instant getExpirationDate() {
+        return Instant.ofEpochMilli(expiryMillis);
+    }
+
+    @NotNull
+    private static TokenType tokenType(@NotNull final String code, final int fractionDigits) {
+        return TOKEN_TYPES.computeIfAbsent(code + "/" + fractionDigits, it -> new TokenType(code, fractionDigits));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final CompactFxQuote that = (CompactFxQuote) o;
+        return baseFractionDigits == that.baseFractionDigits &&
+                counterFractionDigits == that.counterFractionDigits &&
+                scaledRate == that.scaledRate &&
+                rateScale == that.rateScale &&
+                expiryMillis == that.expiryMillis &&
+                baseCode.equals(that.baseCode) &&
+                counterCode.equals(that.counterCode) &&
+                Objects.equals(mac, that.mac);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(baseCode, baseFractionDigits, counterCode, counterFractionDigits, scaledRate, rateScale,
+                expiryMillis, mac);
+    }
+}
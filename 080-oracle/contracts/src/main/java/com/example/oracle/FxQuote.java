@@ -1,8 +1,11 @@
 package com.example.oracle;
 
 import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import net.corda.core.serialization.ConstructorForDeserialization;
 import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.utilities.OpaqueBytes;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -19,12 +22,20 @@ public class FxQuote {
     private final BigDecimal rate;
     @NotNull
     private final Instant expirationDate;
+    /**
+     * Set when the oracle runs stateless, it authenticates the other fields so that any oracle instance sharing
+     * the secret can honour the quote without having kept it.
+     */
+    @Nullable
+    private final OpaqueBytes mac;
 
+    @ConstructorForDeserialization
     public FxQuote(
             @NotNull final TokenType base,
             @NotNull final TokenType counter,
             @NotNull final BigDecimal rate,
-            @NotNull final Instant expirationDate) {
+            @NotNull final Instant expirationDate,
+            @Nullable final OpaqueBytes mac) {
         //noinspection ConstantConditions
         if (base == null) throw new NullPointerException("base cannot be null");
         //noinspection ConstantConditions
@@ -37,6 +48,15 @@ public class FxQuote {
         this.counter = counter;
         this.rate = rate;
         this.expirationDate = expirationDate;
+        this.mac = mac;
+    }
+
+    public FxQuote(
+            @NotNull final TokenType base,
+            @NotNull final TokenType counter,
+            @NotNull final BigDecimal rate,
+            @NotNull final Instant expirationDate) {
+        this(base, counter, rate, expirationDate, null);
     }
 
     @NotNull
@@ -59,6 +79,11 @@ public class FxQuote {
         return expirationDate;
     }
 
+    @Nullable
+    public OpaqueBytes getMac() {
+        return mac;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -67,11 +92,12 @@ public class FxQuote {
         return base.equals(fxQuote.base) &&
                 counter.equals(fxQuote.counter) &&
                 rate.equals(fxQuote.rate) &&
-                expirationDate.equals(fxQuote.expirationDate);
+                expirationDate.equals(fxQuote.expirationDate) &&
+                Objects.equals(mac, fxQuote.mac);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(base, counter, rate, expirationDate);
+        return Objects.hash(base, counter, rate, expirationDate, mac);
     }
 }
@@ -8,8 +8,32 @@ import net.corda.core.transactions.FilteredTransaction;
 import net.corda.core.transactions.WireTransaction;
 import org.jetbrains.annotations.NotNull;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 public class TemperatureOracleUtilities {
 
+    /**
+     * Temperatures are handled in fixed point, in thousandths of a degree.
+     */
+    public static final int READING_SCALE = 3;
+
+    /**
+     * @return The temperature in fixed point, saturated at the long range.
+     */
+    public static long toReading(@NotNull final BigDecimal degrees, @NotNull final RoundingMode roundingMode) {
+        try {
+            return degrees.setScale(READING_SCALE, roundingMode).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return degrees.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    @NotNull
+    public static BigDecimal toDegrees(final long reading) {
+        return BigDecimal.valueOf(reading, READING_SCALE);
+    }
+
     @NotNull
     public static FilteredTransaction filter(
             @NotNull final WireTransaction tx,
@@ -7,7 +7,9 @@ import net.corda.core.transactions.LedgerTransaction;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -20,9 +22,18 @@ public class DueDiligenceContract implements Contract {
 
     @Override
     public void verify(@NotNull LedgerTransaction tx) throws IllegalArgumentException {
-        final CommandWithParties<Commands> command = requireSingleCommand(tx.getCommands(), Commands.class);
         final List<StateAndRef<DueDiligence>> inDueDil = tx.inRefsOfType(DueDiligence.class);
         final List<StateAndRef<DueDiligence>> outDueDil = tx.outRefsOfType(DueDiligence.class);
+        final List<Command<Commands>> commands = tx.commandsOfType(Commands.class);
+        // Many tokens can be certified in one go, with a command each.
+        if (1 < commands.size() && commands.stream().allMatch(it -> it.getValue() instanceof Commands.Certify)) {
+            requireThat(req -> {
+                verifyCertify(req, commands, inDueDil, outDueDil);
+                return null;
+            });
+            return;
+        }
+        final CommandWithParties<Commands> command = requireSingleCommand(tx.getCommands(), Commands.class);
 
         requireThat(req -> {
 
@@ -40,17 +51,7 @@ public class DueDiligenceContract implements Contract {
                                 .equals(command.getSigners()));
 
             } else if (command.getValue() instanceof Commands.Certify) {
-                req.using("There should be a single due diligence input on certify",
-                        inDueDil.size() == 1);
-                req.using("There should be no due diligence outputs on certify",
-                        outDueDil.isEmpty());
-
-                final DueDiligence diligence = inDueDil.get(0).getState().getData();
-                req.using("The command id should match that of the input",
-                        ((Commands.Certify) command.getValue()).tokenId.equals(diligence.getTokenId()));
-
-                req.using("The oracle should be the only signer on certify",
-                        Collections.singletonList(diligence.getOracle().getOwningKey()).equals(command.getSigners()));
+                verifyCertify(req, commands, inDueDil, outDueDil);
 
             } else if (command.getValue() instanceof Commands.Drop) {
                 req.using("There should be a single due diligence input on drop",
@@ -73,6 +74,35 @@ public class DueDiligenceContract implements Contract {
         });
     }
 
+    /**
+     * Checks that each certify command has its own due diligence input, in a single pass.
+     */
+    private static void verifyCertify(
+            @NotNull final Requirements req,
+            @NotNull final List<Command<Commands>> commands,
+            @NotNull final List<StateAndRef<DueDiligence>> inDueDil,
+            @NotNull final List<StateAndRef<DueDiligence>> outDueDil) {
+        req.using("There should be a single due diligence input on certify per command",
+                inDueDil.size() == commands.size());
+        req.using("There should be no due diligence outputs on certify",
+                outDueDil.isEmpty());
+
+        final Map<UniqueIdentifier, DueDiligence> byTokenId = new HashMap<>(inDueDil.size());
+        inDueDil.forEach(it -> byTokenId.put(it.getState().getData().getTokenId(), it.getState().getData()));
+        req.using("The due diligence inputs should be about different tokens",
+                byTokenId.size() == inDueDil.size());
+
+        for (final Command<Commands> command : commands) {
+            // Removed, so that no two commands match the same input.
+            final DueDiligence diligence = byTokenId.remove(((Commands.Certify) command.getValue()).getTokenId());
+            req.using("The command id should match that of the input",
+                    diligence != null);
+
+            req.using("The oracle should be the only signer on certify",
+                    Collections.singletonList(diligence.getOracle().getOwningKey()).equals(command.getSigners()));
+        }
+    }
+
     public interface Commands extends CommandData {
         class Prepare implements Commands {
         }
@@ -0,0 +1,116 @@
+package com.example.oracle;
+
+import com.example.contract.FxContract.Commands.Swap;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import net.corda.core.serialization.SerializationAPIKt;
+import net.corda.core.serialization.SerializationFactory;
+import net.corda.core.utilities.OpaqueBytes;
+import net.corda.testing.core.SerializationEnvironmentRule;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.Assert.*;
+
+public class CompactFxQuoteTests {
+    private static final int SWAP_COUNT = 1_000;
+
+    @Rule
+    public final SerializationEnvironmentRule testSerialization = new SerializationEnvironmentRule();
+
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+    private final Instant expiry = Instant.now().plusSeconds(20).truncatedTo(ChronoUnit.MILLIS);
+
+    private static int sizeOf(final Object obj) {
+        final SerializationFactory factory = SerializationFactory.Companion.getDefaultFactory();
+        return SerializationAPIKt.serialize(obj, factory, factory.getDefaultContext()).getSize();
+    }
+
+    @Test
+    public void conversionIsLossless() {
+        for (final String rate : new String[]{"1", "1.39", "0.720000", "1.234567891", "123456789.5"}) {
+            final FxQuote quote = new FxQuote(usd, cad, new BigDecimal(rate), expiry,
+                    OpaqueBytes.of((byte) 1, (byte) 2, (byte) 3));
+            final FxQuote back = CompactFxQuote.from(quote).toFxQuote();
+            assertEquals(quote, back);
+            assertEquals(quote.getRate().scale(), back.getRate().scale());
+        }
+    }
+
+    @Test
+    public void swapRoundTripsThroughSerialisation() {
+        final Swap swap = new Swap(new FxQuote(usd, cad, new BigDecimal("1.39"), expiry));
+        final Swap back = SerializationAPIKt.deserialize(SerializationAPIKt.serialize(swap,
+                SerializationFactory.Companion.getDefaultFactory(),
+                SerializationFactory.Companion.getDefaultFactory().getDefaultContext()),
+                Swap.class,
+                SerializationFactory.Companion.getDefaultFactory(),
+                SerializationFactory.Companion.getDefaultFactory().getDefaultContext());
+        assertEquals(swap, back);
+        assertEquals(swap.getQuote(), back.getQuote());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFractionOfMillisecond() {
+        CompactFxQuote.from(new FxQuote(usd, cad, BigDecimal.ONE, expiry.plusNanos(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRateTooPrecise() {
+        CompactFxQuote.from(new FxQuote(usd, cad, new BigDecimal("1.0000000001"), expiry));
+    }
+
+    @Test
+    public void ratioMatchesWithoutDividing() {
+        final CompactFxQuote quote = CompactFxQuote.from(new FxQuote(usd, cad, new BigDecimal("1.39"), expiry));
+        assertTrue(quote.matchesRatio(100, 139));
+        assertTrue(quote.matchesRatio(1_000, 1_394));
+        assertFalse(quote.matchesRatio(1_000, 1_396));
+        // 1.385 rounds half-even to 1.38, 1.395 to 1.40.
+        assertFalse(quote.matchesRatio(1_000, 1_385));
+        assertFalse(quote.matchesRatio(1_000, 1_395));
+        assertFalse(quote.matchesRatio(0, 139));
+        // Beyond long arithmetic.
+        assertTrue(quote.matchesRatio(Long.MAX_VALUE / 2, BigDecimal.valueOf(Long.MAX_VALUE / 2)
+                .multiply(new BigDecimal("1.39")).setScale(0, RoundingMode.HALF_EVEN).longValueExact()));
+
+        final CompactFxQuote even = CompactFxQuote.from(new FxQuote(usd, cad, new BigDecimal("1.38"), expiry));
+        assertTrue(even.matchesRatio(1_000, 1_385));
+        assertTrue(even.matchesRatio(1_000, 1_375));
+    }
+
+    @Test
+    public void ratioAgreesWithBigDecimalDivision() {
+        for (int rate = 1; rate < 300; rate += 7) {
+            final BigDecimal quoted = BigDecimal.valueOf(rate, 2);
+            final CompactFxQuote quote = CompactFxQuote.from(new FxQuote(usd, cad, quoted, expiry));
+            for (long base = 1; base < 500; base += 13) {
+                for (long counter = 0; counter < 1_500; counter += 11) {
+                    final boolean expected = BigDecimal.valueOf(counter)
+                            .divide(BigDecimal.valueOf(base), 2, RoundingMode.HALF_EVEN)
+                            .equals(quoted);
+                    assertEquals(rate + " " + base + " " + counter, expected, quote.matchesRatio(base, counter));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compactSwapIsSmaller() {
+        long fullSize = 0;
+        long compactSize = 0;
+        for (int i = 0; i < SWAP_COUNT; i++) {
+            final FxQuote quote = new FxQuote(usd, cad, BigDecimal.valueOf(139_000 + i, 5), expiry.plusMillis(i));
+            fullSize += sizeOf(quote);
+            compactSize += sizeOf(new Swap(quote));
+        }
+        assertTrue("Full " + fullSize + " bytes, compact " + compactSize + " bytes", compactSize < fullSize);
+    }
+
+}
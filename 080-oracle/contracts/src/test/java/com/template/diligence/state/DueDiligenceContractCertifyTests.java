@@ -118,4 +118,69 @@ public class DueDiligenceContractCertifyTests {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    public void manyTokensCanBeCertifiedTogether() {
+        ledger(ledgerServices, ledger -> {
+            ledger.transaction(tx -> {
+                final UniqueIdentifier first = new UniqueIdentifier();
+                final UniqueIdentifier second = new UniqueIdentifier();
+                tx.input(DueDiligenceContract.DUE_DILIGENCE_CONTRACT_ID,
+                        new DueDiligence(new UniqueIdentifier(), first, dmv, Collections.singletonList(alice)));
+                tx.input(DueDiligenceContract.DUE_DILIGENCE_CONTRACT_ID,
+                        new DueDiligence(new UniqueIdentifier(), second, dmv, Collections.singletonList(bob)));
+                tx.command(Collections.singletonList(dmv.getOwningKey()),
+                        new DueDiligenceContract.Commands.Certify(first, Status.Clear));
+
+                tx.tweak(txCopy -> {
+                    txCopy.command(Collections.singletonList(dmv.getOwningKey()),
+                            new DueDiligenceContract.Commands.Certify(first, Status.Linked));
+                    return txCopy.failsWith("The command id should match that of the input");
+                });
+                tx.tweak(txCopy -> {
+                    txCopy.command(Collections.singletonList(bob.getOwningKey()),
+                            new DueDiligenceContract.Commands.Certify(second, Status.Clear));
+                    return txCopy.failsWith("The oracle should be the only signer on certify");
+                });
+                tx.tweak(txCopy -> {
+                    txCopy.command(Collections.singletonList(dmv.getOwningKey()),
+                            new DueDiligenceContract.Commands.Drop());
+                    return txCopy.fails();
+                });
+
+                tx.command(Collections.singletonList(dmv.getOwningKey()),
+                        new DueDiligenceContract.Commands.Certify(second, Status.Linked));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void thereShouldBeADueDiligenceInputPerCommand() {
+        ledger(ledgerServices, ledger -> {
+            ledger.transaction(tx -> {
+                final UniqueIdentifier first = new UniqueIdentifier();
+                final UniqueIdentifier second = new UniqueIdentifier();
+                tx.input(DueDiligenceContract.DUE_DILIGENCE_CONTRACT_ID,
+                        new DueDiligence(new UniqueIdentifier(), first, dmv, Collections.singletonList(alice)));
+                tx.command(Collections.singletonList(dmv.getOwningKey()),
+                        new DueDiligenceContract.Commands.Certify(first, Status.Clear));
+                tx.command(Collections.singletonList(dmv.getOwningKey()),
+                        new DueDiligenceContract.Commands.Certify(second, Status.Clear));
+                tx.failsWith("There should be a single due diligence input on certify per command");
+
+                tx.tweak(txCopy -> {
+                    txCopy.input(DueDiligenceContract.DUE_DILIGENCE_CONTRACT_ID,
+                            new DueDiligence(new UniqueIdentifier(), first, dmv, Collections.singletonList(bob)));
+                    return txCopy.failsWith("The due diligence inputs should be about different tokens");
+                });
+
+                tx.input(DueDiligenceContract.DUE_DILIGENCE_CONTRACT_ID,
+                        new DueDiligence(new UniqueIdentifier(), second, dmv, Collections.singletonList(bob)));
+                return tx.verifies();
+            });
+            return null;
+        });
+    }
+
+}
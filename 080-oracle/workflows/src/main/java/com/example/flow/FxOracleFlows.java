@@ -4,6 +4,7 @@ import co.paralleluniverse.fibers.Suspendable;
 import com.example.oracle.FxOracle;
 import com.example.oracle.FxOracleUtilities;
 import com.example.oracle.FxQuote;
+import com.example.oracle.FxSignOutcome;
 import com.r3.corda.lib.tokens.contracts.types.TokenType;
 import javafx.util.Pair;
 import net.corda.core.crypto.TransactionSignature;
@@ -14,6 +15,13 @@ import net.corda.core.transactions.FilteredTransaction;
 import net.corda.core.transactions.FilteredTransactionVerificationException;
 import net.corda.core.transactions.WireTransaction;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public interface FxOracleFlows {
@@ -21,10 +29,12 @@ public interface FxOracleFlows {
     interface Query {
 
         /**
-         * Its handler is {@link Answer}.
+         * Its handler is {@link Answer}. A quote still valid for long enough in the {@link FxQuoteCache} is
+         * returned without asking the oracle.
          */
         @InitiatingFlow
         @StartableByRPC
+        @StartableByService
         class Request extends FlowLogic<FxQuote> {
             @NotNull
             private final TokenType base;
@@ -32,11 +42,16 @@ public interface FxOracleFlows {
             private final TokenType counter;
             @NotNull
             private final Party oracle;
+            private final boolean useCache;
 
+            /**
+             * @param useCache Whether a cached quote can be returned. The quote received is cached regardless.
+             */
             public Request(
                     @NotNull final TokenType base,
                     @NotNull final TokenType counter,
-                    @NotNull final Party oracle) {
+                    @NotNull final Party oracle,
+                    final boolean useCache) {
                 //noinspection ConstantConditions
                 if (base == null) throw new NullPointerException("base cannot be null");
                 //noinspection ConstantConditions
@@ -46,14 +61,33 @@ public interface FxOracleFlows {
                 this.base = base;
                 this.counter = counter;
                 this.oracle = oracle;
+                this.useCache = useCache;
+            }
+
+            public Request(
+                    @NotNull final TokenType base,
+                    @NotNull final TokenType counter,
+                    @NotNull final Party oracle) {
+                this(base, counter, oracle, true);
             }
 
             @Suspendable
             @Override
             public FxQuote call() throws FlowException {
-                return initiateFlow(oracle)
+                final FxQuoteCache cache = getServiceHub().cordaService(FxQuoteCache.class);
+                if (useCache) {
+                    final FxQuote cached = cache.get(oracle, base, counter);
+                    if (cached != null) return cached;
+                }
+                final FxQuote quote = initiateFlow(oracle)
                         .sendAndReceive(FxQuote.class, new Pair<>(base, counter))
-                        .unwrap(it -> it);
+                        .unwrap(it -> {
+                            if (!it.getBase().equals(base) || !it.getCounter().equals(counter))
+                                throw new FlowException("Quote does not match the requested pair");
+                            return it;
+                        });
+                cache.put(oracle, quote);
+                return quote;
             }
         }
 
@@ -83,6 +117,98 @@ public interface FxOracleFlows {
 
     }
 
+    interface QueryBatch {
+
+        int MAX_BATCH_SIZE = 1_000;
+
+        /**
+         * Obtains quotes for many pairs in a single round trip. Its handler is {@link Answer}.
+         */
+        @InitiatingFlow
+        @StartableByRPC
+        class Request extends FlowLogic<List<FxQuote>> {
+            @NotNull
+            private final List<Pair<TokenType, TokenType>> pairs;
+            @NotNull
+            private final Party oracle;
+
+            public Request(
+                    @NotNull final List<Pair<TokenType, TokenType>> pairs,
+                    @NotNull final Party oracle) {
+                //noinspection ConstantConditions
+                if (pairs == null) throw new NullPointerException("pairs cannot be null");
+                if (pairs.isEmpty()) throw new IllegalArgumentException("pairs cannot be empty");
+                if (MAX_BATCH_SIZE < pairs.size())
+                    throw new IllegalArgumentException("Cannot ask for more than " + MAX_BATCH_SIZE + " pairs");
+                //noinspection ConstantConditions
+                if (oracle == null) throw new NullPointerException("oracle cannot be null");
+                this.pairs = new ArrayList<>(pairs);
+                this.oracle = oracle;
+            }
+
+            /**
+             * @return The quotes in the order of the requested pairs.
+             */
+            @Suspendable
+            @Override
+            public List<FxQuote> call() throws FlowException {
+                //noinspection unchecked
+                return initiateFlow(oracle)
+                        .sendAndReceive(List.class, pairs)
+                        .unwrap(it -> {
+                            if (it.size() != pairs.size())
+                                throw new FlowException("Expected " + pairs.size() + " quotes, got " + it.size());
+                            final List<FxQuote> quotes = new ArrayList<>(it.size());
+                            for (int i = 0; i < pairs.size(); i++) {
+                                final FxQuote quote = (FxQuote) it.get(i);
+                                if (!quote.getBase().equals(pairs.get(i).getKey())
+                                        || !quote.getCounter().equals(pairs.get(i).getValue()))
+                                    throw new FlowException("Quote " + i + " does not match its pair");
+                                quotes.add(quote);
+                            }
+                            return quotes;
+                        });
+            }
+        }
+
+        @SuppressWarnings("unused")
+        @InitiatedBy(Request.class)
+        class Answer extends FlowLogic<List<FxQuote>> {
+            @NotNull
+            private final FlowSession requesterSession;
+
+            public Answer(@NotNull final FlowSession requesterSession) {
+                //noinspection ConstantConditions
+                if (requesterSession == null) throw new NullPointerException("requesterSession cannot be null");
+                this.requesterSession = requesterSession;
+            }
+
+            @Suspendable
+            @Override
+            public List<FxQuote> call() throws FlowException {
+                final List<Pair<TokenType, TokenType>> pairs = requesterSession.receive(List.class).unwrap(it -> {
+                    if (it.isEmpty()) throw new FlowException("No pairs");
+                    if (MAX_BATCH_SIZE < it.size())
+                        throw new FlowException("Cannot answer for more than " + MAX_BATCH_SIZE + " pairs");
+                    final List<Pair<TokenType, TokenType>> checked = new ArrayList<>(it.size());
+                    for (final Object element : it) {
+                        if (!(element instanceof Pair)) throw new FlowException("Unexpected pair");
+                        final Pair<?, ?> pair = (Pair<?, ?>) element;
+                        if (!(pair.getKey() instanceof TokenType) || !(pair.getValue() instanceof TokenType))
+                            throw new FlowException("Unexpected pair");
+                        checked.add(new Pair<>((TokenType) pair.getKey(), (TokenType) pair.getValue()));
+                    }
+                    return checked;
+                });
+                final List<FxQuote> quotes = getServiceHub().cordaService(FxOracle.class).getQuotes(pairs);
+                if (quotes == null) throw new FlowException("Unavailable pair");
+                requesterSession.send(quotes);
+                return quotes;
+            }
+        }
+
+    }
+
     interface Sign {
 
         /**
@@ -153,4 +279,215 @@ public interface FxOracleFlows {
 
     }
 
+    interface RoutedQuery {
+
+        /**
+         * Obtains a quote from the FX oracle whose shard holds the pair, as chosen by the {@link FxOracleRouter}.
+         * When that oracle fails, or does not answer within the query timeout of the router, the next ones on the
+         * ring are asked in turn.
+         */
+        @StartableByRPC
+        class Request extends FlowLogic<FxQuote> {
+            @NotNull
+            private final TokenType base;
+            @NotNull
+            private final TokenType counter;
+
+            public Request(
+                    @NotNull final TokenType base,
+                    @NotNull final TokenType counter) {
+                //noinspection ConstantConditions
+                if (base == null) throw new NullPointerException("base cannot be null");
+                //noinspection ConstantConditions
+                if (counter == null) throw new NullPointerException("counter cannot be null");
+                this.base = base;
+                this.counter = counter;
+            }
+
+            @Suspendable
+            @Override
+            public FxQuote call() throws FlowException {
+                final FxOracleRouter router = getServiceHub().cordaService(FxOracleRouter.class);
+                final List<Party> oracles = router.route(base, counter);
+                if (oracles.isEmpty()) throw new FlowException("No FX oracle found in the network map");
+                for (final Party oracle : oracles) {
+                    // Suspends without holding a flow worker while the oracle is waited for.
+                    final FxQuote quote = await(new TimedQuery(router, base, counter, oracle));
+                    if (quote != null) return quote;
+                    getLogger().warn("FX oracle " + oracle + " failed to quote, trying the next one");
+                }
+                throw new FlowException("None of the " + oracles.size() + " FX oracles could quote "
+                        + base.getTokenIdentifier() + "/" + counter.getTokenIdentifier());
+            }
+        }
+
+        /**
+         * Completes with null when the oracle failed or timed out, so that the flow can move on to the next one.
+         */
+        class TimedQuery implements FlowExternalAsyncOperation<FxQuote> {
+            private final static Logger log = LoggerFactory.getLogger(TimedQuery.class);
+
+            @NotNull
+            private final FxOracleRouter router;
+            @NotNull
+            private final TokenType base;
+            @NotNull
+            private final TokenType counter;
+            @NotNull
+            private final Party oracle;
+
+            TimedQuery(
+                    @NotNull final FxOracleRouter router,
+                    @NotNull final TokenType base,
+                    @NotNull final TokenType counter,
+                    @NotNull final Party oracle) {
+                this.router = router;
+                this.base = base;
+                this.counter = counter;
+                this.oracle = oracle;
+            }
+
+            @NotNull
+            @Override
+            public CompletableFuture<FxQuote> execute(@NotNull final String deduplicationId) {
+                return router.query(base, counter, oracle).handle((quote, error) -> {
+                    if (error != null) log.warn("FX oracle " + oracle + " did not quote", error);
+                    return quote;
+                });
+            }
+        }
+
+    }
+
+    interface RoutedSign {
+
+        /**
+         * Obtains the signature of every FX oracle whose key is required by a swap command of the transaction.
+         */
+        @StartableByRPC
+        class Request extends FlowLogic<List<TransactionSignature>> {
+            @NotNull
+            private final WireTransaction tx;
+
+            public Request(@NotNull final WireTransaction tx) {
+                //noinspection ConstantConditions
+                if (tx == null) throw new NullPointerException("tx cannot be null");
+                this.tx = tx;
+            }
+
+            @Suspendable
+            @Override
+            public List<TransactionSignature> call() throws FlowException {
+                final List<Party> oracles = getServiceHub().cordaService(FxOracleRouter.class).findSigners(tx);
+                if (oracles.isEmpty()) throw new FlowException("No known FX oracle is a swap signer");
+                final List<TransactionSignature> sigs = new ArrayList<>(oracles.size());
+                for (final Party oracle : oracles) sigs.add(subFlow(new Sign.Request(oracle, tx)));
+                return sigs;
+            }
+        }
+
+    }
+
+    interface SignBatch {
+
+        /**
+         * Obtains the oracle signatures over many transactions in a single round trip. Its handler is {@link Answer}.
+         */
+        @InitiatingFlow
+        @StartableByRPC
+        class Request extends FlowLogic<List<FxSignOutcome>> {
+            @NotNull
+            private final Party oracle;
+            @NotNull
+            private final List<WireTransaction> txs;
+
+            public Request(
+                    @NotNull final Party oracle,
+                    @NotNull final List<WireTransaction> txs) {
+                //noinspection ConstantConditions
+                if (oracle == null) throw new NullPointerException("oracle cannot be null");
+                //noinspection ConstantConditions
+                if (txs == null) throw new NullPointerException("txs cannot be null");
+                if (txs.isEmpty()) throw new IllegalArgumentException("txs cannot be empty");
+                this.oracle = oracle;
+                this.txs = new ArrayList<>(txs);
+            }
+
+            /**
+             * @return The outcomes in the order of the transactions. A failed one does not fail the others.
+             */
+            @Suspendable
+            @Override
+            public List<FxSignOutcome> call() throws FlowException {
+                final List<FilteredTransaction> filtered = txs.stream()
+                        .map(tx -> FxOracleUtilities.filter(tx, oracle))
+                        .collect(Collectors.toList());
+                //noinspection unchecked
+                return initiateFlow(oracle)
+                        .sendAndReceive(List.class, filtered)
+                        .unwrap(it -> {
+                            if (it.size() != txs.size())
+                                throw new FlowException("Expected " + txs.size() + " outcomes, got " + it.size());
+                            final List<FxSignOutcome> outcomes = new ArrayList<>(it.size());
+                            for (int i = 0; i < txs.size(); i++) {
+                                final FxSignOutcome outcome = (FxSignOutcome) it.get(i);
+                                final TransactionSignature sig = outcome.getSignature();
+                                if (sig != null) {
+                                    if (!sig.getBy().equals(oracle.getOwningKey()))
+                                        throw new IllegalArgumentException("Unexpected key used for signature");
+                                    txs.get(i).checkSignature(sig);
+                                }
+                                outcomes.add(outcome);
+                            }
+                            return outcomes;
+                        });
+            }
+        }
+
+        @SuppressWarnings("unused")
+        @InitiatedBy(Request.class)
+        class Answer extends FlowLogic<List<FxSignOutcome>> {
+            @NotNull
+            private final FlowSession requesterSession;
+
+            public Answer(@NotNull final FlowSession requesterSession) {
+                //noinspection ConstantConditions
+                if (requesterSession == null) throw new NullPointerException("requester cannot be null");
+                this.requesterSession = requesterSession;
+            }
+
+            @Suspendable
+            @Override
+            public List<FxSignOutcome> call() throws FlowException {
+                //noinspection unchecked
+                final List<FilteredTransaction> partials = requesterSession.receive(List.class)
+                        .unwrap(it -> it);
+                // The wait for the signing pool does not hold a flow worker.
+                final List<FxSignOutcome> outcomes = await(new SignAll(
+                        getServiceHub().cordaService(FxOracle.class), partials));
+                requesterSession.send(outcomes);
+                return outcomes;
+            }
+        }
+
+        class SignAll implements FlowExternalOperation<List<FxSignOutcome>> {
+            @NotNull
+            private final FxOracle oracle;
+            @NotNull
+            private final List<FilteredTransaction> partials;
+
+            SignAll(@NotNull final FxOracle oracle, @NotNull final List<FilteredTransaction> partials) {
+                this.oracle = oracle;
+                this.partials = partials;
+            }
+
+            @NotNull
+            @Override
+            public List<FxSignOutcome> execute(@NotNull final String deduplicationId) {
+                return oracle.signAll(partials);
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,180 @@
+package com.example.flow;
+
+import com.example.contract.FxContract.Commands.Swap;
+import com.example.oracle.FxQuote;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import net.corda.core.contracts.Command;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.FlowHandle;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.NodeInfo;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.transactions.WireTransaction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spreads the FX requests of this node over the fleet of FX oracles found in the network map. A node belongs to the
+ * fleet when its organisation name starts with the configured prefix. Pairs are sharded with consistent hashing, so
+ * that adding or removing an oracle only moves the pairs of its own arcs of the ring. An oracle that is in the network map
+ * but does not answer within the query timeout is passed over.
+ */
+@CordaService
+public class FxOracleRouter extends SingletonSerializeAsToken {
+
+    /**
+     * The start of the organisation name of the FX oracles.
+     */
+    public static final String ORGANISATION_PREFIX_CONFIG = "fxOracleOrganisationPrefix";
+    public static final String DEFAULT_ORGANISATION_PREFIX = "FX Oracle";
+    /**
+     * The points each oracle gets on the ring, so that the pairs are evenly spread.
+     */
+    public static final int VIRTUAL_NODE_COUNT = 128;
+    /**
+     * How long, in milliseconds, an oracle has to answer a routed query before the next one is asked.
+     */
+    public static final String QUERY_TIMEOUT_CONFIG = "fxOracleQueryTimeoutMillis";
+    public static final long DEFAULT_QUERY_TIMEOUT_MILLIS = 10_000;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    @NotNull
+    private final AppServiceHub serviceHub;
+    @NotNull
+    private final String organisationPrefix;
+    private final long queryTimeoutMillis;
+    @NotNull
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(it -> {
+        final Thread thread = new Thread(it, "fx-oracle-query-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Null when the network map changed since it was built.
+    @Nullable
+    private volatile NavigableMap<Long, Party> ring;
+    @NotNull
+    private final AtomicLong mapChangeCount = new AtomicLong();
+
+    @SuppressWarnings("unused")
+    public FxOracleRouter(@NotNull final AppServiceHub serviceHub) {
+        //noinspection ConstantConditions
+        if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
+        this.serviceHub = serviceHub;
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        organisationPrefix = config.exists(ORGANISATION_PREFIX_CONFIG)
+                ? config.getString(ORGANISATION_PREFIX_CONFIG)
+                : DEFAULT_ORGANISATION_PREFIX;
+        queryTimeoutMillis = config.exists(QUERY_TIMEOUT_CONFIG)
+                ? config.getLong(QUERY_TIMEOUT_CONFIG)
+                : DEFAULT_QUERY_TIMEOUT_MILLIS;
+        if (queryTimeoutMillis <= 0) throw new IllegalArgumentException(QUERY_TIMEOUT_CONFIG + " must be positive");
+        serviceHub.getNetworkMapCache().getChanged().subscribe(it -> {
+            mapChangeCount.incrementAndGet();
+            ring = null;
+        });
+    }
+
+    /**
+     * @return The oracles of the fleet currently in the network map, ordered by name.
+     */
+    @NotNull
+    public List<Party> getOracles() {
+        final SortedSet<Party> oracles = new TreeSet<>(Comparator.comparing(it -> it.getName().toString()));
+        oracles.addAll(getRing().values());
+        return new ArrayList<>(oracles);
+    }
+
+    /**
+     * @return The oracles to ask for this pair, in order of preference. The first one is the owner of its shard,
+     * the next ones are the failovers.
+     */
+    @NotNull
+    public List<Party> route(@NotNull final TokenType base, @NotNull final TokenType counter) {
+        final NavigableMap<Long, Party> current = getRing();
+        final Set<Party> ordered = new LinkedHashSet<>();
+        final long position = HASH.hashString(base.getTokenIdentifier() + "/" + counter.getTokenIdentifier(),
+                StandardCharsets.UTF_8).asLong();
+        // Walk the ring clockwise from the pair, wrapping around once.
+        for (final Party oracle : current.tailMap(position, true).values()) ordered.add(oracle);
+        for (final Party oracle : current.headMap(position, false).values()) ordered.add(oracle);
+        return new ArrayList<>(ordered);
+    }
+
+    /**
+     * Asks the oracle for a quote in a flow of its own, so that the caller can give up on an oracle that does not
+     * answer. A session to an unreachable oracle never fails, its messages wait for it, so the flow is killed when
+     * the timeout fires instead of staying checkpointed.
+     *
+     * @return Completed with the quote, or exceptionally with the failure of the query, or with a
+     * {@link TimeoutException} when the oracle did not answer within the query timeout.
+     */
+    @NotNull
+    public CompletableFuture<FxQuote> query(
+            @NotNull final TokenType base,
+            @NotNull final TokenType counter,
+            @NotNull final Party oracle) {
+        final CompletableFuture<FxQuote> quote = new CompletableFuture<>();
+        final FlowHandle<FxQuote> handle = serviceHub.startFlow(new FxOracleFlows.Query.Request(base, counter, oracle));
+        handle.getReturnValue()
+                .toCompletableFuture()
+                .whenComplete((result, error) -> {
+                    if (error == null) quote.complete(result);
+                    else quote.completeExceptionally(error);
+                });
+        final ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+            if (!quote.completeExceptionally(new TimeoutException(
+                    oracle + " did not answer within " + queryTimeoutMillis + " ms"))) return;
+            serviceHub.killFlow(handle.getId());
+        }, queryTimeoutMillis, TimeUnit.MILLISECONDS);
+        quote.whenComplete((result, error) -> timeout.cancel(false));
+        return quote;
+    }
+
+    /**
+     * @return The oracles whose signature is required by a swap command of the transaction.
+     */
+    @NotNull
+    public List<Party> findSigners(@NotNull final WireTransaction tx) {
+        final Map<PublicKey, Party> byKey = new HashMap<>();
+        for (final Party oracle : getRing().values()) byKey.put(oracle.getOwningKey(), oracle);
+        final Set<Party> signers = new LinkedHashSet<>();
+        for (final Command<?> command : tx.getCommands()) {
+            if (!(command.getValue() instanceof Swap)) continue;
+            for (final PublicKey key : command.getSigners()) {
+                final Party oracle = byKey.get(key);
+                if (oracle != null) signers.add(oracle);
+            }
+        }
+        return new ArrayList<>(signers);
+    }
+
+    @NotNull
+    private NavigableMap<Long, Party> getRing() {
+        final NavigableMap<Long, Party> current = ring;
+        if (current != null) return current;
+        final long changesBefore = mapChangeCount.get();
+        final NavigableMap<Long, Party> built = new TreeMap<>();
+        for (final NodeInfo node : serviceHub.getNetworkMapCache().getAllNodes()) {
+            final Party party = node.getLegalIdentities().get(0);
+            if (!party.getName().getOrganisation().startsWith(organisationPrefix)) continue;
+            for (int i = 0; i < VIRTUAL_NODE_COUNT; i++) {
+                built.put(HASH.hashString(party.getName() + "#" + i, StandardCharsets.UTF_8).asLong(), party);
+            }
+        }
+        final NavigableMap<Long, Party> immutable = Collections.unmodifiableNavigableMap(built);
+        // Do not keep it if the network map changed while it was being built.
+        if (mapChangeCount.get() == changesBefore) ring = immutable;
+        return immutable;
+    }
+
+}
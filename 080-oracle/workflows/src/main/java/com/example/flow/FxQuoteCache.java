@@ -0,0 +1,133 @@
+package com.example.flow;
+
+import com.example.oracle.FxQuote;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, on the requesting node, the quotes received from FX oracles so that flows running shortly after one another
+ * do not each ask the oracle. A quote is handed out while it has more than the safety margin left before it expires,
+ * so that the transaction using it still has time to be signed.
+ */
+@CordaService
+public class FxQuoteCache extends SingletonSerializeAsToken {
+
+    /**
+     * The margin, in milliseconds, to leave before a cached quote expires.
+     */
+    public static final String SAFETY_MARGIN_CONFIG = "fxQuoteCacheSafetyMarginMillis";
+    public static final Duration DEFAULT_SAFETY_MARGIN = Duration.ofSeconds(5);
+
+    @NotNull
+    private final Duration safetyMargin;
+    @NotNull
+    private final ConcurrentMap<Key, FxQuote> quotes = new ConcurrentHashMap<>();
+    @NotNull
+    private final AtomicLong hitCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong missCount = new AtomicLong();
+
+    private static class Key {
+        @NotNull
+        final Party oracle;
+        @NotNull
+        final TokenType base;
+        @NotNull
+        final TokenType counter;
+
+        Key(@NotNull final Party oracle, @NotNull final TokenType base, @NotNull final TokenType counter) {
+            this.oracle = oracle;
+            this.base = base;
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return oracle.equals(key.oracle) &&
+                    base.equals(key.base) &&
+                    counter.equals(key.counter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(oracle, base, counter);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public FxQuoteCache(@NotNull final AppServiceHub serviceHub) {
+        //noinspection ConstantConditions
+        if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        safetyMargin = config.exists(SAFETY_MARGIN_CONFIG)
+                ? Duration.ofMillis(config.getLong(SAFETY_MARGIN_CONFIG))
+                : DEFAULT_SAFETY_MARGIN;
+    }
+
+    /**
+     * @return The cached quote from this oracle, if it is still valid for long enough.
+     */
+    @Nullable
+    public FxQuote get(
+            @NotNull final Party oracle,
+            @NotNull final TokenType base,
+            @NotNull final TokenType counter) {
+        final Key key = new Key(oracle, base, counter);
+        final FxQuote quote = quotes.get(key);
+        if (quote != null && Instant.now().plus(safetyMargin).isBefore(quote.getExpirationDate())) {
+            hitCount.incrementAndGet();
+            return quote;
+        }
+        // Only drop it if no fresher one came in meanwhile.
+        if (quote != null) quotes.remove(key, quote);
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Keeps the quote received from the oracle, in place of the previous one for its pair.
+     */
+    public void put(@NotNull final Party oracle, @NotNull final FxQuote quote) {
+        //noinspection ConstantConditions
+        if (oracle == null) throw new NullPointerException("oracle cannot be null");
+        //noinspection ConstantConditions
+        if (quote == null) throw new NullPointerException("quote cannot be null");
+        quotes.merge(new Key(oracle, quote.getBase(), quote.getCounter()), quote,
+                (current, received) -> current.getExpirationDate().isAfter(received.getExpirationDate())
+                        ? current : received);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The share of lookups served from the cache, or 0 if there were none.
+     */
+    public double getHitRatio() {
+        final long hits = hitCount.get();
+        final long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+}
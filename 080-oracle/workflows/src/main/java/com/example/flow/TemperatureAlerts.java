@@ -0,0 +1,121 @@
+package com.example.flow;
+
+import com.example.flow.TemperatureSubscriptionFlows.Notification;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.Subject;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, on the subscriber node, the latest notification of each temperature subscription it made.
+ */
+@CordaService
+public class TemperatureAlerts extends SingletonSerializeAsToken {
+
+    /**
+     * Map key: subscription id.
+     */
+    @NotNull
+    private final ConcurrentMap<UUID, Party> oracles = new ConcurrentHashMap<>();
+    /**
+     * Map key: subscription id.
+     */
+    @NotNull
+    private final ConcurrentMap<UUID, Notification> latest = new ConcurrentHashMap<>();
+    // Serialised, as several flows may record at once.
+    @NotNull
+    private final Subject<Notification, Notification> updates = PublishSubject.<Notification>create().toSerialized();
+    @NotNull
+    private final AtomicLong messageCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong notificationCount = new AtomicLong();
+
+    @SuppressWarnings("unused")
+    public TemperatureAlerts(@NotNull final AppServiceHub serviceHub) {
+        //noinspection ConstantConditions
+        if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
+    }
+
+    void register(@NotNull final UUID subscriptionId, @NotNull final Party oracle) {
+        if (oracles.putIfAbsent(subscriptionId, oracle) != null)
+            throw new IllegalStateException("Subscription already registered");
+    }
+
+    void unregister(@NotNull final UUID subscriptionId) {
+        oracles.remove(subscriptionId);
+        latest.remove(subscriptionId);
+    }
+
+    void countMessage() {
+        messageCount.incrementAndGet();
+    }
+
+    /**
+     * Keeps the notification if it comes from the oracle of its subscription, and is not older than the one kept.
+     *
+     * @return Whether it was kept.
+     */
+    boolean record(@NotNull final Party oracle, @NotNull final Notification notification) {
+        if (!oracle.equals(oracles.get(notification.getSubscriptionId()))) return false;
+        notificationCount.incrementAndGet();
+        final Notification kept = latest.merge(notification.getSubscriptionId(), notification,
+                (current, received) -> received.getEpochMillis() < current.getEpochMillis() ? current : received);
+        if (kept != notification) return false;
+        // The subscription may have been cancelled meanwhile.
+        if (!oracles.containsKey(notification.getSubscriptionId())) {
+            latest.remove(notification.getSubscriptionId(), notification);
+            return false;
+        }
+        updates.onNext(notification);
+        return true;
+    }
+
+    /**
+     * @return The oracle of this subscription, or null if it is unknown here.
+     */
+    @Nullable
+    public Party getOracle(@NotNull final UUID subscriptionId) {
+        return oracles.get(subscriptionId);
+    }
+
+    /**
+     * @return The latest notification of this subscription, or null if none was received.
+     */
+    @Nullable
+    public Notification getLatest(@NotNull final UUID subscriptionId) {
+        return latest.get(subscriptionId);
+    }
+
+    /**
+     * @return The notifications kept, as they are received. Emitted on the flow thread, so observers have to be quick.
+     */
+    @NotNull
+    public Observable<Notification> getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @return The number of notification batches received from oracles.
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * @return The number of notifications received, including the answers to subscribing.
+     */
+    public long getNotificationCount() {
+        return notificationCount.get();
+    }
+
+}
@@ -0,0 +1,341 @@
+package com.example.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.example.contract.TemperatureContract.Commands.HowWarm;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Instead of polling the temperature oracle, a node subscribes with bounds, and the oracle tells it when the
+ * temperature crosses into, or out of, them. See {@link TemperatureSubscriptions} on the oracle side and
+ * {@link TemperatureAlerts} on the subscriber side.
+ */
+@SuppressWarnings("unused")
+public interface TemperatureSubscriptionFlows {
+
+    /**
+     * What a subscriber asks for.
+     */
+    @CordaSerializable
+    class Terms {
+        @NotNull
+        private final UUID id;
+        @NotNull
+        private final HowWarm bounds;
+        @NotNull
+        private final Duration interval;
+
+        /**
+         * @param interval The minimum time between two notifications to the subscriber. The oracle coalesces the
+         *                 changes of all the subscriptions of a node within the shortest of their intervals.
+         */
+        public Terms(
+                @NotNull final UUID id,
+                @NotNull final HowWarm bounds,
+                @NotNull final Duration interval) {
+            //noinspection ConstantConditions
+            if (id == null) throw new NullPointerException("id cannot be null");
+            //noinspection ConstantConditions
+            if (bounds == null) throw new NullPointerException("bounds cannot be null");
+            //noinspection ConstantConditions
+            if (interval == null) throw new NullPointerException("interval cannot be null");
+            this.id = id;
+            this.bounds = bounds;
+            this.interval = interval;
+        }
+
+        @NotNull
+        public UUID getId() {
+            return id;
+        }
+
+        @NotNull
+        public HowWarm getBounds() {
+            return bounds;
+        }
+
+        @NotNull
+        public Duration getInterval() {
+            return interval;
+        }
+    }
+
+    /**
+     * Where the temperature stands relative to the bounds of a subscription.
+     */
+    @CordaSerializable
+    class Notification {
+        @NotNull
+        private final UUID subscriptionId;
+        private final long epochMillis;
+        @NotNull
+        private final BigDecimal temperature;
+        private final boolean inBounds;
+
+        public Notification(
+                @NotNull final UUID subscriptionId,
+                final long epochMillis,
+                @NotNull final BigDecimal temperature,
+                final boolean inBounds) {
+            //noinspection ConstantConditions
+            if (subscriptionId == null) throw new NullPointerException("subscriptionId cannot be null");
+            //noinspection ConstantConditions
+            if (temperature == null) throw new NullPointerException("temperature cannot be null");
+            this.subscriptionId = subscriptionId;
+            this.epochMillis = epochMillis;
+            this.temperature = temperature;
+            this.inBounds = inBounds;
+        }
+
+        @NotNull
+        public UUID getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        /**
+         * @return When the sample was taken.
+         */
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        @NotNull
+        public BigDecimal getTemperature() {
+            return temperature;
+        }
+
+        public boolean isInBounds() {
+            return inBounds;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Notification that = (Notification) o;
+            return epochMillis == that.epochMillis &&
+                    inBounds == that.inBounds &&
+                    subscriptionId.equals(that.subscriptionId) &&
+                    temperature.equals(that.temperature);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subscriptionId, epochMillis, temperature, inBounds);
+        }
+    }
+
+    interface Subscribe {
+
+        /**
+         * Its handler is {@link Answer}. Returns where the temperature stands when subscribing.
+         */
+        @InitiatingFlow
+        @StartableByRPC
+        class Request extends FlowLogic<Notification> {
+            @NotNull
+            private final Party oracle;
+            @NotNull
+            private final HowWarm bounds;
+            @NotNull
+            private final Duration interval;
+
+            public Request(
+                    @NotNull final Party oracle,
+                    @NotNull final HowWarm bounds,
+                    @NotNull final Duration interval) {
+                //noinspection ConstantConditions
+                if (oracle == null) throw new NullPointerException("oracle cannot be null");
+                //noinspection ConstantConditions
+                if (bounds == null) throw new NullPointerException("bounds cannot be null");
+                //noinspection ConstantConditions
+                if (interval == null) throw new NullPointerException("interval cannot be null");
+                this.oracle = oracle;
+                this.bounds = bounds;
+                this.interval = interval;
+            }
+
+            @Suspendable
+            @Override
+            public Notification call() throws FlowException {
+                final TemperatureAlerts alerts = getServiceHub().cordaService(TemperatureAlerts.class);
+                // Registered first, so that a notification overtaking the answer is not rejected.
+                final UUID id = UUID.randomUUID();
+                alerts.register(id, oracle);
+                final Notification current;
+                try {
+                    current = initiateFlow(oracle)
+                            .sendAndReceive(Notification.class, new Terms(id, bounds, interval))
+                            .unwrap(it -> {
+                                if (!it.getSubscriptionId().equals(id))
+                                    throw new FlowException("Answer does not match the subscription");
+                                return it;
+                            });
+                } catch (FlowException e) {
+                    alerts.unregister(id);
+                    throw e;
+                }
+                alerts.record(oracle, current);
+                return current;
+            }
+        }
+
+        @InitiatedBy(Request.class)
+        class Answer extends FlowLogic<Notification> {
+            @NotNull
+            private final FlowSession subscriberSession;
+
+            public Answer(@NotNull final FlowSession subscriberSession) {
+                //noinspection ConstantConditions
+                if (subscriberSession == null) throw new NullPointerException("subscriberSession cannot be null");
+                this.subscriberSession = subscriberSession;
+            }
+
+            @Suspendable
+            @Override
+            public Notification call() throws FlowException {
+                final Terms terms = subscriberSession.receive(Terms.class).unwrap(it -> it);
+                final Notification current;
+                try {
+                    current = getServiceHub().cordaService(TemperatureSubscriptions.class)
+                            .subscribe(subscriberSession.getCounterparty(), terms);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    throw new FlowException(e.getMessage(), e);
+                }
+                subscriberSession.send(current);
+                return current;
+            }
+        }
+
+    }
+
+    interface Unsubscribe {
+
+        /**
+         * Its handler is {@link Answer}.
+         */
+        @InitiatingFlow
+        @StartableByRPC
+        class Request extends FlowLogic<Void> {
+            @NotNull
+            private final UUID subscriptionId;
+
+            public Request(@NotNull final UUID subscriptionId) {
+                //noinspection ConstantConditions
+                if (subscriptionId == null) throw new NullPointerException("subscriptionId cannot be null");
+                this.subscriptionId = subscriptionId;
+            }
+
+            @Suspendable
+            @Override
+            public Void call() throws FlowException {
+                final TemperatureAlerts alerts = getServiceHub().cordaService(TemperatureAlerts.class);
+                final Party oracle = alerts.getOracle(subscriptionId);
+                if (oracle == null) throw new FlowException("Unknown subscription");
+                initiateFlow(oracle).sendAndReceive(Boolean.class, subscriptionId).unwrap(it -> it);
+                alerts.unregister(subscriptionId);
+                return null;
+            }
+        }
+
+        @InitiatedBy(Request.class)
+        class Answer extends FlowLogic<Boolean> {
+            @NotNull
+            private final FlowSession subscriberSession;
+
+            public Answer(@NotNull final FlowSession subscriberSession) {
+                //noinspection ConstantConditions
+                if (subscriberSession == null) throw new NullPointerException("subscriberSession cannot be null");
+                this.subscriberSession = subscriberSession;
+            }
+
+            @Suspendable
+            @Override
+            public Boolean call() throws FlowException {
+                final UUID id = subscriberSession.receive(UUID.class).unwrap(it -> it);
+                final boolean removed = getServiceHub().cordaService(TemperatureSubscriptions.class)
+                        .unsubscribe(subscriberSession.getCounterparty(), id);
+                subscriberSession.send(removed);
+                return removed;
+            }
+        }
+
+    }
+
+    interface Notify {
+
+        /**
+         * Started by the oracle with the coalesced changes for one subscriber. Its handler is {@link Receive}.
+         */
+        @InitiatingFlow
+        @StartableByService
+        class Send extends FlowLogic<Void> {
+            @NotNull
+            private final Party subscriber;
+            @NotNull
+            private final List<Notification> notifications;
+
+            public Send(
+                    @NotNull final Party subscriber,
+                    @NotNull final List<Notification> notifications) {
+                //noinspection ConstantConditions
+                if (subscriber == null) throw new NullPointerException("subscriber cannot be null");
+                //noinspection ConstantConditions
+                if (notifications == null) throw new NullPointerException("notifications cannot be null");
+                if (notifications.isEmpty()) throw new IllegalArgumentException("notifications cannot be empty");
+                this.subscriber = subscriber;
+                this.notifications = new ArrayList<>(notifications);
+            }
+
+            @Suspendable
+            @Override
+            public Void call() throws FlowException {
+                initiateFlow(subscriber).send(notifications);
+                return null;
+            }
+        }
+
+        @InitiatedBy(Send.class)
+        class Receive extends FlowLogic<Void> {
+            @NotNull
+            private final FlowSession oracleSession;
+
+            public Receive(@NotNull final FlowSession oracleSession) {
+                //noinspection ConstantConditions
+                if (oracleSession == null) throw new NullPointerException("oracleSession cannot be null");
+                this.oracleSession = oracleSession;
+            }
+
+            @Suspendable
+            @Override
+            public Void call() throws FlowException {
+                final List<Notification> notifications = oracleSession.receive(List.class).unwrap(it -> {
+                    final List<Notification> checked = new ArrayList<>(it.size());
+                    for (final Object element : it) {
+                        if (!(element instanceof Notification)) throw new FlowException("Unexpected notification");
+                        checked.add((Notification) element);
+                    }
+                    return checked;
+                });
+                final TemperatureAlerts alerts = getServiceHub().cordaService(TemperatureAlerts.class);
+                alerts.countMessage();
+                for (final Notification notification : notifications) {
+                    // Those of subscriptions made with another oracle, or since cancelled, are ignored.
+                    alerts.record(oracleSession.getCounterparty(), notification);
+                }
+                return null;
+            }
+        }
+
+    }
+
+}
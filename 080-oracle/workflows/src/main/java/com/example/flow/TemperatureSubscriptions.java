@@ -0,0 +1,281 @@
+package com.example.flow;
+
+import com.example.contract.TemperatureContract.Commands.HowWarm;
+import com.example.flow.TemperatureSubscriptionFlows.Notification;
+import com.example.flow.TemperatureSubscriptionFlows.Terms;
+import com.example.oracle.TemperatureOracle;
+import com.example.oracle.TemperatureOracleUtilities;
+import net.corda.core.identity.Party;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, on the temperature oracle, the subscriptions of other nodes. On each sample, it finds the subscriptions
+ * whose bounds were crossed. The changes for a subscriber are coalesced and sent in one {@link
+ * TemperatureSubscriptionFlows.Notify.Send} at most once per its shortest interval. A subscription that crosses back
+ * before it is sent is not sent at all.
+ * <p>
+ * Subscriptions are kept in memory only, so subscribers have to subscribe again after the oracle restarts.
+ */
+@CordaService
+public class TemperatureSubscriptions extends SingletonSerializeAsToken {
+
+    private final static Logger log = LoggerFactory.getLogger(TemperatureSubscriptions.class);
+
+    public static final Duration MIN_INTERVAL = Duration.ofMillis(100);
+
+    @NotNull
+    private final AppServiceHub serviceHub;
+    /**
+     * Map key: the subscriber.
+     */
+    @NotNull
+    private final ConcurrentMap<Party, Subscriber> subscribers = new ConcurrentHashMap<>();
+    @NotNull
+    private final ScheduledExecutorService notifier = Executors.newSingleThreadScheduledExecutor(it -> {
+        final Thread thread = new Thread(it, "temperature-notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The oracle is only listened to once there is a subscription.
+    @NotNull
+    private final AtomicBoolean listening = new AtomicBoolean();
+    @NotNull
+    private final AtomicLong messageCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong notificationCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private static class Subscription {
+        @NotNull
+        final UUID id;
+        @NotNull
+        final HowWarm bounds;
+        final long intervalMillis;
+        // Written by the thread of the temperature source, and when subscribing under the subscriber lock.
+        volatile boolean inBounds;
+        /**
+         * What the subscriber was last told. Guarded by the subscriber.
+         */
+        boolean sentInBounds;
+
+        Subscription(
+                @NotNull final UUID id,
+                @NotNull final HowWarm bounds,
+                final long intervalMillis,
+                final boolean inBounds) {
+            this.id = id;
+            this.bounds = bounds;
+            this.intervalMillis = intervalMillis;
+            this.inBounds = inBounds;
+            this.sentInBounds = inBounds;
+        }
+    }
+
+    private class Subscriber {
+        @NotNull
+        final Party party;
+        /**
+         * Map key: subscription id.
+         */
+        @NotNull
+        final ConcurrentMap<UUID, Subscription> subscriptions = new ConcurrentHashMap<>();
+        /**
+         * Map key: subscription id. Guarded by this.
+         */
+        @NotNull
+        final Map<UUID, Notification> pending = new LinkedHashMap<>();
+        // The shortest of the intervals of the subscriptions. Guarded by this.
+        long intervalMillis = Long.MAX_VALUE;
+        long lastSentMillis = System.currentTimeMillis();
+        boolean scheduled = false;
+
+        Subscriber(@NotNull final Party party) {
+            this.party = party;
+        }
+
+        synchronized void offer(@NotNull final Subscription subscription, @NotNull final Notification notification) {
+            final boolean replaced = pending.remove(subscription.id) != null;
+            if (replaced) coalescedCount.incrementAndGet();
+            // Back to what the subscriber knows, there is nothing to tell.
+            if (notification.isInBounds() == subscription.sentInBounds) return;
+            pending.put(subscription.id, notification);
+            if (scheduled) return;
+            scheduled = true;
+            final long delay = Math.max(0, lastSentMillis + intervalMillis - System.currentTimeMillis());
+            notifier.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+
+        void flush() {
+            final List<Notification> toSend;
+            synchronized (this) {
+                scheduled = false;
+                if (pending.isEmpty()) return;
+                toSend = new ArrayList<>(pending.values());
+                for (final Notification notification : toSend) {
+                    final Subscription subscription = subscriptions.get(notification.getSubscriptionId());
+                    if (subscription != null) subscription.sentInBounds = notification.isInBounds();
+                }
+                pending.clear();
+                lastSentMillis = System.currentTimeMillis();
+            }
+            messageCount.incrementAndGet();
+            notificationCount.addAndGet(toSend.size());
+            serviceHub.startFlow(new TemperatureSubscriptionFlows.Notify.Send(party, toSend))
+                    .getReturnValue()
+                    .then(it -> {
+                        try {
+                            it.get();
+                        } catch (InterruptedException | ExecutionException e) {
+                            log.warn("Failed to notify " + party + " of " + toSend.size() + " changes", e);
+                        }
+                        return null;
+                    });
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public TemperatureSubscriptions(@NotNull final AppServiceHub serviceHub) {
+        //noinspection ConstantConditions
+        if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
+        this.serviceHub = serviceHub;
+    }
+
+    /**
+     * @return Where the temperature stands for the new subscription.
+     * @throws IllegalArgumentException When the interval is too short.
+     * @throws IllegalStateException    When there is no temperature yet, or the subscription already exists.
+     */
+    @NotNull
+    public Notification subscribe(@NotNull final Party subscriberParty, @NotNull final Terms terms) {
+        //noinspection ConstantConditions
+        if (subscriberParty == null) throw new NullPointerException("subscriberParty cannot be null");
+        //noinspection ConstantConditions
+        if (terms == null) throw new NullPointerException("terms cannot be null");
+        if (terms.getInterval().compareTo(MIN_INTERVAL) < 0)
+            throw new IllegalArgumentException("The interval cannot be shorter than " + MIN_INTERVAL);
+        final TemperatureOracle oracle = serviceHub.cordaService(TemperatureOracle.class);
+        if (listening.compareAndSet(false, true)) oracle.addListener(this::onSample);
+        while (true) {
+            final Subscriber subscriber = subscribers.computeIfAbsent(subscriberParty, Subscriber::new);
+            synchronized (subscriber) {
+                // Dropped by the last unsubscribe in the meantime.
+                if (subscribers.get(subscriberParty) != subscriber) continue;
+                try {
+                    final BigDecimal current = oracle.getCurrentTemperature();
+                    if (current == null) throw new IllegalStateException("No temperature yet");
+                    final boolean inBounds = terms.getBounds().contains(
+                            TemperatureOracleUtilities.toReading(current, RoundingMode.UNNECESSARY));
+                    final long intervalMillis = terms.getInterval().toMillis();
+                    final Subscription subscription = new Subscription(
+                            terms.getId(), terms.getBounds(), intervalMillis, inBounds);
+                    if (subscriber.subscriptions.putIfAbsent(terms.getId(), subscription) != null)
+                        throw new IllegalStateException("Subscription already exists");
+                    subscriber.intervalMillis = Math.min(subscriber.intervalMillis, intervalMillis);
+                    return new Notification(terms.getId(), System.currentTimeMillis(), current, inBounds);
+                } catch (RuntimeException e) {
+                    // Not left in the map empty, when it was created for this subscription.
+                    if (subscriber.subscriptions.isEmpty()) subscribers.remove(subscriberParty, subscriber);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether the subscription existed.
+     */
+    public boolean unsubscribe(@NotNull final Party subscriberParty, @NotNull final UUID subscriptionId) {
+        final Subscriber subscriber = subscribers.get(subscriberParty);
+        if (subscriber == null) return false;
+        synchronized (subscriber) {
+            subscriber.pending.remove(subscriptionId);
+            if (subscriber.subscriptions.remove(subscriptionId) == null) return false;
+            if (subscriber.subscriptions.isEmpty()) {
+                subscriber.pending.clear();
+                subscribers.remove(subscriberParty, subscriber);
+            } else {
+                // The one removed may have been the shortest.
+                subscriber.intervalMillis = subscriber.subscriptions.values().stream()
+                        .mapToLong(it -> it.intervalMillis)
+                        .min()
+                        .getAsLong();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Called on the thread of the temperature source.
+     */
+    private void onSample(final long epochMillis, final long reading) {
+        final BigDecimal temperature = TemperatureOracleUtilities.toDegrees(reading);
+        for (final Subscriber subscriber : subscribers.values()) {
+            for (final Subscription subscription : subscriber.subscriptions.values()) {
+                final boolean inBounds = subscription.bounds.contains(reading);
+                if (inBounds == subscription.inBounds) continue;
+                subscription.inBounds = inBounds;
+                subscriber.offer(subscription, new Notification(subscription.id, epochMillis, temperature, inBounds));
+            }
+        }
+    }
+
+    /**
+     * @return The number of nodes with at least one subscription.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return The shortest interval of the subscriptions of the subscriber, or null if it has none.
+     */
+    @Nullable
+    Duration getInterval(@NotNull final Party subscriberParty) {
+        final Subscriber subscriber = subscribers.get(subscriberParty);
+        if (subscriber == null) return null;
+        synchronized (subscriber) {
+            return Duration.ofMillis(subscriber.intervalMillis);
+        }
+    }
+
+    public int getSubscriptionCount() {
+        return subscribers.values().stream().mapToInt(it -> it.subscriptions.size()).sum();
+    }
+
+    /**
+     * @return The number of notification flows started, one per subscriber and interval at most.
+     */
+    public long getMessageCount() {
+        return messageCount.get();
+    }
+
+    /**
+     * @return The number of notifications sent in those flows.
+     */
+    public long getNotificationCount() {
+        return notificationCount.get();
+    }
+
+    /**
+     * @return The number of crossings superseded by a later one before they were sent.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable matrix of rates between currencies, kept as dense integer indices over primitive doubles.
+ * A leg is a published rate, or the inverse of the published rate in the other direction when there is none. The
+ * cross rate of a pair is its leg if it has one, otherwise the best, i.e. highest, product of 2 legs through any
+ * other currency. When a leg changes, only the rows and columns of its 2 currencies are recomputed, in O(n^2).
+ * <p>
+ * {@link BigDecimal} only appears at the boundary, when a cross rate is handed out.
+ */
+class FxCrossRates {
+
+    public static final int RATE_SCALE = 6;
+    static final FxCrossRates EMPTY = new FxCrossRates(Collections.emptyMap(), new double[0][0], new double[0][0]);
+
+    @NotNull
+    private final Map<TokenType, Integer> indices;
+    // NaN when absent.
+    @NotNull
+    private final double[][] published;
+    // NaN when there is no path of at most 2 legs.
+    @NotNull
+    private final double[][] cross;
+
+    private FxCrossRates(
+            @NotNull final Map<TokenType, Integer> indices,
+            @NotNull final double[][] published,
+            @NotNull final double[][] cross) {
+        this.indices = indices;
+        this.published = published;
+        this.cross = cross;
+    }
+
+    int size() {
+        return indices.size();
+    }
+
+    /**
+     * @return The dense index of the currency, or -1 if it is unknown.
+     */
+    int indexOf(@NotNull final TokenType currency) {
+        final Integer index = indices.get(currency);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return The cross rate, or NaN if there is none.
+     */
+    double rate(final int base, final int counter) {
+        return cross[base][counter];
+    }
+
+    /**
+     * @return The cross rate rounded to {@link #RATE_SCALE}, or null if there is none.
+     */
+    @Nullable
+    BigDecimal rate(@NotNull final TokenType base, @NotNull final TokenType counter) {
+        final int baseIndex = indexOf(base);
+        final int counterIndex = indexOf(counter);
+        if (baseIndex < 0 || counterIndex < 0 || baseIndex == counterIndex) return null;
+        final double rate = cross[baseIndex][counterIndex];
+        if (Double.isNaN(rate)) return null;
+        return BigDecimal.valueOf(rate).setScale(RATE_SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Copy on write, then incremental recomputation around the currencies of the updated legs.
+     */
+    @NotNull
+    FxCrossRates with(@NotNull final List<FxRateUpdate> updates) {
+        final Map<TokenType, Integer> newIndices = new HashMap<>(indices);
+        for (final FxRateUpdate update : updates) {
+            newIndices.putIfAbsent(update.getPair().getKey(), newIndices.size());
+            newIndices.putIfAbsent(update.getPair().getValue(), newIndices.size());
+        }
+        final int n = newIndices.size();
+        final double[][] newPublished = copy(published, n);
+        final double[][] newCross = copy(cross, n);
+        final boolean[] touched = new boolean[n];
+        for (final FxRateUpdate update : updates) {
+            final int base = newIndices.get(update.getPair().getKey());
+            final int counter = newIndices.get(update.getPair().getValue());
+            if (base == counter) continue;
+            newPublished[base][counter] = update.getRate().doubleValue();
+            touched[base] = true;
+            touched[counter] = true;
+        }
+        for (int i = 0; i < n; i++) {
+            if (touched[i]) recomputeAround(newPublished, newCross, i);
+        }
+        return new FxCrossRates(Collections.unmodifiableMap(newIndices), newPublished, newCross);
+    }
+
+    @NotNull
+    private static double[][] copy(@NotNull final double[][] from, final int n) {
+        final double[][] to = new double[n][];
+        for (int i = 0; i < n; i++) {
+            to[i] = new double[n];
+            Arrays.fill(to[i], Double.NaN);
+            if (i < from.length) System.arraycopy(from[i], 0, to[i], 0, from[i].length);
+            to[i][i] = 1.0;
+        }
+        return to;
+    }
+
+    /**
+     * When a leg of currency i changed, any pair whose path starts or ends at i may have too. No other pair does,
+     * as paths have at most 2 legs.
+     */
+    private static void recomputeAround(
+            @NotNull final double[][] published,
+            @NotNull final double[][] cross,
+            final int i) {
+        final int n = published.length;
+        for (int k = 0; k < n; k++) {
+            cross[i][k] = best(published, i, k);
+            cross[k][i] = best(published, k, i);
+        }
+    }
+
+    private static double best(@NotNull final double[][] published, final int from, final int to) {
+        if (from == to) return 1.0;
+        final double direct = leg(published, from, to);
+        if (!Double.isNaN(direct)) return direct;
+        double best = Double.NaN;
+        for (int via = 0; via < published.length; via++) {
+            if (via == from || via == to) continue;
+            final double candidate = leg(published, from, via) * leg(published, via, to);
+            // A NaN candidate compares false, so it never replaces a real one.
+            if (Double.isNaN(best) || best < candidate) best = candidate;
+        }
+        return best;
+    }
+
+    private static double leg(@NotNull final double[][] published, final int from, final int to) {
+        final double direct = published[from][to];
+        if (!Double.isNaN(direct)) return direct;
+        return 1.0 / published[to][from];
+    }
+
+}
@@ -1,10 +1,12 @@
 package com.example.oracle;
 
 import com.example.contract.FxContract.Commands.Swap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.r3.corda.lib.tokens.contracts.types.TokenType;
-import com.r3.corda.lib.tokens.money.FiatCurrency;
 import javafx.util.Pair;
+import kotlin.Unit;
 import net.corda.core.contracts.Command;
+import net.corda.core.cordapp.CordappConfig;
 import net.corda.core.crypto.TransactionSignature;
 import net.corda.core.node.AppServiceHub;
 import net.corda.core.node.services.CordaService;
@@ -15,26 +17,73 @@ import net.corda.core.transactions.FilteredTransactionVerificationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.security.PublicKey;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @CordaService
 public class FxOracle extends SingletonSerializeAsToken {
 
     public static final Duration VALID_DURATION = Duration.ofSeconds(20);
-    public static final int POP_COUNT = 2;
+    /**
+     * When this base64 secret is found in the CorDapp config, the oracle runs stateless: it does not keep the quotes
+     * it sends, but authenticates them instead. All oracle instances with the same secret honour each other's quotes.
+     */
+    public static final String MAC_KEY_CONFIG = "fxQuoteMacKey";
+    /**
+     * When this file path is found in the CorDapp config, the rates are replayed from it.
+     * See {@link ReplayFxRateSource} for the format.
+     */
+    public static final String RATE_REPLAY_FILE_CONFIG = "fxRateReplayFile";
+    /**
+     * When this directory path is found in the CorDapp config, and the oracle is not stateless, the quotes sent are
+     * journaled there so that they are still honoured after a restart. See {@link FxQuoteJournal}.
+     */
+    public static final String QUOTE_JOURNAL_DIR_CONFIG = "fxQuoteJournalDir";
+    /**
+     * How often, in milliseconds, the journaled quotes are forced to disk, 0 to force each one before it is sent.
+     * Until then, they survive a crash of the node but not of its machine.
+     */
+    public static final String QUOTE_JOURNAL_FORCE_CONFIG = "fxQuoteJournalForceMillis";
+    /**
+     * The window, in milliseconds, within which concurrent requests for the same pair share one quote.
+     * Zero disables sharing.
+     */
+    public static final String COALESCE_WINDOW_CONFIG = "fxQuoteCoalesceMillis";
+    public static final Duration DEFAULT_COALESCE_WINDOW = Duration.ofMillis(100);
+    public static final int SIGN_THREAD_COUNT = 4;
+    private static final int SIGN_QUEUE_CAPACITY = 256;
 
     private final AppServiceHub serviceHub;
     private final PublicKey oracleKey;
-    // For simplicity, the oracle is storing the FX rates in a map.
-    private final Map<Pair<TokenType, TokenType>, BigDecimal> rates = new HashMap<>(10);
-    private final Map<FxQuote, Boolean> sentQuotesMap = new HashMap<>(10);
-    private final LinkedList<FxQuote> sentQuotes = new LinkedList<>();
+    // Swapped whole on each batch of updates so that quote readers never lock.
+    private final AtomicReference<FxRateSnapshot> rates = new AtomicReference<>(FxRateSnapshot.EMPTY);
+    @NotNull
+    private FxRateSource rateSource;
+    private final FxQuoteRegistry sentQuotes = new FxQuoteRegistry(VALID_DURATION);
+    @Nullable
+    private final FxQuoteAuthenticator authenticator;
+    @Nullable
+    private final FxQuoteJournal journal;
+    @NotNull
+    private final FxQuoteCoalescer coalescer;
+    @NotNull
+    private final AtomicLong quoteRequestCount = new AtomicLong();
+    // When the queue is full, the thread calling signAll verifies by itself.
+    private final ExecutorService signingPool = new ThreadPoolExecutor(
+            SIGN_THREAD_COUNT, SIGN_THREAD_COUNT, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(SIGN_QUEUE_CAPACITY),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("fx-oracle-sign-%d").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
 
     @SuppressWarnings("unused")
     public FxOracle(@NotNull final AppServiceHub serviceHub) {
@@ -42,7 +91,66 @@ public class FxOracle extends SingletonSerializeAsToken {
         if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
         this.serviceHub = serviceHub;
         oracleKey = serviceHub.getMyInfo().getLegalIdentities().get(0).getOwningKey();
-        loadRates();
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        authenticator = config.exists(MAC_KEY_CONFIG)
+                ? new FxQuoteAuthenticator(Base64.getDecoder().decode(config.getString(MAC_KEY_CONFIG)))
+                : null;
+        try {
+            // Replays the unexpired quotes into the registry before any new one is sent.
+            journal = authenticator == null && config.exists(QUOTE_JOURNAL_DIR_CONFIG)
+                    ? new FxQuoteJournal(
+                    Paths.get(config.getString(QUOTE_JOURNAL_DIR_CONFIG)),
+                    FxQuoteJournal.DEFAULT_RECORDS_PER_SEGMENT,
+                    config.exists(QUOTE_JOURNAL_FORCE_CONFIG)
+                            ? Duration.ofMillis(config.getLong(QUOTE_JOURNAL_FORCE_CONFIG))
+                            : FxQuoteJournal.DEFAULT_FORCE_INTERVAL,
+                    sentQuotes::register)
+                    : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the quote journal", e);
+        }
+        if (journal != null) serviceHub.registerUnloadHandler(() -> {
+            journal.close();
+            return Unit.INSTANCE;
+        });
+        coalescer = new FxQuoteCoalescer(config.exists(COALESCE_WINDOW_CONFIG)
+                ? Duration.ofMillis(config.getLong(COALESCE_WINDOW_CONFIG))
+                : DEFAULT_COALESCE_WINDOW);
+        rateSource = config.exists(RATE_REPLAY_FILE_CONFIG)
+                ? new ReplayFxRateSource(Paths.get(config.getString(RATE_REPLAY_FILE_CONFIG)), true)
+                : new StaticFxRateSource();
+        rateSource.start(this::onRateUpdates);
+    }
+
+    /**
+     * Replaces the current rate source. The rates already received are kept.
+     */
+    public synchronized void useRateSource(@NotNull final FxRateSource newSource) {
+        //noinspection ConstantConditions
+        if (newSource == null) throw new NullPointerException("newSource cannot be null");
+        rateSource.close();
+        rateSource = newSource;
+        newSource.start(this::onRateUpdates);
+    }
+
+    private void onRateUpdates(@NotNull final List<FxRateUpdate> updates) {
+        rates.updateAndGet(it -> it.with(updates));
+    }
+
+    /**
+     * @return The version of the rates in use, incremented on each batch of updates.
+     */
+    public long getRateSnapshotVersion() {
+        return rates.get().getVersion();
+    }
+
+    /**
+     * @return How long the last batch of rate updates took to become visible to quotes, since the oldest of them was
+     * published by its source.
+     */
+    @NotNull
+    public Duration getRateUpdateLag() {
+        return rates.get().getUpdateLag();
     }
 
     /**
@@ -55,21 +163,76 @@ public class FxOracle extends SingletonSerializeAsToken {
 
     @Nullable
     public FxQuote getQuote(@NotNull final Pair<TokenType, TokenType> pair) {
-        /*
-         * This simplified example assumes that the oracle has all of the possible FX rates stored in a map.
-         * In a real-world scenario, this would probably be an API call.
-         */
+        quoteRequestCount.incrementAndGet();
+        return quote(pair);
+    }
+
+    @Nullable
+    private FxQuote quote(@NotNull final Pair<TokenType, TokenType> pair) {
+        // The latest snapshot pushed by the rate source. No lock taken.
+        final FxRateSnapshot snapshot = rates.get();
+        return coalescer.getOrCreate(pair, snapshot.getVersion(), () -> createQuote(snapshot, pair));
+    }
+
+    @Nullable
+    private FxQuote createQuote(
+            @NotNull final FxRateSnapshot snapshot,
+            @NotNull final Pair<TokenType, TokenType> pair) {
+        final BigDecimal rate = snapshot.get(pair);
+        if (rate == null) return null;
         final FxQuote quote = new FxQuote(
                 pair.getKey(),
                 pair.getValue(),
-                rates.get(pair),
-                Instant.now().plus(VALID_DURATION));
-        popOldQuotes(POP_COUNT);
-        sentQuotes.addLast(quote);
-        sentQuotesMap.put(quote, true);
+                rate,
+                // So that it fits the compact form it takes in a swap.
+                Instant.now().plus(VALID_DURATION).truncatedTo(ChronoUnit.MILLIS));
+        if (authenticator != null) return authenticator.authenticate(quote);
+        sentQuotes.register(quote);
+        if (journal != null) journal.append(quote);
         return quote;
     }
 
+    /**
+     * Called when the oracle is requested to provide FX quotes for many pairs at once.
+     * @return The quotes, in the order of the pairs, or null if any pair is unavailable.
+     */
+    @Nullable
+    public List<FxQuote> getQuotes(@NotNull final Collection<Pair<TokenType, TokenType>> pairs) {
+        quoteRequestCount.incrementAndGet();
+        final List<FxQuote> quotes = new ArrayList<>(pairs.size());
+        for (final Pair<TokenType, TokenType> pair : pairs) {
+            final FxQuote quote = quote(pair);
+            if (quote == null) return null;
+            quotes.add(quote);
+        }
+        return quotes;
+    }
+
+    /**
+     * @return How many requests for quotes were received, a request for many pairs counting as one.
+     */
+    public long getQuoteRequestCount() {
+        return quoteRequestCount.get();
+    }
+
+    /**
+     * @return How many quote requests were handed a quote already sent to a concurrent request.
+     */
+    public long getCoalescedQuoteCount() {
+        return coalescer.getCoalescedCount();
+    }
+
+    /**
+     * @return How many quotes were created.
+     */
+    public long getNewQuoteCount() {
+        return coalescer.getCreatedCount();
+    }
+
+    public boolean isStateless() {
+        return authenticator != null;
+    }
+
     /**
      * Called when the oracle is requested to sign over a FX rate.
      */
@@ -92,6 +255,30 @@ public class FxOracle extends SingletonSerializeAsToken {
         return serviceHub.createSignature(ftx, oracleKey);
     }
 
+    /**
+     * Called when the oracle is requested to sign over many FX rates at once. The Merkle proofs are verified in
+     * parallel, and a transaction that fails does not fail the others. This blocks until all are done, so a flow
+     * calls it through {@link net.corda.core.flows.FlowLogic#await} rather than on its own thread.
+     * @return The outcomes, in the order of the transactions.
+     */
+    @NotNull
+    public List<FxSignOutcome> signAll(@NotNull final List<FilteredTransaction> ftxs) {
+        final List<Future<TransactionSignature>> futures = new ArrayList<>(ftxs.size());
+        for (final FilteredTransaction ftx : ftxs) futures.add(signingPool.submit(() -> sign(ftx)));
+        final List<FxSignOutcome> outcomes = new ArrayList<>(ftxs.size());
+        for (final Future<TransactionSignature> future : futures) {
+            try {
+                outcomes.add(FxSignOutcome.success(future.get()));
+            } catch (ExecutionException e) {
+                outcomes.add(FxSignOutcome.failure(e.getCause().toString()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while signing", e);
+            }
+        }
+        return outcomes;
+    }
+
     /**
      * Passed the visible elements found in the filtered transaction.
      */
@@ -100,46 +287,19 @@ public class FxOracle extends SingletonSerializeAsToken {
         if (elem instanceof Command && ((Command) elem).getValue() instanceof Swap) {
             //noinspection rawtypes
             final Swap cmdData = (Swap) ((Command) elem).getValue();
-            final FxQuote quote = cmdData.getQuote();
-            final Boolean isMyQuote = sentQuotesMap.get(quote);
             // Check that the oracle is a required signer.
             //noinspection rawtypes
             return ((Command) elem).getSigners().contains(oracleKey)
                     // Check that the enclosed quote was indeed provided by the oracle.
-                    && isMyQuote != null
-                    && isMyQuote;
+                    && isMyQuote(cmdData.getQuote());
         }
         // We don't want to jinx checkCommandVisibility.
         return false;
     }
 
-    /**
-     * On-going cleanup.
-     */
-    private void popOldQuotes(@SuppressWarnings("SameParameterValue") int countLeft) {
-        while (0 < countLeft) {
-            final FxQuote old = sentQuotes.peekFirst();
-            if (old != null && old.getExpirationDate().isBefore(Instant.now())) {
-                sentQuotes.removeFirst();
-                sentQuotesMap.remove(old);
-                countLeft--;
-            } else {
-                countLeft = 0;
-            }
-        }
-
+    private boolean isMyQuote(@NotNull final FxQuote quote) {
+        if (authenticator == null) return sentQuotes.contains(quote);
+        return authenticator.isAuthentic(quote) && Instant.now().isBefore(quote.getExpirationDate());
     }
 
-    // Dummy data.
-    private void loadRates() {
-        this.rates.put(createPair("USD", "CAD"), BigDecimal.valueOf(1.39));
-        this.rates.put(createPair("CAD", "USD"), BigDecimal.valueOf(0.72));
-    }
-
-    @NotNull
-    private Pair<TokenType, TokenType> createPair(
-            @NotNull final String base, @NotNull final String counter) {
-        return new Pair<>(FiatCurrency.Companion.getInstance(base),
-                FiatCurrency.Companion.getInstance(counter));
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import net.corda.core.utilities.OpaqueBytes;
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ * Computes and checks the MAC over (base, counter, rate, expiry) of a quote. With it, the oracle does not need to
+ * keep the quotes it sent, and all oracle instances that share the same secret honour each other's quotes.
+ */
+class FxQuoteAuthenticator {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @NotNull
+    private final SecretKeySpec secret;
+
+    FxQuoteAuthenticator(@NotNull final byte[] secret) {
+        //noinspection ConstantConditions
+        if (secret == null) throw new NullPointerException("secret cannot be null");
+        if (secret.length < 16) throw new IllegalArgumentException("secret must be at least 16 bytes");
+        this.secret = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    /**
+     * @return The same quote, carrying its MAC.
+     */
+    @NotNull
+    FxQuote authenticate(@NotNull final FxQuote quote) {
+        return new FxQuote(quote.getBase(), quote.getCounter(), quote.getRate(), quote.getExpirationDate(),
+                new OpaqueBytes(mac(quote)));
+    }
+
+    /**
+     * @return Whether the quote carries a MAC made with the same secret. It says nothing about expiry.
+     */
+    boolean isAuthentic(@NotNull final FxQuote quote) {
+        final OpaqueBytes received = quote.getMac();
+        // Constant time comparison.
+        return received != null && MessageDigest.isEqual(mac(quote), received.getBytes());
+    }
+
+    @NotNull
+    private byte[] mac(@NotNull final FxQuote quote) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            writeTokenType(out, quote.getBase());
+            writeTokenType(out, quote.getCounter());
+            final byte[] unscaled = quote.getRate().unscaledValue().toByteArray();
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+            out.writeInt(quote.getRate().scale());
+            out.writeLong(quote.getExpirationDate().getEpochSecond());
+            out.writeInt(quote.getExpirationDate().getNano());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secret);
+            return mac.doFinal(bytes.toByteArray());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot compute " + ALGORITHM, e);
+        }
+    }
+
+    private static void writeTokenType(
+            @NotNull final DataOutputStream out,
+            @NotNull final TokenType type) throws IOException {
+        out.writeUTF(type.getTokenIdentifier());
+        out.writeInt(type.getFractionDigits());
+    }
+
+}
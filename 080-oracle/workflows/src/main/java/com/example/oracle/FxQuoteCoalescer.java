@@ -0,0 +1,131 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import javafx.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent requests for the same pair share one quote. A quote is handed out again while it is younger than
+ * the window and the rates it was made from are not older than those seen by the request. Only one request creates
+ * the quote, outside of the map, and the others of the same pair wait for it instead of creating their own.
+ */
+class FxQuoteCoalescer {
+
+    private final long windowMillis;
+    @NotNull
+    private final ConcurrentMap<Pair<TokenType, TokenType>, Shared> latest = new ConcurrentHashMap<>();
+    @NotNull
+    private final AtomicLong coalescedCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private static class Shared {
+        /**
+         * Completed with null when the pair is unavailable.
+         */
+        @NotNull
+        final CompletableFuture<FxQuote> quote = new CompletableFuture<>();
+        final long rateVersion;
+        final long createdAtMillis;
+
+        Shared(final long rateVersion, final long createdAtMillis) {
+            this.rateVersion = rateVersion;
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        boolean canServe(final long requestedVersion, final long now, final long windowMillis) {
+            return requestedVersion <= rateVersion && now - createdAtMillis < windowMillis;
+        }
+    }
+
+    /**
+     * @param window How long a quote can be shared. Zero disables sharing.
+     */
+    FxQuoteCoalescer(@NotNull final Duration window) {
+        //noinspection ConstantConditions
+        if (window == null) throw new NullPointerException("window cannot be null");
+        if (window.isNegative()) throw new IllegalArgumentException("window cannot be negative");
+        this.windowMillis = window.toMillis();
+    }
+
+    /**
+     * @param rateVersion The version of the rates the creator reads from.
+     * @param creator     Makes a new quote, or returns null if the pair is unavailable.
+     * @return The shared quote, or a new one.
+     */
+    @Nullable
+    FxQuote getOrCreate(
+            @NotNull final Pair<TokenType, TokenType> pair,
+            final long rateVersion,
+            @NotNull final Supplier<FxQuote> creator) {
+        if (windowMillis == 0) return create(creator);
+        while (true) {
+            final long now = System.currentTimeMillis();
+            final Shared current = latest.get(pair);
+            if (current != null && current.canServe(rateVersion, now, windowMillis)) {
+                // Waits for the creator of the pair, if still at work. Other pairs are not held up.
+                final FxQuote quote = join(current);
+                if (quote != null) coalescedCount.incrementAndGet();
+                return quote;
+            }
+            final Shared mine = new Shared(rateVersion, now);
+            final boolean claimed = current == null
+                    ? latest.putIfAbsent(pair, mine) == null
+                    : latest.replace(pair, current, mine);
+            // Another request got there first, whose quote may serve this one.
+            if (!claimed) continue;
+            final FxQuote quote;
+            try {
+                quote = create(creator);
+            } catch (RuntimeException e) {
+                latest.remove(pair, mine);
+                mine.quote.completeExceptionally(e);
+                throw e;
+            }
+            if (quote == null) latest.remove(pair, mine);
+            mine.quote.complete(quote);
+            return quote;
+        }
+    }
+
+    @Nullable
+    private static FxQuote join(@NotNull final Shared shared) {
+        try {
+            return shared.quote.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    @Nullable
+    private FxQuote create(@NotNull final Supplier<FxQuote> creator) {
+        final FxQuote quote = creator.get();
+        if (quote != null) createdCount.incrementAndGet();
+        return quote;
+    }
+
+    /**
+     * @return How many requests were handed a quote created for another request.
+     */
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return How many quotes were created.
+     */
+    long getCreatedCount() {
+        return createdCount.get();
+    }
+
+}
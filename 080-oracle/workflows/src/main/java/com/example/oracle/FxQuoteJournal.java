@@ -0,0 +1,411 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the quotes sent, so that they survive a restart of the node. It is made of
+ * memory-mapped segments of fixed-width records. A segment is deleted once it is full, or recovered, all its quotes
+ * have expired and no writer is still in flight on it. This is checked on each rollover, and every
+ * {@link #PURGE_INTERVAL} for the segments no longer written to.
+ * <p>
+ * A record is in the page cache once {@link #append} returns, so it survives a crash of the process. It survives a
+ * crash of the OS, or a power failure, only once its segment is forced to disk: before {@link #append} returns when
+ * the force interval is zero, otherwise within the force interval, and on {@link #close()}.
+ * <p>
+ * Only quotes on plain {@link TokenType}s with identifiers of at most {@link #MAX_IDENTIFIER_LENGTH} ASCII characters,
+ * and rates whose unscaled value fits in a long, are journaled. Others are only kept in memory.
+ */
+class FxQuoteJournal implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(FxQuoteJournal.class);
+
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 16_384;
+    public static final Duration DEFAULT_FORCE_INTERVAL = Duration.ofMillis(100);
+    static final Duration PURGE_INTERVAL = Duration.ofSeconds(1);
+    public static final int MAX_IDENTIFIER_LENGTH = 8;
+    /*
+     * Record layout, 48 bytes:
+     * 0  valid marker, written last
+     * 1  base fraction digits
+     * 2  counter fraction digits
+     * 3  rate scale
+     * 4  base identifier, ASCII, zero-padded
+     * 12 counter identifier, ASCII, zero-padded
+     * 20 rate unscaled value
+     * 28 expiration epoch seconds
+     * 36 expiration nanos
+     * 40 CRC32 of bytes 1 to 39
+     * 44 padding
+     */
+    static final int RECORD_SIZE = 48;
+    private static final byte VALID = 1;
+    private static final int CRC_OFFSET = 40;
+    private static final String SEGMENT_PREFIX = "quotes-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @NotNull
+    private final Path directory;
+    private final int recordsPerSegment;
+    /**
+     * Map key: segment number.
+     */
+    @NotNull
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    /**
+     * The next slot to write, across all segments.
+     */
+    @NotNull
+    private final AtomicLong nextSlot;
+    private final boolean forceEachAppend;
+    @NotNull
+    private final ScheduledExecutorService timer;
+
+    private static class Segment {
+        @NotNull
+        final Path file;
+        @NotNull
+        final MappedByteBuffer buffer;
+        @NotNull
+        final AtomicLong maxExpiryMillis = new AtomicLong(Long.MIN_VALUE);
+        /**
+         * The writers that entered and have not completed their record yet, or -1 once the segment is purged.
+         */
+        @NotNull
+        final AtomicInteger writersInFlight = new AtomicInteger();
+        /**
+         * Whether a record was written since the segment was last forced.
+         */
+        @NotNull
+        final AtomicBoolean dirty = new AtomicBoolean();
+
+        Segment(@NotNull final Path file, @NotNull final MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return Whether the writer may go on, false if the segment is purged.
+         */
+        boolean enter() {
+            int current;
+            do {
+                current = writersInFlight.get();
+                if (current < 0) return false;
+            } while (!writersInFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void exit() {
+            writersInFlight.decrementAndGet();
+        }
+
+        /**
+         * @return Whether the segment is now closed to writers, false if one is still in flight.
+         */
+        boolean retire() {
+            return writersInFlight.compareAndSet(0, -1);
+        }
+    }
+
+    /**
+     * Opens the journal, replays the quotes that have not expired yet and deletes the segments that have.
+     *
+     * @param forceInterval How often the segments written to are forced to disk, 0 to force on each append.
+     * @param recovered     Receives the quotes found that have not expired yet.
+     */
+    FxQuoteJournal(
+            @NotNull final Path directory,
+            final int recordsPerSegment,
+            @NotNull final Duration forceInterval,
+            @NotNull final Consumer<FxQuote> recovered) throws IOException {
+        //noinspection ConstantConditions
+        if (directory == null) throw new NullPointerException("directory cannot be null");
+        if (recordsPerSegment <= 0) throw new IllegalArgumentException("recordsPerSegment must be positive");
+        //noinspection ConstantConditions
+        if (forceInterval == null) throw new NullPointerException("forceInterval cannot be null");
+        if (forceInterval.isNegative()) throw new IllegalArgumentException("forceInterval cannot be negative");
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        Files.createDirectories(directory);
+        final long lastSegment = recover(recovered);
+        // Never append to a recovered segment, its tail may be torn.
+        this.nextSlot = new AtomicLong((lastSegment + 1) * recordsPerSegment);
+        this.forceEachAppend = forceInterval.isZero();
+        this.timer = Executors.newSingleThreadScheduledExecutor(it -> {
+            final Thread thread = new Thread(it, "fx-quote-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!forceEachAppend) timer.scheduleWithFixedDelay(this::forceDirty,
+                forceInterval.toMillis(), forceInterval.toMillis(), TimeUnit.MILLISECONDS);
+        // The recovered segments would otherwise wait for the next rollover.
+        timer.scheduleWithFixedDelay(this::purgeExpired,
+                PURGE_INTERVAL.toMillis(), PURGE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    FxQuoteJournal(
+            @NotNull final Path directory,
+            final int recordsPerSegment,
+            @NotNull final Consumer<FxQuote> recovered) throws IOException {
+        this(directory, recordsPerSegment, DEFAULT_FORCE_INTERVAL, recovered);
+    }
+
+    FxQuoteJournal(
+            @NotNull final Path directory,
+            @NotNull final Consumer<FxQuote> recovered) throws IOException {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT, recovered);
+    }
+
+    /**
+     * @return Whether the quote could be journaled.
+     */
+    boolean append(@NotNull final FxQuote quote) {
+        if (!isJournalable(quote)) return false;
+        final long slot = nextSlot.getAndIncrement();
+        final Segment segment = enterSegment(slot / recordsPerSegment);
+        try {
+            final int offset = (int) (slot % recordsPerSegment) * RECORD_SIZE;
+            // A duplicate so as to not share the position with concurrent writers.
+            final ByteBuffer record = segment.buffer.duplicate();
+            record.position(offset + 1);
+            record.put((byte) quote.getBase().getFractionDigits());
+            record.put((byte) quote.getCounter().getFractionDigits());
+            record.put((byte) quote.getRate().scale());
+            putIdentifier(record, quote.getBase().getTokenIdentifier());
+            putIdentifier(record, quote.getCounter().getTokenIdentifier());
+            record.putLong(quote.getRate().unscaledValue().longValueExact());
+            record.putLong(quote.getExpirationDate().getEpochSecond());
+            record.putInt(quote.getExpirationDate().getNano());
+            record.putInt(offset + CRC_OFFSET, crc(record, offset));
+            record.put(offset, VALID);
+            segment.maxExpiryMillis.accumulateAndGet(quote.getExpirationDate().toEpochMilli(), Math::max);
+            if (forceEachAppend) segment.buffer.force();
+            else segment.dirty.set(true);
+        } finally {
+            // Only now may a purge see the expiry of this record.
+            segment.exit();
+        }
+        if (slot % recordsPerSegment == 0) purgeExpired();
+        return true;
+    }
+
+    /**
+     * Deletes the full segments whose quotes have all expired and that no writer is still in flight on.
+     */
+    void purgeExpired() {
+        // Those before it have all their slots taken, and the recovered ones are never written to.
+        final long currentSegment = nextSlot.get() / recordsPerSegment;
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            if (currentSegment <= entry.getKey()) break;
+            final Segment segment = entry.getValue();
+            if (now <= segment.maxExpiryMillis.get()) break;
+            synchronized (segments) {
+                // A writer in flight has yet to raise the expiry with its record.
+                if (!segment.retire()) break;
+                if (segments.remove(entry.getKey(), segment)) delete(segment.file);
+            }
+        }
+    }
+
+    private void forceDirty() {
+        try {
+            for (final Segment segment : segments.values()) {
+                if (segment.dirty.getAndSet(false)) segment.buffer.force();
+            }
+        } catch (RuntimeException e) {
+            // Not thrown further, that would cancel the next ones.
+            log.warn("Failed to force the quote journal", e);
+        }
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        segments.values().forEach(it -> it.buffer.force());
+        segments.clear();
+    }
+
+    static boolean isJournalable(@NotNull final FxQuote quote) {
+        return isJournalable(quote.getBase()) && isJournalable(quote.getCounter())
+                && quote.getRate().unscaledValue().bitLength() < Long.SIZE
+                && quote.getRate().scale() <= Byte.MAX_VALUE && Byte.MIN_VALUE <= quote.getRate().scale();
+    }
+
+    private static boolean isJournalable(@NotNull final TokenType type) {
+        final String identifier = type.getTokenIdentifier();
+        return type.getClass() == TokenType.class
+                && !identifier.isEmpty()
+                && identifier.length() <= MAX_IDENTIFIER_LENGTH
+                && identifier.chars().allMatch(c -> 0 < c && c < 128)
+                && 0 <= type.getFractionDigits() && type.getFractionDigits() <= Byte.MAX_VALUE;
+    }
+
+    /**
+     * @return The segment, entered by the caller, who has to exit it once its record is complete.
+     */
+    @NotNull
+    private Segment enterSegment(final long number) {
+        final Segment existing = segments.get(number);
+        if (existing != null && existing.enter()) return existing;
+        synchronized (segments) {
+            // Segments are retired and removed under this lock, so the one found here is open to writers. When the
+            // writer was overtaken by the purge of its segment, this opens it anew, for its record only.
+            final Segment segment = segments.computeIfAbsent(number, it -> {
+                try {
+                    return open(segmentFile(it));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!segment.enter()) throw new IllegalStateException("Segment " + number + " was retired in place");
+            return segment;
+        }
+    }
+
+    @NotNull
+    private Segment open(@NotNull final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping outlives the channel.
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) recordsPerSegment * RECORD_SIZE));
+        }
+    }
+
+    /**
+     * @return The last segment number found, or -1.
+     */
+    private long recover(@NotNull final Consumer<FxQuote> recovered) throws IOException {
+        final Map<Long, Path> found = new TreeMap<>();
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    found.put(Long.parseLong(name.substring(
+                            SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file " + file);
+                }
+            }
+        }
+        final long now = System.currentTimeMillis();
+        long last = -1;
+        int count = 0;
+        for (final Map.Entry<Long, Path> entry : found.entrySet()) {
+            last = entry.getKey();
+            final Segment segment = open(entry.getValue());
+            final List<FxQuote> alive = new ArrayList<>();
+            for (int i = 0; i < recordsPerSegment; i++) {
+                final FxQuote quote = read(segment.buffer, i * RECORD_SIZE);
+                if (quote == null) continue;
+                segment.maxExpiryMillis.accumulateAndGet(quote.getExpirationDate().toEpochMilli(), Math::max);
+                if (now < quote.getExpirationDate().toEpochMilli()) alive.add(quote);
+            }
+            if (alive.isEmpty()) {
+                delete(entry.getValue());
+            } else {
+                segments.put(entry.getKey(), segment);
+                alive.forEach(recovered);
+                count += alive.size();
+            }
+        }
+        log.info("Recovered " + count + " unexpired quotes from " + segments.size() + " segments");
+        return last;
+    }
+
+    @Nullable
+    private static FxQuote read(@NotNull final MappedByteBuffer buffer, final int offset) {
+        final ByteBuffer record = buffer.duplicate();
+        if (record.get(offset) != VALID) return null;
+        if (record.getInt(offset + CRC_OFFSET) != crc(record, offset)) return null;
+        record.position(offset + 1);
+        final int baseDigits = record.get();
+        final int counterDigits = record.get();
+        final int scale = record.get();
+        final String base = getIdentifier(record);
+        final String counter = getIdentifier(record);
+        final long unscaled = record.getLong();
+        final long seconds = record.getLong();
+        final int nanos = record.getInt();
+        return new FxQuote(
+                new TokenType(base, baseDigits),
+                new TokenType(counter, counterDigits),
+                new BigDecimal(BigInteger.valueOf(unscaled), scale),
+                Instant.ofEpochSecond(seconds, nanos));
+    }
+
+    private static int crc(@NotNull final ByteBuffer record, final int offset) {
+        final ByteBuffer content = record.duplicate();
+        content.position(offset + 1).limit(offset + CRC_OFFSET);
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    private static void putIdentifier(@NotNull final ByteBuffer record, @NotNull final String identifier) {
+        final byte[] bytes = identifier.getBytes(StandardCharsets.US_ASCII);
+        record.put(bytes);
+        for (int i = bytes.length; i < MAX_IDENTIFIER_LENGTH; i++) record.put((byte) 0);
+    }
+
+    @NotNull
+    private static String getIdentifier(@NotNull final ByteBuffer record) {
+        final byte[] bytes = new byte[MAX_IDENTIFIER_LENGTH];
+        record.get(bytes);
+        int length = 0;
+        while (length < bytes.length && bytes[length] != 0) length++;
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    @NotNull
+    private Path segmentFile(final long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static void delete(@NotNull final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete expired segment " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.example.oracle;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the quotes sent by the oracle until they expire. It is safe to use from many flows at once.
+ * Lookups go to a {@link ConcurrentHashMap} without locking, and expiry is driven by a hashed timer wheel: each
+ * quote is dropped in the bucket of its expiration tick, and every bucket whose tick has passed is drained exactly
+ * once. So every stale quote is evicted in O(1) amortised time, whatever the mix of quote and sign calls.
+ */
+class FxQuoteRegistry {
+
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    private final long tickMillis;
+    private final int mask;
+    @NotNull
+    private final Map<FxQuote, Long> quotes = new ConcurrentHashMap<>();
+    @NotNull
+    private final Queue<FxQuote>[] wheel;
+    /**
+     * The last tick whose bucket has been drained.
+     */
+    @NotNull
+    private final AtomicLong lastExpiredTick;
+
+    /**
+     * @param maxValidity The longest validity expected for a quote. The wheel is sized so that a quote expiring
+     *                    within this duration is visited only once.
+     * @param tick        The granularity of expiry.
+     */
+    FxQuoteRegistry(@NotNull final Duration maxValidity, @NotNull final Duration tick) {
+        //noinspection ConstantConditions
+        if (maxValidity == null) throw new NullPointerException("maxValidity cannot be null");
+        //noinspection ConstantConditions
+        if (tick == null) throw new NullPointerException("tick cannot be null");
+        if (tick.toMillis() <= 0) throw new IllegalArgumentException("tick must be at least 1 millisecond");
+        this.tickMillis = tick.toMillis();
+        // A power of 2 so that the bucket index is a mere mask.
+        final long minBuckets = maxValidity.toMillis() / tickMillis + 2;
+        if (Integer.MAX_VALUE / 2 < minBuckets) throw new IllegalArgumentException("maxValidity too long for tick");
+        int bucketCount = 1;
+        while (bucketCount < minBuckets) bucketCount <<= 1;
+        this.mask = bucketCount - 1;
+        //noinspection unchecked
+        this.wheel = new Queue[bucketCount];
+        for (int i = 0; i < bucketCount; i++) wheel[i] = new ConcurrentLinkedQueue<>();
+        this.lastExpiredTick = new AtomicLong(currentTick());
+    }
+
+    FxQuoteRegistry(@NotNull final Duration maxValidity) {
+        this(maxValidity, DEFAULT_TICK);
+    }
+
+    /**
+     * Remembers the quote until its expiration date.
+     */
+    void register(@NotNull final FxQuote quote) {
+        expire();
+        final long expiryTick = toTick(quote.getExpirationDate());
+        quotes.put(quote, expiryTick);
+        wheel[(int) (expiryTick & mask)].add(quote);
+    }
+
+    /**
+     * @return Whether the quote was registered and has not expired yet.
+     */
+    boolean contains(@NotNull final FxQuote quote) {
+        expire();
+        final Long expiryTick = quotes.get(quote);
+        return expiryTick != null && currentTick() < expiryTick;
+    }
+
+    int size() {
+        return quotes.size();
+    }
+
+    /**
+     * Drains the buckets whose tick has passed. Only one thread wins a given range of ticks, the others carry on.
+     */
+    void expire() {
+        final long now = currentTick();
+        final long last = lastExpiredTick.get();
+        if (now <= last || !lastExpiredTick.compareAndSet(last, now)) return;
+        // No need to go round the wheel more than once.
+        final long from = Math.max(last + 1, now - mask);
+        for (long tick = from; tick <= now; tick++) {
+            drain(wheel[(int) (tick & mask)], now);
+        }
+    }
+
+    private void drain(@NotNull final Queue<FxQuote> bucket, final long now) {
+        // Those that expire on a later turn of the wheel.
+        final List<FxQuote> notYet = new ArrayList<>();
+        FxQuote quote;
+        while ((quote = bucket.poll()) != null) {
+            final Long expiryTick = quotes.get(quote);
+            if (expiryTick == null) continue;
+            if (expiryTick <= now) quotes.remove(quote, expiryTick);
+            else notYet.add(quote);
+        }
+        bucket.addAll(notYet);
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / tickMillis;
+    }
+
+    private long toTick(@NotNull final Instant instant) {
+        // Rounded up so that a quote is never expired before its time.
+        return Math.floorDiv(instant.toEpochMilli() + tickMillis - 1, tickMillis);
+    }
+
+}
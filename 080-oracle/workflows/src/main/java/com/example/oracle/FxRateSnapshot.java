@@ -0,0 +1,90 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import javafx.util.Pair;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of all the rates at a given version. Readers hold on to one without locking, while updates
+ * produce a new snapshot. Published rates are handed out as received, other pairs are triangulated.
+ */
+class FxRateSnapshot {
+
+    static final FxRateSnapshot EMPTY = new FxRateSnapshot(
+            Collections.emptyMap(), FxCrossRates.EMPTY, 0L, Duration.ZERO);
+
+    @NotNull
+    private final Map<Pair<TokenType, TokenType>, BigDecimal> rates;
+    @NotNull
+    private final FxCrossRates crossRates;
+    private final long version;
+    @NotNull
+    private final Duration updateLag;
+
+    private FxRateSnapshot(
+            @NotNull final Map<Pair<TokenType, TokenType>, BigDecimal> rates,
+            @NotNull final FxCrossRates crossRates,
+            final long version,
+            @NotNull final Duration updateLag) {
+        this.rates = rates;
+        this.crossRates = crossRates;
+        this.version = version;
+        this.updateLag = updateLag;
+    }
+
+    @Nullable
+    BigDecimal get(@NotNull final Pair<TokenType, TokenType> pair) {
+        final BigDecimal published = rates.get(pair);
+        if (published != null) return published;
+        return crossRates.rate(pair.getKey(), pair.getValue());
+    }
+
+    @NotNull
+    FxCrossRates getCrossRates() {
+        return crossRates;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return How long the oldest update of the last batch waited before being visible.
+     */
+    @NotNull
+    Duration getUpdateLag() {
+        return updateLag;
+    }
+
+    /**
+     * @return The number of published rates.
+     */
+    int size() {
+        return rates.size();
+    }
+
+    /**
+     * Copy on write.
+     */
+    @NotNull
+    FxRateSnapshot with(@NotNull final List<FxRateUpdate> updates) {
+        final Map<Pair<TokenType, TokenType>, BigDecimal> newRates = new HashMap<>(rates);
+        Instant oldest = Instant.MAX;
+        for (final FxRateUpdate update : updates) {
+            newRates.put(update.getPair(), update.getRate());
+            if (update.getPublishedAt().isBefore(oldest)) oldest = update.getPublishedAt();
+        }
+        final Duration lag = updates.isEmpty() ? updateLag : Duration.between(oldest, Instant.now());
+        return new FxRateSnapshot(Collections.unmodifiableMap(newRates), crossRates.with(updates), version + 1, lag);
+    }
+
+}
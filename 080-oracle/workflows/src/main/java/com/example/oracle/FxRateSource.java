@@ -0,0 +1,30 @@
+package com.example.oracle;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Feeds the {@link FxOracle} with rates. Implementations push updates in batches from their own thread.
+ */
+public interface FxRateSource extends AutoCloseable {
+
+    interface Listener {
+        /**
+         * Called with updates that are to be made visible together. It must not be called concurrently.
+         */
+        void onUpdates(@NotNull List<FxRateUpdate> updates);
+    }
+
+    /**
+     * Starts pushing updates to the listener. Called once.
+     */
+    void start(@NotNull Listener listener);
+
+    /**
+     * Stops pushing updates.
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,72 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import javafx.util.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A new rate for a pair, as published by a {@link FxRateSource}.
+ */
+public class FxRateUpdate {
+
+    @NotNull
+    private final Pair<TokenType, TokenType> pair;
+    @NotNull
+    private final BigDecimal rate;
+    @NotNull
+    private final Instant publishedAt;
+
+    public FxRateUpdate(
+            @NotNull final Pair<TokenType, TokenType> pair,
+            @NotNull final BigDecimal rate,
+            @NotNull final Instant publishedAt) {
+        //noinspection ConstantConditions
+        if (pair == null) throw new NullPointerException("pair cannot be null");
+        //noinspection ConstantConditions
+        if (rate == null) throw new NullPointerException("rate cannot be null");
+        if (rate.signum() <= 0) throw new IllegalArgumentException("rate must be positive");
+        //noinspection ConstantConditions
+        if (publishedAt == null) throw new NullPointerException("publishedAt cannot be null");
+        this.pair = pair;
+        this.rate = rate;
+        this.publishedAt = publishedAt;
+    }
+
+    @NotNull
+    public Pair<TokenType, TokenType> getPair() {
+        return pair;
+    }
+
+    @NotNull
+    public BigDecimal getRate() {
+        return rate;
+    }
+
+    /**
+     * When the source published this rate, used to measure the update lag. See {@link ReplayFxRateSource} for
+     * what it means in a replay.
+     */
+    @NotNull
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final FxRateUpdate that = (FxRateUpdate) o;
+        return pair.equals(that.pair) &&
+                rate.equals(that.rate) &&
+                publishedAt.equals(that.publishedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pair, rate, publishedAt);
+    }
+}
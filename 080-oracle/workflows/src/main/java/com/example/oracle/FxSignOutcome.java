@@ -0,0 +1,68 @@
+package com.example.oracle;
+
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.serialization.CordaSerializable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * The result of the oracle signing one transaction of a batch. Either the signature or the error is set, so that
+ * a failed item does not fail the whole batch.
+ */
+@CordaSerializable
+public class FxSignOutcome {
+
+    @Nullable
+    private final TransactionSignature signature;
+    @Nullable
+    private final String error;
+
+    public FxSignOutcome(
+            @Nullable final TransactionSignature signature,
+            @Nullable final String error) {
+        if ((signature == null) == (error == null))
+            throw new IllegalArgumentException("Exactly one of signature and error must be set");
+        this.signature = signature;
+        this.error = error;
+    }
+
+    @NotNull
+    public static FxSignOutcome success(@NotNull final TransactionSignature signature) {
+        return new FxSignOutcome(signature, null);
+    }
+
+    @NotNull
+    public static FxSignOutcome failure(@NotNull final String error) {
+        return new FxSignOutcome(null, error);
+    }
+
+    public boolean isSuccess() {
+        return signature != null;
+    }
+
+    @Nullable
+    public TransactionSignature getSignature() {
+        return signature;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final FxSignOutcome that = (FxSignOutcome) o;
+        return Objects.equals(signature, that.signature) &&
+                Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(signature, error);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.oracle;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded feed from a file, on its own daemon thread. Each line reads
+ * {@code offsetMillis,BASE,COUNTER,rate}, with lines starting with {@code #} ignored. Lines sharing the same
+ * offset are published as one batch. When paced, a rate is taken as published at its recorded offset from the start
+ * of the replay, so that {@link FxOracle#getRateUpdateLag()} covers the replay falling behind too. When not paced,
+ * the recorded offsets mean nothing, so a rate is taken as published when its line is read, and the lag only covers
+ * the batching and the swap of the rates.
+ */
+public class ReplayFxRateSource implements FxRateSource {
+
+    private final static Logger log = LoggerFactory.getLogger(ReplayFxRateSource.class);
+    public static final int MAX_BATCH_SIZE = 256;
+
+    @NotNull
+    private final Path file;
+    /**
+     * Whether to wait between offsets as recorded, or to replay as fast as possible.
+     */
+    private final boolean paced;
+    @NotNull
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean closed = false;
+
+    public ReplayFxRateSource(@NotNull final Path file, final boolean paced) {
+        //noinspection ConstantConditions
+        if (file == null) throw new NullPointerException("file cannot be null");
+        this.file = file;
+        this.paced = paced;
+    }
+
+    @Override
+    public void start(@NotNull final Listener listener) {
+        final Thread replayer = new Thread(() -> {
+            try {
+                replay(listener);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to replay " + file, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }, "fx-rate-replay");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    private void replay(@NotNull final Listener listener) throws IOException, InterruptedException {
+        final long start = System.currentTimeMillis();
+        final List<FxRateUpdate> batch = new ArrayList<>();
+        long batchOffset = -1;
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while (!closed && (line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                final String[] fields = line.split(",");
+                if (fields.length != 4) throw new IllegalArgumentException("Malformed line: " + line);
+                final long offset = Long.parseLong(fields[0].trim());
+                if (!batch.isEmpty() && (offset != batchOffset || MAX_BATCH_SIZE <= batch.size())) {
+                    listener.onUpdates(new ArrayList<>(batch));
+                    batch.clear();
+                }
+                if (paced) {
+                    final long wait = start + offset - System.currentTimeMillis();
+                    if (0 < wait) Thread.sleep(wait);
+                }
+                batchOffset = offset;
+                batch.add(new FxRateUpdate(
+                        StaticFxRateSource.createPair(fields[1].trim(), fields[2].trim()),
+                        new BigDecimal(fields[3].trim()),
+                        paced ? Instant.ofEpochMilli(start + offset) : Instant.now()));
+            }
+        }
+        if (!closed && !batch.isEmpty()) listener.onUpdates(batch);
+    }
+
+    /**
+     * @return Whether the whole file was replayed, or the source closed, within the timeout.
+     */
+    public boolean awaitDone(final long timeout, @NotNull final TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+}
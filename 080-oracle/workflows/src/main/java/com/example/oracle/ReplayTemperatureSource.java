@@ -0,0 +1,92 @@
+package com.example.oracle;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays recorded samples from a file, on its own daemon thread. Each line reads {@code epochMillis,degrees}, with
+ * lines starting with {@code #} ignored. The lines must be in increasing time.
+ */
+public class ReplayTemperatureSource implements TemperatureSource {
+
+    private final static Logger log = LoggerFactory.getLogger(ReplayTemperatureSource.class);
+
+    @NotNull
+    private final Path file;
+    /**
+     * Whether to wait for the time of each sample, or to replay as fast as possible.
+     */
+    private final boolean paced;
+    @NotNull
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean closed = false;
+
+    public ReplayTemperatureSource(@NotNull final Path file, final boolean paced) {
+        //noinspection ConstantConditions
+        if (file == null) throw new NullPointerException("file cannot be null");
+        this.file = file;
+        this.paced = paced;
+    }
+
+    @Override
+    public void start(@NotNull final Listener listener) {
+        final Thread replayer = new Thread(() -> {
+            try {
+                replay(listener);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to replay " + file, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }, "temperature-replay");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    private void replay(@NotNull final Listener listener) throws IOException, InterruptedException {
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while (!closed && (line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                final String[] fields = line.split(",");
+                if (fields.length != 2) throw new IllegalArgumentException("Malformed line: " + line);
+                final long epochMillis = Long.parseLong(fields[0].trim());
+                if (paced) {
+                    final long wait = epochMillis - System.currentTimeMillis();
+                    if (0 < wait) Thread.sleep(wait);
+                }
+                // Parsing is not on the hot path, the readers only see the fixed point.
+                listener.onSample(epochMillis, new BigDecimal(fields[1].trim())
+                        .setScale(TemperatureOracleUtilities.READING_SCALE, RoundingMode.HALF_EVEN)
+                        .unscaledValue().longValueExact());
+            }
+        }
+    }
+
+    /**
+     * @return Whether the whole file was replayed, or the source closed, within the timeout.
+     */
+    public boolean awaitDone(final long timeout, @NotNull final TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.example.oracle;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for a sensor, with a temperature that walks up by less than 1 degree at each sample.
+ */
+public class SimulatedTemperatureSource implements TemperatureSource {
+
+    public static final Duration SAMPLE_INTERVAL = Duration.ofSeconds(1);
+    /**
+     * 10 degrees.
+     */
+    public static final long START_READING = 10_000L;
+
+    @NotNull
+    private final Random generator = new Random(System.nanoTime());
+    @NotNull
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(it -> {
+        final Thread thread = new Thread(it, "temperature-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long reading = START_READING;
+
+    @Override
+    public void start(@NotNull final Listener listener) {
+        listener.onSample(System.currentTimeMillis(), reading);
+        sampler.scheduleAtFixedRate(() -> {
+            // From 0.000 to 0.999 degree.
+            reading += generator.nextInt(1_000);
+            listener.onSample(System.currentTimeMillis(), reading);
+        }, SAMPLE_INTERVAL.toMillis(), SAMPLE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import javafx.util.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Publishes a fixed set of dummy rates, once.
+ */
+public class StaticFxRateSource implements FxRateSource {
+
+    @Override
+    public void start(@NotNull final Listener listener) {
+        final Instant now = Instant.now();
+        listener.onUpdates(Arrays.asList(
+                new FxRateUpdate(createPair("USD", "CAD"), BigDecimal.valueOf(1.39), now),
+                new FxRateUpdate(createPair("CAD", "USD"), BigDecimal.valueOf(0.72), now)));
+    }
+
+    @Override
+    public void close() {
+        // Nothing to stop.
+    }
+
+    @NotNull
+    static Pair<TokenType, TokenType> createPair(
+            @NotNull final String base, @NotNull final String counter) {
+        return new Pair<>(FiatCurrency.Companion.getInstance(base),
+                FiatCurrency.Companion.getInstance(counter));
+    }
+
+}
@@ -3,6 +3,7 @@ package com.example.oracle;
 import com.example.contract.TemperatureContract.Commands.HowWarm;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.TimeWindow;
+import net.corda.core.cordapp.CordappConfig;
 import net.corda.core.crypto.TransactionSignature;
 import net.corda.core.node.AppServiceHub;
 import net.corda.core.node.services.CordaService;
@@ -14,21 +15,32 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.file.Paths;
 import java.security.PublicKey;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Random;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @CordaService
 public class TemperatureOracle extends SingletonSerializeAsToken {
 
     public static final Duration MAX_VALIDITY = Duration.ofMinutes(5);
+    /**
+     * When this file path is found in the CorDapp config, the samples are replayed from it instead of simulated.
+     * See {@link ReplayTemperatureSource} for the format.
+     */
+    public static final String REPLAY_FILE_CONFIG = "temperatureReplayFile";
 
     private final AppServiceHub serviceHub;
     private final PublicKey oracleKey;
-    private final Random tempGenerator;
-    private BigDecimal currentTemp;
+    // Written by the thread of the source only, read by the signers without locking.
+    @NotNull
+    private volatile TemperatureSeries samples = new TemperatureSeries();
+    @NotNull
+    private TemperatureSource source;
+    @NotNull
+    private final List<TemperatureSource.Listener> listeners = new CopyOnWriteArrayList<>();
 
     @SuppressWarnings("unused")
     public TemperatureOracle(@NotNull final AppServiceHub serviceHub) {
@@ -36,23 +48,62 @@ public class TemperatureOracle extends SingletonSerializeAsToken {
         if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
         this.serviceHub = serviceHub;
         oracleKey = serviceHub.getMyInfo().getLegalIdentities().get(0).getOwningKey();
-        tempGenerator = new Random(Instant.now().getNano());
-        currentTemp = BigDecimal.TEN;
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        source = config.exists(REPLAY_FILE_CONFIG)
+                ? new ReplayTemperatureSource(Paths.get(config.getString(REPLAY_FILE_CONFIG)), true)
+                : new SimulatedTemperatureSource();
+        final TemperatureSeries firstSamples = samples;
+        source.start((epochMillis, reading) -> onSample(firstSamples, epochMillis, reading));
+    }
+
+    /**
+     * Replaces the current sensor source, and forgets the samples of the previous one.
+     */
+    public synchronized void useSource(@NotNull final TemperatureSource newSource) {
+        //noinspection ConstantConditions
+        if (newSource == null) throw new NullPointerException("newSource cannot be null");
+        source.close();
+        final TemperatureSeries newSamples = new TemperatureSeries();
+        samples = newSamples;
+        source = newSource;
+        newSource.start((epochMillis, reading) -> onSample(newSamples, epochMillis, reading));
+    }
+
+    /**
+     * The listener is called on the thread of the source, after each sample is kept, so it has to be quick.
+     */
+    public void addListener(@NotNull final TemperatureSource.Listener listener) {
+        //noinspection ConstantConditions
+        if (listener == null) throw new NullPointerException("listener cannot be null");
+        listeners.add(listener);
+    }
+
+    private void onSample(@NotNull final TemperatureSeries into, final long epochMillis, final long reading) {
+        // Late samples of a replaced source are dropped.
+        if (into != samples || !into.add(epochMillis, reading)) return;
+        for (final TemperatureSource.Listener listener : listeners) listener.onSample(epochMillis, reading);
     }
 
     /**
      * Called when the oracle is requested to provide the current temperature.
      */
-    @NotNull
+    @Nullable
     public BigDecimal getCurrentTemperature() {
-        final BigDecimal nextChange = BigDecimal.valueOf(tempGenerator.nextInt(1000))
-                .divide(BigDecimal.valueOf(1000), RoundingMode.HALF_EVEN);
-        currentTemp = currentTemp.add(nextChange);
-        return currentTemp;
+        final long reading = samples.latestReading();
+        return reading == TemperatureSeries.NO_READING ? null : TemperatureOracleUtilities.toDegrees(reading);
     }
 
     /**
-     * Called when the oracle is requested to sign over current temperature.
+     * @return The temperature in force at that time, or null if it is not known.
+     */
+    @Nullable
+    public BigDecimal getTemperatureAt(@NotNull final Instant when) {
+        final long reading = samples.readingAt(when.toEpochMilli());
+        return reading == TemperatureSeries.NO_READING ? null : TemperatureOracleUtilities.toDegrees(reading);
+    }
+
+    /**
+     * Called when the oracle is requested to sign over the temperature at the time of the transaction time window.
      */
     @NotNull
     public TransactionSignature sign(FilteredTransaction ftx) throws FilteredTransactionVerificationException,
@@ -60,8 +111,17 @@ public class TemperatureOracle extends SingletonSerializeAsToken {
         // Check that the partial Merkle tree is valid.
         ftx.verify();
 
+        // The temperature is checked at the end of the time window, which has to be in the past.
+        final TimeWindow timeWindow = ftx.getTimeWindow();
+        final Instant untilTime = timeWindow == null ? null : timeWindow.getUntilTime();
+        if (untilTime == null || !untilTime.isBefore(Instant.now()))
+            throw new IllegalArgumentException("Oracle signature requested without a past time window.");
+        final long reading = samples.readingAt(untilTime.toEpochMilli());
+        if (reading == TemperatureSeries.NO_READING)
+            throw new IllegalArgumentException("Oracle signature requested at a time with no known temperature.");
+
         // Is it a valid Merkle tree that the oracle is willing to sign over?
-        if (!ftx.checkWithFun(this::isCommandWithCorrectTemp))
+        if (!ftx.checkWithFun(elem -> isCommandWithCorrectTemp(elem, reading)))
             throw new IllegalArgumentException("Oracle signature requested over an invalid transaction.");
 
         // Check that the sender of the transaction didn't filter out other commands that require
@@ -74,27 +134,25 @@ public class TemperatureOracle extends SingletonSerializeAsToken {
 
     /**
      * Passed the visible elements found in the filtered transaction.
+     *
+     * @param reading The fixed-point temperature at the time of the transaction.
      */
-    private boolean isCommandWithCorrectTemp(@NotNull final Object elem) {
+    private boolean isCommandWithCorrectTemp(@NotNull final Object elem, final long reading) {
         //noinspection rawtypes
         if (elem instanceof Command && ((Command) elem).getValue() instanceof HowWarm) {
             //noinspection rawtypes
             final HowWarm cmdData = (HowWarm) ((Command) elem).getValue();
-            // Is the temperature within the bounds, inclusive?
-            final BigDecimal current = getCurrentTemperature();
-            final int lowBound = cmdData.getLowBound().compareTo(current);
-            final int highBound = current.compareTo(cmdData.getHighBound());
             // Check that the oracle is a required signer.
             //noinspection rawtypes
             return ((Command) elem).getSigners().contains(oracleKey)
-                    && lowBound <= 0 && highBound <= 0;
+                    // Is the temperature within the bounds, inclusive?
+                    && cmdData.contains(reading);
         } else if (elem instanceof TimeWindow) {
-            final Instant untilTime = ((TimeWindow) elem).getUntilTime();
-            return untilTime != null
-                    && untilTime.isBefore(Instant.now());
+            // Already checked.
+            return true;
         }
         // We don't want to jinx checkCommandVisibility.
         return false;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.example.oracle;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The recent sensor samples, kept in a ring buffer of primitives. There must be a single writer, while readers never
+ * lock nor allocate. A reader that was overtaken by the writer while searching simply searches again.
+ */
+class TemperatureSeries {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * Returned when there is no reading for the time asked.
+     */
+    static final long NO_READING = Long.MIN_VALUE;
+    /**
+     * The oldest slots that readers do not search, so that the writer can move on while they do.
+     */
+    private static final int SLACK = 64;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray times;
+    private final AtomicLongArray readings;
+    /**
+     * The number of samples ever added. Only the writer increments it, once the sample is in place.
+     */
+    private volatile long count = 0;
+
+    TemperatureSeries(final int capacity) {
+        if (capacity <= 2 * SLACK || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of 2 above " + 2 * SLACK);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.times = new AtomicLongArray(capacity);
+        this.readings = new AtomicLongArray(capacity);
+    }
+
+    TemperatureSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Called by the single writer.
+     *
+     * @return Whether the sample was added, i.e. it is not older than the latest one.
+     */
+    boolean add(final long epochMillis, final long reading) {
+        final long n = count;
+        if (0 < n && epochMillis < times.get((int) ((n - 1) & mask))) return false;
+        final int slot = (int) (n & mask);
+        times.set(slot, epochMillis);
+        readings.set(slot, reading);
+        count = n + 1;
+        return true;
+    }
+
+    /**
+     * @return The reading in force at that time, i.e. that of the latest sample taken at or before it, or
+     * {@link #NO_READING} if that sample is no longer, or not yet, known.
+     */
+    long readingAt(final long epochMillis) {
+        while (true) {
+            final long end = count;
+            final long start = Math.max(0, end - capacity + SLACK);
+            long low = start;
+            long high = end - 1;
+            long found = -1;
+            while (low <= high) {
+                final long middle = (low + high) >>> 1;
+                if (times.get((int) (middle & mask)) <= epochMillis) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            final long reading = found < 0 ? NO_READING : readings.get((int) (found & mask));
+            // The writer overwrites the slot of index i - capacity when adding index i.
+            if (count < start + capacity) return reading;
+        }
+    }
+
+    /**
+     * @return The latest reading, or {@link #NO_READING} if there is none.
+     */
+    long latestReading() {
+        while (true) {
+            final long end = count;
+            if (end == 0) return NO_READING;
+            final long reading = readings.get((int) ((end - 1) & mask));
+            if (count < end - 1 + capacity) return reading;
+        }
+    }
+
+    long size() {
+        return Math.min(count, capacity);
+    }
+
+}
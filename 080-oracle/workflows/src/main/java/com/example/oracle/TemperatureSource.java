@@ -0,0 +1,31 @@
+package com.example.oracle;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Feeds the {@link TemperatureOracle} with sensor samples. Implementations push samples from their own thread.
+ */
+public interface TemperatureSource extends AutoCloseable {
+
+    interface Listener {
+        /**
+         * Called with each sample, in increasing time. It must not be called concurrently.
+         *
+         * @param epochMillis When the sample was taken.
+         * @param reading     The temperature in fixed point, at {@link TemperatureOracleUtilities#READING_SCALE}.
+         */
+        void onSample(long epochMillis, long reading);
+    }
+
+    /**
+     * Starts pushing samples to the listener. Called once.
+     */
+    void start(@NotNull Listener listener);
+
+    /**
+     * Stops pushing samples.
+     */
+    @Override
+    void close();
+
+}
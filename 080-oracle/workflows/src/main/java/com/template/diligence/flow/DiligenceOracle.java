@@ -1,10 +1,16 @@
 package com.template.diligence.flow;
 
+import com.r3.corda.lib.accounts.contracts.states.AccountInfo;
+import com.r3.corda.lib.accounts.workflows.services.KeyManagementBackedAccountService;
+import com.template.diligence.flow.DiligenceOracleInternalFlows.ImportReport;
 import com.template.diligence.state.DiligenceOracleUtilities.Status;
 import com.template.diligence.state.DueDiligenceContract.Commands.Certify;
+import com.template.service.ServiceStartup;
 import net.corda.core.contracts.Command;
+import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.TimeWindow;
 import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.cordapp.CordappConfig;
 import net.corda.core.crypto.TransactionSignature;
 import net.corda.core.node.AppServiceHub;
 import net.corda.core.node.services.CordaService;
@@ -14,35 +20,104 @@ import net.corda.core.transactions.FilteredTransaction;
 import net.corda.core.transactions.FilteredTransactionVerificationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.PublicKey;
 import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static com.template.diligence.state.DiligenceOracleUtilities.VALID_DURATION;
 
+/**
+ * Its status registry is recovered, and its key looked up, once the node has started. See {@link ServiceStartup}.
+ */
 @CordaService
-public class DiligenceOracle extends SingletonSerializeAsToken {
+public class DiligenceOracle extends SingletonSerializeAsToken implements ServiceStartup.Lazy {
+
+    private final static Logger log = LoggerFactory.getLogger(DiligenceOracle.class);
 
     public static final String ACCOUNT_NAME = "DiligenceOracle";
+    /**
+     * Where the statuses are logged so that they survive a restart. See {@link DiligenceStatusRegistry}. Without it,
+     * they are kept in memory only.
+     */
+    public static final String STATUS_DIR_CONFIG = "diligenceStatusDir";
 
     @NotNull
     private final AppServiceHub serviceHub;
+    @NotNull
+    private final ServiceStartup startup;
+    @Nullable
+    private final Path statusDir;
     @Nullable
-    private PublicKey oracleKey;
-    // For simplicity, the oracle is storing the statuses in a map.
-    private final Map<UniqueIdentifier, Status> freeAndClears = new HashMap<>(10);
+    private volatile PublicKey oracleKey;
+    /**
+     * Set on warm-up.
+     */
+    private volatile DiligenceStatusRegistry statuses;
+    @NotNull
+    private final AtomicLong importedCount = new AtomicLong();
 
     @SuppressWarnings("unused")
     public DiligenceOracle(@NotNull final AppServiceHub serviceHub) {
         //noinspection ConstantConditions
         if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
         this.serviceHub = serviceHub;
-        // Uncomment these in v4.4 when starting order can be controlled.
-//        final CordaFuture<PublicKey> future = serviceHub.startFlow(new DiligenceOracleFlows.ObtainKey(ACCOUNT_NAME))
-//                .getReturnValue();
-//        this.oracleKey = future.get();
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        this.statusDir = config.exists(STATUS_DIR_CONFIG)
+                ? Paths.get(config.getString(STATUS_DIR_CONFIG))
+                : null;
+        this.startup = new ServiceStartup(serviceHub, DiligenceOracle.class);
+    }
+
+    @NotNull
+    @Override
+    public ServiceStartup getStartup() {
+        return startup;
+    }
+
+    /**
+     * Recovers the statuses, which takes seconds with millions of them, and picks the key of the oracle account if
+     * it already exists.
+     */
+    @Override
+    public void warmUp() throws IOException {
+        // It logs what it recovered.
+        statuses = new DiligenceStatusRegistry(statusDir);
+        if (oracleKey == null) oracleKey = findOracleKey();
+    }
+
+    /**
+     * Has to be called within a database transaction.
+     *
+     * @return The key of the local {@link #ACCOUNT_NAME} account, if it has exactly one.
+     */
+    @Nullable
+    private PublicKey findOracleKey() {
+        final KeyManagementBackedAccountService accountService = serviceHub.cordaService(
+                KeyManagementBackedAccountService.class);
+        final List<StateAndRef<AccountInfo>> accounts = accountService.accountInfo(ACCOUNT_NAME).stream()
+                .filter(it -> serviceHub.getMyInfo().isLegalIdentity(it.getState().getData().getHost()))
+                .collect(Collectors.toList());
+        if (accounts.size() != 1) return null;
+        final List<PublicKey> keys = accountService.accountKeys(
+                accounts.get(0).getState().getData().getIdentifier().getId());
+        if (keys.size() != 1) {
+            log.warn("The " + ACCOUNT_NAME + " account has " + keys.size() + " keys, set the one to use");
+            return null;
+        }
+        return keys.get(0);
     }
 
     /**
@@ -50,17 +125,40 @@ public class DiligenceOracle extends SingletonSerializeAsToken {
      */
     @NotNull
     public Status query(@NotNull final UniqueIdentifier tokenId) {
-        final Status status = freeAndClears.get(tokenId);
-        return status == null ? Status.Clear : status;
+        startup.checkReady();
+        return statuses.get(tokenId);
+    }
+
+    /**
+     * Called when the oracle is requested about many token ids at once.
+     *
+     * @return The token ids that are {@link Status#Linked}, the others are {@link Status#Clear}.
+     */
+    @NotNull
+    public Set<UniqueIdentifier> query(@NotNull final Collection<UniqueIdentifier> tokenIds) {
+        //noinspection ConstantConditions
+        if (tokenIds == null) throw new NullPointerException("tokenIds cannot be null");
+        startup.checkReady();
+        Set<UniqueIdentifier> linked = Collections.emptySet();
+        for (final UniqueIdentifier tokenId : tokenIds) {
+            if (statuses.get(tokenId) != Status.Linked) continue;
+            // Mostly there are none.
+            if (linked.isEmpty()) linked = new HashSet<>();
+            linked.add(tokenId);
+        }
+        return linked;
     }
 
     /**
-     * Called when the oracle is requested to sign over a status.
+     * Called when the oracle is requested to sign over a status, on a flow thread. If the key is not known yet, it is
+     * looked up again, in case the account was created after the node started.
      */
     @NotNull
     public TransactionSignature sign(@NotNull final FilteredTransaction ftx)
             throws FilteredTransactionVerificationException,
             ComponentVisibilityException {
+        startup.checkReady();
+        if (oracleKey == null) oracleKey = findOracleKey();
         if (oracleKey == null) throw new NullPointerException("oracleKey not initialised");
         // Check that the partial Merkle tree is valid.
         ftx.verify();
@@ -100,8 +198,60 @@ public class DiligenceOracle extends SingletonSerializeAsToken {
     }
 
     public void setStatus(@NotNull final UniqueIdentifier tokenId, @NotNull final Status status) {
-        if (status == Status.Clear) freeAndClears.remove(tokenId);
-        else freeAndClears.put(tokenId, status);
+        startup.checkReady();
+        try {
+            statuses.set(tokenId, status);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log the status of " + tokenId, e);
+        }
+    }
+
+    /**
+     * Applies the statuses found in the file, batch by batch, while queries carry on against the batches applied so
+     * far. Progress is logged at most every second.
+     */
+    @NotNull
+    public ImportReport importStatuses(@NotNull final Path file, final int batchSize) {
+        //noinspection ConstantConditions
+        if (file == null) throw new NullPointerException("file cannot be null");
+        startup.checkReady();
+        // The records imported and the time, as last reported.
+        final long[] last = {0, System.currentTimeMillis()};
+        final DiligenceStatusImporter importer = new DiligenceStatusImporter(statuses, batchSize, soFar -> {
+            importedCount.addAndGet(soFar - last[0]);
+            last[0] = soFar;
+            final long now = System.currentTimeMillis();
+            if (now - last[1] < 1_000) return;
+            last[1] = now;
+            log.info("Imported " + soFar + " statuses from " + file);
+        });
+        try {
+            final ImportReport report = importer.importFrom(file);
+            log.info("Imported from " + file + ": " + report);
+            return report;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import the statuses from " + file, e);
+        }
+    }
+
+    /**
+     * @return The number of statuses imported in bulk since started, batch by batch.
+     */
+    public long getImportedCount() {
+        return importedCount.get();
+    }
+
+    public int getLinkedCount() {
+        startup.checkReady();
+        return statuses.getLinkedCount();
+    }
+
+    /**
+     * @return The number of queries answered without looking up the index.
+     */
+    public long getFilteredQueryCount() {
+        startup.checkReady();
+        return statuses.getFilteredCount();
     }
 
     protected void setOracleKey(@NotNull final PublicKey oracleKey) {
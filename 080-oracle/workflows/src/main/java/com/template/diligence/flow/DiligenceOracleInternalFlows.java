@@ -2,10 +2,13 @@ package com.template.diligence.flow;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import com.template.service.ServiceStartup;
 import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.flows.*;
+import net.corda.core.serialization.CordaSerializable;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.file.Paths;
 import java.security.PublicKey;
 
 public interface DiligenceOracleInternalFlows {
@@ -50,9 +53,106 @@ public interface DiligenceOracleInternalFlows {
         @Suspendable
         @Override
         public Void call() throws FlowException {
-            getServiceHub().cordaService(DiligenceOracle.class).setStatus(tokenId, status);
+            final DiligenceOracle oracle = getServiceHub().cordaService(DiligenceOracle.class);
+            ServiceStartup.awaitReady(this, oracle);
+            oracle.setStatus(tokenId, status);
             return null;
         }
     }
 
+    /**
+     * Loads the statuses in bulk from a file on the oracle node. See {@link DiligenceStatusImporter} for the formats.
+     * The file is read outside of the flow, so that it is not checkpointed, while queries and signatures carry on.
+     */
+    @StartableByRPC
+    class ImportStatuses extends FlowLogic<ImportReport> {
+
+        public static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+        @NotNull
+        private final String file;
+        private final int batchSize;
+
+        public ImportStatuses(@NotNull final String file, final int batchSize) {
+            //noinspection ConstantConditions
+            if (file == null) throw new NullPointerException("file cannot be null");
+            if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+            this.file = file;
+            this.batchSize = batchSize;
+        }
+
+        public ImportStatuses(@NotNull final String file) {
+            this(file, DEFAULT_BATCH_SIZE);
+        }
+
+        @Suspendable
+        @Override
+        public ImportReport call() throws FlowException {
+            final DiligenceOracle oracle = getServiceHub().cordaService(DiligenceOracle.class);
+            ServiceStartup.awaitReady(this, oracle);
+            return await(new Import(oracle, file, batchSize));
+        }
+    }
+
+    /**
+     * A class rather than a lambda, so that it can be checkpointed while the flow waits for it.
+     */
+    class Import implements FlowExternalOperation<ImportReport> {
+        @NotNull
+        private final DiligenceOracle oracle;
+        @NotNull
+        private final String file;
+        private final int batchSize;
+
+        Import(@NotNull final DiligenceOracle oracle, @NotNull final String file, final int batchSize) {
+            this.oracle = oracle;
+            this.file = file;
+            this.batchSize = batchSize;
+        }
+
+        @NotNull
+        @Override
+        public ImportReport execute(@NotNull final String deduplicationId) {
+            return oracle.importStatuses(Paths.get(file), batchSize);
+        }
+    }
+
+    @CordaSerializable
+    class ImportReport {
+        private final long recordCount;
+        private final long linkedCount;
+        private final long millis;
+
+        public ImportReport(final long recordCount, final long linkedCount, final long millis) {
+            this.recordCount = recordCount;
+            this.linkedCount = linkedCount;
+            this.millis = millis;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * @return The number of records that set a lien, the others cleared one.
+         */
+        public long getLinkedCount() {
+            return linkedCount;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public long getRecordsPerSecond() {
+            return recordCount * 1_000 / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            return recordCount + " records, " + linkedCount + " linked, in " + millis + " ms, "
+                    + getRecordsPerSecond() + " records/s";
+        }
+    }
+
 }
@@ -0,0 +1,186 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.state.DiligenceOracleUtilities;
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import com.template.diligence.state.DueDiligence;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, on the requesting node, the statuses received from diligence oracles, so that the same token is not asked
+ * about again and again while negotiating. A status is handed out for a fraction of
+ * {@link DiligenceOracleUtilities#VALID_DURATION}, and dropped as soon as a {@link DueDiligence} about its token is
+ * consumed in the local vault, as its certification is then done with.
+ */
+@CordaService
+public class DiligenceStatusCache extends SingletonSerializeAsToken {
+
+    private final static Logger log = LoggerFactory.getLogger(DiligenceStatusCache.class);
+
+    /**
+     * The fraction, from 0 to 1, of {@link DiligenceOracleUtilities#VALID_DURATION} that a status is kept for. 0
+     * disables the cache.
+     */
+    public static final String VALID_FRACTION_CONFIG = "diligenceStatusCacheFraction";
+    public static final double DEFAULT_VALID_FRACTION = 0.5;
+    /**
+     * How many statuses to put in between sweeps of the expired ones.
+     */
+    private static final int PUTS_PER_SWEEP = 1 << 10;
+
+    private final long lifetimeMillis;
+    @NotNull
+    private final ConcurrentMap<Key, Entry> statuses = new ConcurrentHashMap<>();
+    @NotNull
+    private final AtomicLong putCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong hitCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong missCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private static class Key {
+        @NotNull
+        final AbstractParty oracle;
+        @NotNull
+        final UniqueIdentifier tokenId;
+
+        Key(@NotNull final AbstractParty oracle, @NotNull final UniqueIdentifier tokenId) {
+            this.oracle = oracle;
+            this.tokenId = tokenId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return oracle.equals(key.oracle) &&
+                    tokenId.equals(key.tokenId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(oracle, tokenId);
+        }
+    }
+
+    private static class Entry {
+        @NotNull
+        final Status status;
+        final long expiresAtMillis;
+
+        Entry(@NotNull final Status status, final long expiresAtMillis) {
+            this.status = status;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public DiligenceStatusCache(@NotNull final AppServiceHub serviceHub) {
+        //noinspection ConstantConditions
+        if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        final double fraction = config.exists(VALID_FRACTION_CONFIG)
+                ? config.getDouble(VALID_FRACTION_CONFIG)
+                : DEFAULT_VALID_FRACTION;
+        if (fraction < 0 || 1 < fraction)
+            throw new IllegalArgumentException(VALID_FRACTION_CONFIG + " should be between 0 and 1");
+        this.lifetimeMillis = (long) (DiligenceOracleUtilities.VALID_DURATION.toMillis() * fraction);
+        // Unlike trackBy, this feed does not query the vault, so it does not compete for the db connection.
+        serviceHub.getVaultService().getUpdates().subscribe(
+                this::handleUpdate,
+                error -> log.error("In DueDiligence tracking", error));
+    }
+
+    private void handleUpdate(@NotNull final Vault.Update<?> update) {
+        update.getConsumed().forEach(it -> {
+            if (!(it.getState().getData() instanceof DueDiligence)) return;
+            final DueDiligence consumed = (DueDiligence) it.getState().getData();
+            if (statuses.remove(new Key(consumed.getOracle(), consumed.getTokenId())) != null)
+                invalidationCount.incrementAndGet();
+        });
+    }
+
+    /**
+     * @return The status last received from this oracle about this token, if recent enough.
+     */
+    @Nullable
+    public Status get(@NotNull final AbstractParty oracle, @NotNull final UniqueIdentifier tokenId) {
+        final Key key = new Key(oracle, tokenId);
+        final Entry entry = statuses.get(key);
+        if (entry != null && System.currentTimeMillis() < entry.expiresAtMillis) {
+            hitCount.incrementAndGet();
+            return entry.status;
+        }
+        // Only drop it if no fresher one came in meanwhile.
+        if (entry != null) statuses.remove(key, entry);
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Keeps the status received from the oracle, in place of the previous one.
+     */
+    public void put(
+            @NotNull final AbstractParty oracle,
+            @NotNull final UniqueIdentifier tokenId,
+            @NotNull final Status status) {
+        //noinspection ConstantConditions
+        if (oracle == null) throw new NullPointerException("oracle cannot be null");
+        //noinspection ConstantConditions
+        if (tokenId == null) throw new NullPointerException("tokenId cannot be null");
+        //noinspection ConstantConditions
+        if (status == null) throw new NullPointerException("status cannot be null");
+        if (lifetimeMillis == 0) return;
+        final long now = System.currentTimeMillis();
+        statuses.put(new Key(oracle, tokenId), new Entry(status, now + lifetimeMillis));
+        // Tokens asked about once are not looked up again to be dropped.
+        if (putCount.incrementAndGet() % PUTS_PER_SWEEP == 0)
+            statuses.values().removeIf(it -> it.expiresAtMillis <= now);
+    }
+
+    public int getSize() {
+        return statuses.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The share of lookups served from the cache, or 0 if there were none.
+     */
+    public double getHitRatio() {
+        final long hits = hitCount.get();
+        final long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return The number of statuses dropped because a due diligence about their token was consumed.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.flow.DiligenceOracleInternalFlows.ImportReport;
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * Streams (tokenId, status) records from a file into a {@link DiligenceStatusRegistry}, one {@link StatusBatch} at a
+ * time, so that the file is never held in memory and each batch is made durable once.
+ * <p>
+ * A file ending in {@code .csv} has lines of {@code tokenId,status}, where the token id is the UUID of the
+ * {@link net.corda.core.contracts.UniqueIdentifier} and the status is {@code Linked} or {@code Clear}, with lines
+ * starting with {@code #} ignored. Any other file has records of 17 bytes: the most then least significant bits of
+ * the UUID, big-endian, then 1 when linked or 0 when clear.
+ */
+class DiligenceStatusImporter {
+
+    public static final String CSV_EXTENSION = ".csv";
+    static final int BINARY_RECORD_SIZE = 17;
+    private static final int READ_BUFFER_SIZE = BINARY_RECORD_SIZE << 16;
+
+    @NotNull
+    private final DiligenceStatusRegistry registry;
+    @NotNull
+    private final StatusBatch batch;
+    /**
+     * Passed the number of records imported so far, after each batch.
+     */
+    @NotNull
+    private final LongConsumer progress;
+    private long recordCount = 0;
+    private long linkedCount = 0;
+
+    DiligenceStatusImporter(
+            @NotNull final DiligenceStatusRegistry registry,
+            final int batchSize,
+            @NotNull final LongConsumer progress) {
+        //noinspection ConstantConditions
+        if (registry == null) throw new NullPointerException("registry cannot be null");
+        //noinspection ConstantConditions
+        if (progress == null) throw new NullPointerException("progress cannot be null");
+        this.registry = registry;
+        this.batch = new StatusBatch(batchSize);
+        this.progress = progress;
+    }
+
+    /**
+     * @throws IllegalArgumentException When a record is malformed. The batches before it stay imported.
+     */
+    @NotNull
+    ImportReport importFrom(@NotNull final Path file) throws IOException {
+        //noinspection ConstantConditions
+        if (file == null) throw new NullPointerException("file cannot be null");
+        final long start = System.nanoTime();
+        if (file.getFileName().toString().endsWith(CSV_EXTENSION)) importCsv(file);
+        else importBinary(file);
+        flush();
+        return new ImportReport(recordCount, linkedCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void importCsv(@NotNull final Path file) throws IOException {
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                final int comma = line.indexOf(',');
+                if (comma < 0) throw new IllegalArgumentException("Malformed line: " + line);
+                final UUID id = UUID.fromString(line.substring(0, comma).trim());
+                add(id.getMostSignificantBits(), id.getLeastSignificantBits(),
+                        Status.valueOf(line.substring(comma + 1).trim()) == Status.Linked);
+            }
+        }
+    }
+
+    private void importBinary(@NotNull final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= BINARY_RECORD_SIZE) {
+                    final long mostSig = buffer.getLong();
+                    final long leastSig = buffer.getLong();
+                    final byte status = buffer.get();
+                    if (status != 0 && status != 1)
+                        throw new IllegalArgumentException("Malformed record at " + recordCount);
+                    add(mostSig, leastSig, status == 1);
+                }
+                buffer.compact();
+            }
+            if (buffer.position() != 0) throw new IllegalArgumentException("Truncated record at " + recordCount);
+        }
+    }
+
+    private void add(final long mostSig, final long leastSig, final boolean linked) throws IOException {
+        if (linked) linkedCount++;
+        recordCount++;
+        if (batch.add(mostSig, leastSig, linked)) flush();
+    }
+
+    private void flush() throws IOException {
+        if (batch.size() == 0) return;
+        registry.setAll(batch);
+        batch.clear();
+        progress.accept(recordCount);
+    }
+
+}
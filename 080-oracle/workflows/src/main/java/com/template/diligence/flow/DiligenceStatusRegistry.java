@@ -0,0 +1,356 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import net.corda.core.contracts.UniqueIdentifier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * The lien statuses of the {@link DiligenceOracle}. Only the {@link Status#Linked} token ids are kept in memory, in a
+ * {@link LinkedIdIndex} fronted by a {@link LinkedIdBloomFilter}, so that most {@link Status#Clear} answers are given
+ * by the filter alone. Readers never lock, while writers are serialised.
+ * <p>
+ * When given a directory, every change is first appended to a log of memory-mapped segments, which is replayed on
+ * startup. The log is compacted on startup when it holds mostly superseded changes.
+ */
+class DiligenceStatusRegistry implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(DiligenceStatusRegistry.class);
+
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+    public static final int DEFAULT_EXPECTED_LINKED = 1 << 16;
+    private static final int MAX_PRESIZED_LINKED = 1 << 23;
+    /*
+     * Record layout, 32 bytes:
+     * 0  valid marker, written last
+     * 1  status, 1 when linked
+     * 8  most significant bits of the id
+     * 16 least significant bits of the id
+     * 24 CRC32 of bytes 1 to 23
+     * 28 padding
+     */
+    static final int RECORD_SIZE = 32;
+    private static final byte VALID = 1;
+    private static final byte LINKED = 1;
+    private static final int CRC_OFFSET = 24;
+    private static final String SEGMENT_PREFIX = "statuses-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Nullable
+    private final Path directory;
+    private final int recordsPerSegment;
+    @NotNull
+    private final LinkedIdIndex index;
+    // Null only while recovering.
+    private volatile LinkedIdBloomFilter filter;
+    /**
+     * Map key: segment number. Guarded by this.
+     */
+    @NotNull
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    /**
+     * The next slot to write, across all segments. Guarded by this.
+     */
+    private long nextSlot;
+    private final long recoveryMillis;
+    @NotNull
+    private final AtomicLong filteredCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    /**
+     * @param directory       Where to keep the log, or null to keep the statuses in memory only.
+     * @param expectedLinked  How many linked ids to size the index and the filter for. They grow past it.
+     */
+    DiligenceStatusRegistry(
+            @Nullable final Path directory,
+            final int recordsPerSegment,
+            final int expectedLinked) throws IOException {
+        if (recordsPerSegment <= 0) throw new IllegalArgumentException("recordsPerSegment must be positive");
+        if (expectedLinked < 0) throw new IllegalArgumentException("expectedLinked cannot be negative");
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        final long start = System.nanoTime();
+        final Map<Long, Path> found;
+        if (directory != null) {
+            Files.createDirectories(directory);
+            found = findSegments();
+        } else {
+            found = Collections.emptyMap();
+        }
+        // Sized for the records found, so that it does not grow while recovering, within reason.
+        this.index = new LinkedIdIndex((int) Math.max(expectedLinked,
+                Math.min((long) found.size() * recordsPerSegment, MAX_PRESIZED_LINKED)));
+        final long replayed = recover(found);
+        if (replayed > 2L * index.size() + recordsPerSegment) compact();
+        this.filter = buildFilter(Math.max(expectedLinked, 2 * index.size()));
+        this.recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Recovered " + index.size() + " linked ids in " + recoveryMillis + " ms");
+    }
+
+    DiligenceStatusRegistry(@Nullable final Path directory) throws IOException {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_EXPECTED_LINKED);
+    }
+
+    @NotNull
+    Status get(@NotNull final UniqueIdentifier tokenId) {
+        final UUID id = tokenId.getId();
+        //noinspection ConstantConditions
+        if (!filter.mightContain(id.getMostSignificantBits(), id.getLeastSignificantBits())) {
+            filteredCount.incrementAndGet();
+            return Status.Clear;
+        }
+        indexedCount.incrementAndGet();
+        return index.contains(id.getMostSignificantBits(), id.getLeastSignificantBits())
+                ? Status.Linked
+                : Status.Clear;
+    }
+
+    /**
+     * Logs the change, makes it durable, then applies it.
+     */
+    synchronized void set(@NotNull final UniqueIdentifier tokenId, @NotNull final Status status) throws IOException {
+        //noinspection ConstantConditions
+        if (tokenId == null) throw new NullPointerException("tokenId cannot be null");
+        //noinspection ConstantConditions
+        if (status == null) throw new NullPointerException("status cannot be null");
+        final UUID id = tokenId.getId();
+        final boolean linked = status == Status.Linked;
+        if (directory != null) append(id.getMostSignificantBits(), id.getLeastSignificantBits(), linked).force();
+        apply(id.getMostSignificantBits(), id.getLeastSignificantBits(), linked);
+    }
+
+    /**
+     * Like {@link #set} for each change of the batch, but makes them durable once, and applies them at once so that
+     * {@link #get} sees either none or all of them.
+     */
+    synchronized void setAll(@NotNull final StatusBatch batch) throws IOException {
+        //noinspection ConstantConditions
+        if (batch == null) throw new NullPointerException("batch cannot be null");
+        if (directory != null) {
+            final long firstSegment = nextSlot / recordsPerSegment;
+            for (int i = 0; i < batch.size(); i++) append(batch.mostSigs[i], batch.leastSigs[i], batch.linked[i]);
+            segments.tailMap(firstSegment).values().forEach(MappedByteBuffer::force);
+        }
+        int linkedCount = 0;
+        for (int i = 0; i < batch.size(); i++) if (batch.linked[i]) linkedCount++;
+        final LinkedIdBloomFilter current = admitting(linkedCount);
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.linked[i]) current.add(batch.mostSigs[i], batch.leastSigs[i]);
+        }
+        index.update(batch);
+    }
+
+    int getLinkedCount() {
+        return index.size();
+    }
+
+    long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    /**
+     * @return The number of lookups answered by the filter alone.
+     */
+    long getFilteredCount() {
+        return filteredCount.get();
+    }
+
+    /**
+     * @return The number of lookups that went to the index.
+     */
+    long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.values().forEach(MappedByteBuffer::force);
+        segments.clear();
+    }
+
+    /**
+     * Called with the lock held, or from the constructor.
+     */
+    private void apply(final long mostSig, final long leastSig, final boolean linked) {
+        if (!linked) {
+            // The filter keeps answering "maybe" for it, the index has the last word.
+            index.remove(mostSig, leastSig);
+            return;
+        }
+        // It is built after recovering.
+        if (filter != null) admitting(1).add(mostSig, leastSig);
+        index.add(mostSig, leastSig);
+    }
+
+    /**
+     * Called with the lock held, before adding to the index, so that a linked id is in the filter by the time the
+     * index has it.
+     *
+     * @return The filter to add the ids to, rebuilt larger when they would not fit.
+     */
+    @NotNull
+    private LinkedIdBloomFilter admitting(final int linkedCount) {
+        final LinkedIdBloomFilter current = filter;
+        //noinspection ConstantConditions
+        if (index.size() + linkedCount <= current.getCapacity()) return current;
+        final LinkedIdBloomFilter rebuilt = buildFilter(2 * (index.size() + linkedCount));
+        filter = rebuilt;
+        return rebuilt;
+    }
+
+    @NotNull
+    private LinkedIdBloomFilter buildFilter(final int capacity) {
+        return LinkedIdBloomFilter.of(capacity, index);
+    }
+
+    /**
+     * Called with the lock held, or from the constructor.
+     *
+     * @return The segment written to.
+     */
+    @NotNull
+    private MappedByteBuffer append(final long mostSig, final long leastSig, final boolean linked) throws IOException {
+        final long slot = nextSlot++;
+        final long number = slot / recordsPerSegment;
+        MappedByteBuffer segment = segments.get(number);
+        if (segment == null) {
+            segment = open(segmentFile(number));
+            segments.put(number, segment);
+        }
+        final int offset = (int) (slot % recordsPerSegment) * RECORD_SIZE;
+        segment.put(offset + 1, linked ? LINKED : 0);
+        segment.putLong(offset + 8, mostSig);
+        segment.putLong(offset + 16, leastSig);
+        segment.putInt(offset + CRC_OFFSET, crc(segment, offset));
+        segment.put(offset, VALID);
+        return segment;
+    }
+
+    /**
+     * @return The number of records replayed.
+     */
+    private long recover(@NotNull final Map<Long, Path> found) throws IOException {
+        long replayed = 0;
+        long last = -1;
+        int firstFree = 0;
+        final CRC32 crc = new CRC32();
+        for (final Map.Entry<Long, Path> entry : found.entrySet()) {
+            last = entry.getKey();
+            final MappedByteBuffer segment = open(entry.getValue());
+            segments.put(entry.getKey(), segment);
+            final ByteBuffer view = segment.duplicate();
+            firstFree = recordsPerSegment;
+            for (int i = 0; i < recordsPerSegment; i++) {
+                final int offset = i * RECORD_SIZE;
+                // Records are written in order, so the first invalid one is where writing stopped.
+                if (segment.get(offset) != VALID
+                        || segment.getInt(offset + CRC_OFFSET) != crc(view, crc, offset)) {
+                    firstFree = i;
+                    break;
+                }
+                apply(segment.getLong(offset + 8), segment.getLong(offset + 16), segment.get(offset + 1) == LINKED);
+                replayed++;
+            }
+        }
+        // Carry on after the last good record, overwriting a torn one.
+        nextSlot = last < 0 ? 0 : last * recordsPerSegment + firstFree;
+        return replayed;
+    }
+
+    /**
+     * Writes the linked ids to new segments, then deletes the previous ones. If interrupted, replaying both gives
+     * the same statuses.
+     */
+    private void compact() throws IOException {
+        final Map<Long, MappedByteBuffer> previous = new TreeMap<>(segments);
+        // Start on a fresh segment.
+        nextSlot = (segments.isEmpty() ? 0 : segments.lastKey() + 1) * recordsPerSegment;
+        final IOException[] failure = new IOException[1];
+        index.forEach((mostSig, leastSig) -> {
+            if (failure[0] != null) return;
+            try {
+                append(mostSig, leastSig, true);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) throw failure[0];
+        for (final Map.Entry<Long, MappedByteBuffer> entry : previous.entrySet()) {
+            segments.remove(entry.getKey());
+        }
+        segments.values().forEach(MappedByteBuffer::force);
+        for (final Long number : previous.keySet()) Files.deleteIfExists(segmentFile(number));
+        log.info("Compacted the status log from " + previous.size() + " to " + segments.size() + " segments");
+    }
+
+    @NotNull
+    private Map<Long, Path> findSegments() throws IOException {
+        final Map<Long, Path> found = new TreeMap<>();
+        //noinspection ConstantConditions
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    found.put(Long.parseLong(name.substring(
+                            SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file " + file);
+                }
+            }
+        }
+        return found;
+    }
+
+    @NotNull
+    private MappedByteBuffer open(@NotNull final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping outlives the channel.
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        }
+    }
+
+    private static int crc(@NotNull final ByteBuffer segment, final int offset) {
+        return crc(segment.duplicate(), new CRC32(), offset);
+    }
+
+    /**
+     * @param view A view of the segment whose position and limit can be moved.
+     */
+    private static int crc(@NotNull final ByteBuffer view, @NotNull final CRC32 crc, final int offset) {
+        view.limit(offset + CRC_OFFSET).position(offset + 1);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    @NotNull
+    private Path segmentFile(final long number) {
+        //noinspection ConstantConditions
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+}
@@ -6,6 +6,7 @@ import com.template.diligence.state.DiligenceOracleUtilities;
 import com.template.diligence.state.DiligenceOracleUtilities.Status;
 import com.template.diligence.state.DueDiligence;
 import com.template.diligence.state.DueDiligenceContract.Commands;
+import com.template.service.ServiceStartup;
 import net.corda.core.contracts.ContractState;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.TimeWindow;
@@ -24,8 +25,11 @@ import java.security.PublicKey;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.template.diligence.state.DiligenceOracleUtilities.VALID_DURATION;
@@ -34,6 +38,10 @@ public interface DueDiligenceOracleFlows {
 
     interface Query {
 
+        /**
+         * Its handler is {@link Answer}. A status still in the {@link DiligenceStatusCache} is returned without
+         * asking the oracle.
+         */
         @InitiatingFlow
         class Request extends FlowLogic<Status> {
 
@@ -41,26 +49,45 @@ public interface DueDiligenceOracleFlows {
             private final AbstractParty oracle;
             @NotNull
             private final UniqueIdentifier tokenId;
+            private final boolean useCache;
 
+            /**
+             * @param useCache Whether a cached status can be returned. The status received is cached regardless.
+             */
             public Request(
                     @NotNull final AbstractParty oracle,
-                    @NotNull final UniqueIdentifier tokenId) {
+                    @NotNull final UniqueIdentifier tokenId,
+                    final boolean useCache) {
                 //noinspection ConstantConditions
                 if (oracle == null) throw new NullPointerException("oracle cannot be null");
                 //noinspection ConstantConditions
                 if (tokenId == null) throw new NullPointerException("tokenId cannot be null");
                 this.oracle = oracle;
                 this.tokenId = tokenId;
+                this.useCache = useCache;
+            }
+
+            public Request(
+                    @NotNull final AbstractParty oracle,
+                    @NotNull final UniqueIdentifier tokenId) {
+                this(oracle, tokenId, true);
             }
 
             @NotNull
             @Suspendable
             @Override
             public Status call() throws FlowException {
+                final DiligenceStatusCache cache = getServiceHub().cordaService(DiligenceStatusCache.class);
+                if (useCache) {
+                    final Status cached = cache.get(oracle, tokenId);
+                    if (cached != null) return cached;
+                }
                 final Party oracleHost = getServiceHub().getIdentityService()
                         .requireWellKnownPartyFromAnonymous(oracle);
-                return initiateFlow(oracleHost).sendAndReceive(Status.class, tokenId)
+                final Status status = initiateFlow(oracleHost).sendAndReceive(Status.class, tokenId)
                         .unwrap(it -> it);
+                cache.put(oracle, tokenId, status);
+                return status;
             }
         }
 
@@ -81,8 +108,10 @@ public interface DueDiligenceOracleFlows {
             @Suspendable
             @Override
             public Status call() throws FlowException {
-                final Status status = getServiceHub().cordaService(DiligenceOracle.class)
-                        .query(requesterSession.receive(UniqueIdentifier.class).unwrap(it -> it));
+                final UniqueIdentifier tokenId = requesterSession.receive(UniqueIdentifier.class).unwrap(it -> it);
+                final DiligenceOracle oracle = getServiceHub().cordaService(DiligenceOracle.class);
+                ServiceStartup.awaitReady(this, oracle);
+                final Status status = oracle.query(tokenId);
                 requesterSession.send(status);
                 return status;
             }
@@ -90,6 +119,135 @@ public interface DueDiligenceOracleFlows {
 
     }
 
+    /**
+     * Asks about many token ids in one round trip. As {@link Status#Clear} is the default, only the linked ones come
+     * back.
+     */
+    interface QueryBatch {
+
+        int MAX_BATCH_SIZE = 10_000;
+
+        /**
+         * Its handler is {@link Answer}. Only the token ids not in the {@link DiligenceStatusCache} are sent to the
+         * oracle, if any.
+         */
+        @InitiatingFlow
+        class Request extends FlowLogic<Set<UniqueIdentifier>> {
+
+            @NotNull
+            private final AbstractParty oracle;
+            @NotNull
+            private final List<UniqueIdentifier> tokenIds;
+            private final boolean useCache;
+
+            /**
+             * @param useCache Whether cached statuses can be used. The statuses received are cached regardless.
+             */
+            public Request(
+                    @NotNull final AbstractParty oracle,
+                    @NotNull final Collection<UniqueIdentifier> tokenIds,
+                    final boolean useCache) {
+                //noinspection ConstantConditions
+                if (oracle == null) throw new NullPointerException("oracle cannot be null");
+                //noinspection ConstantConditions
+                if (tokenIds == null) throw new NullPointerException("tokenIds cannot be null");
+                if (MAX_BATCH_SIZE < tokenIds.size())
+                    throw new IllegalArgumentException("Cannot ask about more than " + MAX_BATCH_SIZE + " token ids");
+                this.oracle = oracle;
+                this.tokenIds = new ArrayList<>(tokenIds);
+                this.useCache = useCache;
+            }
+
+            public Request(
+                    @NotNull final AbstractParty oracle,
+                    @NotNull final Collection<UniqueIdentifier> tokenIds) {
+                this(oracle, tokenIds, true);
+            }
+
+            /**
+             * @return The token ids that are {@link Status#Linked}, the others are {@link Status#Clear}.
+             */
+            @NotNull
+            @Suspendable
+            @Override
+            public Set<UniqueIdentifier> call() throws FlowException {
+                final DiligenceStatusCache cache = getServiceHub().cordaService(DiligenceStatusCache.class);
+                final Set<UniqueIdentifier> linked = new HashSet<>();
+                final List<UniqueIdentifier> toAsk = new ArrayList<>(useCache ? 0 : tokenIds.size());
+                if (useCache) {
+                    for (final UniqueIdentifier tokenId : tokenIds) {
+                        final Status cached = cache.get(oracle, tokenId);
+                        if (cached == null) toAsk.add(tokenId);
+                        else if (cached == Status.Linked) linked.add(tokenId);
+                    }
+                } else {
+                    toAsk.addAll(tokenIds);
+                }
+                if (toAsk.isEmpty()) return linked;
+
+                final Party oracleHost = getServiceHub().getIdentityService()
+                        .requireWellKnownPartyFromAnonymous(oracle);
+                final Set<UniqueIdentifier> asked = new HashSet<>(toAsk);
+                final Set<UniqueIdentifier> answered = initiateFlow(oracleHost).sendAndReceive(Set.class, toAsk)
+                        .unwrap(it -> {
+                            final Set<UniqueIdentifier> checked = new HashSet<>(it.size());
+                            for (final Object element : it) {
+                                if (!(element instanceof UniqueIdentifier))
+                                    throw new FlowException("Unexpected token id");
+                                if (!asked.contains(element))
+                                    throw new FlowException("The oracle answered about token ids not asked for");
+                                checked.add((UniqueIdentifier) element);
+                            }
+                            return checked;
+                        });
+                for (final UniqueIdentifier tokenId : toAsk) {
+                    cache.put(oracle, tokenId, answered.contains(tokenId) ? Status.Linked : Status.Clear);
+                }
+                linked.addAll(answered);
+                return linked;
+            }
+        }
+
+        @SuppressWarnings("unused")
+        @InitiatedBy(Request.class)
+        class Answer extends FlowLogic<Set<UniqueIdentifier>> {
+
+            @NotNull
+            private final FlowSession requesterSession;
+
+            public Answer(@NotNull final FlowSession requesterSession) {
+                //noinspection ConstantConditions
+                if (requesterSession == null) throw new NullPointerException("requesterSession cannot be null");
+                this.requesterSession = requesterSession;
+            }
+
+            @NotNull
+            @Suspendable
+            @Override
+            public Set<UniqueIdentifier> call() throws FlowException {
+                final List<UniqueIdentifier> tokenIds = requesterSession.receive(List.class)
+                        .unwrap(it -> {
+                            if (MAX_BATCH_SIZE < it.size())
+                                throw new FlowException("Cannot answer about more than " + MAX_BATCH_SIZE
+                                        + " token ids");
+                            final List<UniqueIdentifier> checked = new ArrayList<>(it.size());
+                            for (final Object element : it) {
+                                if (!(element instanceof UniqueIdentifier))
+                                    throw new FlowException("Unexpected token id");
+                                checked.add((UniqueIdentifier) element);
+                            }
+                            return checked;
+                        });
+                final DiligenceOracle oracle = getServiceHub().cordaService(DiligenceOracle.class);
+                ServiceStartup.awaitReady(this, oracle);
+                final Set<UniqueIdentifier> linked = oracle.query(tokenIds);
+                requesterSession.send(linked);
+                return linked;
+            }
+        }
+
+    }
+
     interface Prepare {
 
         /**
@@ -437,27 +595,49 @@ public interface DueDiligenceOracleFlows {
             }
 
             @NotNull
-            private final StateAndRef<DueDiligence> dueDilRef;
+            private final List<StateAndRef<DueDiligence>> dueDilRefs;
             @NotNull
-            private final Status status;
+            private final List<Status> statuses;
             @NotNull
             private final ProgressTracker progressTracker;
 
+            /**
+             * Certifies all the tokens in a single transaction, so that it takes one oracle signature and one
+             * notarisation. They need to have the same oracle and notary.
+             *
+             * @param statuses The status of each token, in the order of the due diligences.
+             */
             public RequestStraight(
-                    @NotNull final StateAndRef<DueDiligence> dueDilRef,
-                    @NotNull final Status status,
+                    @NotNull final List<StateAndRef<DueDiligence>> dueDilRefs,
+                    @NotNull final List<Status> statuses,
                     @NotNull final ProgressTracker progressTracker) {
                 //noinspection ConstantConditions
-                if (dueDilRef == null) throw new NullPointerException("dueDilRef cannot be null");
+                if (dueDilRefs == null) throw new NullPointerException("dueDilRefs cannot be null");
                 //noinspection ConstantConditions
-                if (status == null) throw new NullPointerException("status cannot be null");
+                if (statuses == null) throw new NullPointerException("statuses cannot be null");
                 //noinspection ConstantConditions
                 if (progressTracker == null) throw new NullPointerException("progressTracker cannot be null");
-                this.dueDilRef = dueDilRef;
-                this.status = status;
+                if (dueDilRefs.isEmpty()) throw new IllegalArgumentException("dueDilRefs cannot be empty");
+                if (dueDilRefs.size() != statuses.size())
+                    throw new IllegalArgumentException("There should be a status per due diligence");
+                this.dueDilRefs = new ArrayList<>(dueDilRefs);
+                this.statuses = new ArrayList<>(statuses);
                 this.progressTracker = progressTracker;
             }
 
+            public RequestStraight(
+                    @NotNull final List<StateAndRef<DueDiligence>> dueDilRefs,
+                    @NotNull final List<Status> statuses) {
+                this(dueDilRefs, statuses, tracker());
+            }
+
+            public RequestStraight(
+                    @NotNull final StateAndRef<DueDiligence> dueDilRef,
+                    @NotNull final Status status,
+                    @NotNull final ProgressTracker progressTracker) {
+                this(Collections.singletonList(dueDilRef), Collections.singletonList(status), progressTracker);
+            }
+
             public RequestStraight(
                     @NotNull final StateAndRef<DueDiligence> dueDilRef,
                     @NotNull final Status status) {
@@ -469,24 +649,35 @@ public interface DueDiligenceOracleFlows {
             @Override
             public SignedTransaction call() throws FlowException {
                 progressTracker.setCurrentStep(GENERATING_TRANSACTION);
-                final DueDiligence dueDil = dueDilRef.getState().getData();
-                final TransactionBuilder builder = new TransactionBuilder(dueDilRef.getState().getNotary())
-                        .addInputState(dueDilRef)
-                        .addCommand(new Commands.Certify(dueDil.getTokenId(), status),
-                                dueDil.getOracle().getOwningKey())
+                final DueDiligence first = dueDilRefs.get(0).getState().getData();
+                final Party notary = dueDilRefs.get(0).getState().getNotary();
+                final TransactionBuilder builder = new TransactionBuilder(notary)
                         .setTimeWindow(TimeWindow.untilOnly(
                                 Instant.now().plus(VALID_DURATION).minus(Duration.ofSeconds(1))));
+                final Set<AbstractParty> participants = new HashSet<>();
+                for (int i = 0; i < dueDilRefs.size(); i++) {
+                    final StateAndRef<DueDiligence> dueDilRef = dueDilRefs.get(i);
+                    final DueDiligence dueDil = dueDilRef.getState().getData();
+                    if (!dueDil.getOracle().equals(first.getOracle()))
+                        throw new FlowException("The due diligences should all have the same oracle");
+                    if (!dueDilRef.getState().getNotary().equals(notary))
+                        throw new FlowException("The due diligences should all have the same notary");
+                    builder.addInputState(dueDilRef)
+                            .addCommand(new Commands.Certify(dueDil.getTokenId(), statuses.get(i)),
+                                    dueDil.getOracle().getOwningKey());
+                    participants.addAll(dueDil.getParticipants());
+                }
 
                 progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
                 builder.verify(getServiceHub());
 
                 progressTracker.setCurrentStep(REQUESTING_ORACLE);
                 final WireTransaction wtx = builder.toWireTransaction(getServiceHub());
-                final TransactionSignature oracleSig = subFlow(new Request(dueDil.getOracle(), wtx));
+                final TransactionSignature oracleSig = subFlow(new Request(first.getOracle(), wtx));
                 final SignedTransaction signed = new SignedTransaction(wtx, Collections.singletonList(oracleSig));
 
                 progressTracker.setCurrentStep(RESOLVING_PARTICIPANTS);
-                final List<Party> otherParticipants = new ArrayList<>(dueDil.getParticipants()).stream()
+                final List<Party> otherParticipants = participants.stream()
                         .map(it -> getServiceHub().getIdentityService().requireWellKnownPartyFromAnonymous(it))
                         .filter(it -> !getOurIdentity().equals(it))
                         .distinct()
@@ -578,10 +769,11 @@ public interface DueDiligenceOracleFlows {
             public TransactionSignature call() throws FlowException {
                 final FilteredTransaction received = requesterSession.receive(FilteredTransaction.class)
                         .unwrap(it -> it);
+                final DiligenceOracle oracle = getServiceHub().cordaService(DiligenceOracle.class);
+                ServiceStartup.awaitReady(this, oracle);
                 final TransactionSignature sig;
                 try {
-                    sig = getServiceHub().cordaService(DiligenceOracle.class)
-                            .sign(received);
+                    sig = oracle.sign(received);
                 } catch (Exception e) {
                     throw new FlowException(e);
                 }
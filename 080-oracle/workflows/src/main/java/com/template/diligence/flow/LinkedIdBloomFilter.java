@@ -0,0 +1,111 @@
+package com.template.diligence.flow;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tells that a token id is certainly not linked, for about 99% of the ids that are not, at 10 bits per id. It is
+ * blocked: the bits of an id all fall in the same 512-bit block, so that a lookup costs one cache miss rather than
+ * one per bit. Bits are only ever set, so ids removed since it was built still answer "maybe".
+ */
+class LinkedIdBloomFilter {
+
+    private static final int BITS_PER_ID = 10;
+    private static final int HASH_COUNT = 7;
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BLOCK_BITS = WORDS_PER_BLOCK * Long.SIZE;
+
+    private final AtomicLongArray words;
+    private final long blockMask;
+    private final int capacity;
+
+    /**
+     * @param capacity The number of ids up to which the false positive rate holds.
+     */
+    LinkedIdBloomFilter(final int capacity) {
+        this(capacity, new long[wordCountFor(capacity)]);
+    }
+
+    private LinkedIdBloomFilter(final int capacity, final long[] words) {
+        this.words = new AtomicLongArray(words);
+        this.blockMask = words.length / WORDS_PER_BLOCK - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Builds it with plain writes, as nobody reads it yet.
+     */
+    static LinkedIdBloomFilter of(final int capacity, final LinkedIdIndex ids) {
+        final long[] words = new long[wordCountFor(capacity)];
+        final long blockMask = words.length / WORDS_PER_BLOCK - 1;
+        ids.forEach((mostSig, leastSig) -> {
+            final long hash = hash(mostSig, leastSig);
+            final int block = blockOf(hash, blockMask);
+            for (int i = 0; i < HASH_COUNT; i++) {
+                final int bit = bitOf(hash, i);
+                words[block + (bit >>> 6)] |= 1L << bit;
+            }
+        });
+        return new LinkedIdBloomFilter(capacity, words);
+    }
+
+    private static int wordCountFor(final int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity cannot be negative");
+        final long bits = Math.max(BLOCK_BITS, Long.highestOneBit((long) capacity * BITS_PER_ID - 1) << 1);
+        if (bits / Long.SIZE > Integer.MAX_VALUE) throw new IllegalArgumentException("capacity too large");
+        return (int) (bits / Long.SIZE);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void add(final long mostSig, final long leastSig) {
+        final long hash = hash(mostSig, leastSig);
+        final int block = blockOf(hash, blockMask);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            final int bit = bitOf(hash, i);
+            final int word = block + (bit >>> 6);
+            final long flag = 1L << bit;
+            if ((words.get(word) & flag) == 0) words.accumulateAndGet(word, flag, (a, b) -> a | b);
+        }
+    }
+
+    boolean mightContain(final long mostSig, final long leastSig) {
+        final long hash = hash(mostSig, leastSig);
+        final int block = blockOf(hash, blockMask);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            final int bit = bitOf(hash, i);
+            if ((words.get(block + (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private static long hash(final long mostSig, final long leastSig) {
+        return mix(mostSig ^ mix(leastSig));
+    }
+
+    /**
+     * @return The index of the first word of the block.
+     */
+    private static int blockOf(final long hash, final long blockMask) {
+        return (int) (mix(hash) & blockMask) * WORDS_PER_BLOCK;
+    }
+
+    /**
+     * @return The bit to set in the block, from 9 bits of the hash.
+     */
+    private static int bitOf(final long hash, final int i) {
+        return (int) (hash >>> (i * 9)) & (BLOCK_BITS - 1);
+    }
+
+    private static long mix(long h) {
+        // The variant 13 of the MurmurHash3 finaliser.
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h;
+    }
+
+}
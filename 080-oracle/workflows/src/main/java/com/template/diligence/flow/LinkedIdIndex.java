@@ -0,0 +1,212 @@
+package com.template.diligence.flow;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The set of the token ids with a lien. Ids are kept as pairs of longs side by side in a single array, in open
+ * addressing with linear probing, so that 10 million of them take 256 MB instead of gigabytes of boxed entries, and a
+ * lookup mostly costs one cache miss. Readers do not lock unless a writer got in the way.
+ */
+class LinkedIdIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    /**
+     * The most significant bits of the id in slot i are at 2i, the least significant at 2i + 1. The pair (0, 0)
+     * marks an empty slot, so that id is kept aside.
+     */
+    private long[] slots;
+    private boolean containsZero = false;
+    private int size = 0;
+
+    LinkedIdIndex(final int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("expectedSize cannot be negative");
+        slots = new long[2 * capacityFor(expectedSize)];
+    }
+
+    boolean contains(final long mostSig, final long leastSig) {
+        final long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            final boolean found = find(mostSig, leastSig);
+            if (lock.validate(stamp)) return found;
+        }
+        final long readStamp = lock.readLock();
+        try {
+            return find(mostSig, leastSig);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * @return Whether it was not there already.
+     */
+    boolean add(final long mostSig, final long leastSig) {
+        final long stamp = lock.writeLock();
+        try {
+            return addLocked(mostSig, leastSig);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return Whether it was there.
+     */
+    boolean remove(final long mostSig, final long leastSig) {
+        final long stamp = lock.writeLock();
+        try {
+            return removeLocked(mostSig, leastSig);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Applies the batch under one lock, so that readers see either none or all of it.
+     */
+    void update(@NotNull final StatusBatch batch) {
+        final long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.linked[i]) addLocked(batch.mostSigs[i], batch.leastSigs[i]);
+                else removeLocked(batch.mostSigs[i], batch.leastSigs[i]);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        final long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    interface IdConsumer {
+        void accept(long mostSig, long leastSig);
+    }
+
+    /**
+     * Passes all the ids, while holding off writers.
+     */
+    void forEach(final IdConsumer consumer) {
+        final long stamp = lock.readLock();
+        try {
+            if (containsZero) consumer.accept(0, 0);
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != 0 || slots[i + 1] != 0) consumer.accept(slots[i], slots[i + 1]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    static int hash(final long mostSig, final long leastSig) {
+        // The finaliser of MurmurHash3.
+        long h = mostSig ^ Long.rotateLeft(leastSig, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private boolean addLocked(final long mostSig, final long leastSig) {
+        if (mostSig == 0 && leastSig == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+        if (slotOf(slots, mostSig, leastSig) >= 0) return false;
+        final int needed = capacityFor(size + 1);
+        if (slots.length / 2 < needed) resize(needed);
+        insert(slots, mostSig, leastSig);
+        size++;
+        return true;
+    }
+
+    private boolean removeLocked(final long mostSig, final long leastSig) {
+        if (mostSig == 0 && leastSig == 0) {
+            if (!containsZero) return false;
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int hole = slotOf(slots, mostSig, leastSig);
+        if (hole < 0) return false;
+        // Shift back the entries that follow, rather than leaving a tombstone.
+        final int mask = slots.length / 2 - 1;
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots[2 * next] == 0 && slots[2 * next + 1] == 0) break;
+            final int home = hash(slots[2 * next], slots[2 * next + 1]) & mask;
+            final boolean stays = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (stays) continue;
+            slots[2 * hole] = slots[2 * next];
+            slots[2 * hole + 1] = slots[2 * next + 1];
+            hole = next;
+        }
+        slots[2 * hole] = 0;
+        slots[2 * hole + 1] = 0;
+        size--;
+        return true;
+    }
+
+    private boolean find(final long mostSig, final long leastSig) {
+        if (mostSig == 0 && leastSig == 0) return containsZero;
+        return slotOf(slots, mostSig, leastSig) >= 0;
+    }
+
+    private static int slotOf(final long[] slots, final long mostSig, final long leastSig) {
+        final int capacity = slots.length / 2;
+        final int mask = capacity - 1;
+        int slot = hash(mostSig, leastSig) & mask;
+        // Bounded, in case an optimistic reader sees a table being modified.
+        for (int probes = 0; probes < capacity; probes++) {
+            final long most = slots[2 * slot];
+            final long least = slots[2 * slot + 1];
+            if (most == mostSig && least == leastSig) return slot;
+            if (most == 0 && least == 0) return -1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static void insert(final long[] slots, final long mostSig, final long leastSig) {
+        final int mask = slots.length / 2 - 1;
+        int slot = hash(mostSig, leastSig) & mask;
+        while (slots[2 * slot] != 0 || slots[2 * slot + 1] != 0) slot = (slot + 1) & mask;
+        slots[2 * slot] = mostSig;
+        slots[2 * slot + 1] = leastSig;
+    }
+
+    private void resize(final int capacity) {
+        final long[] resized = new long[2 * capacity];
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != 0 || slots[i + 1] != 0) insert(resized, slots[i], slots[i + 1]);
+        }
+        slots = resized;
+    }
+
+    /**
+     * @return The power of 2 that keeps the load at 3/4 at most.
+     */
+    private static int capacityFor(final int size) {
+        final long needed = Math.max(MIN_CAPACITY, (size * 4L + 2) / 3 + 1);
+        if (needed > 1 << 29) throw new IllegalStateException("Too many ids");
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.template.diligence.flow;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Status changes to apply together, kept in primitive arrays so that a batch can be refilled without allocating.
+ */
+class StatusBatch {
+
+    @NotNull
+    final long[] mostSigs;
+    @NotNull
+    final long[] leastSigs;
+    @NotNull
+    final boolean[] linked;
+    private int size = 0;
+
+    StatusBatch(final int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.mostSigs = new long[capacity];
+        this.leastSigs = new long[capacity];
+        this.linked = new boolean[capacity];
+    }
+
+    /**
+     * @return Whether it is now full.
+     */
+    boolean add(final long mostSig, final long leastSig, final boolean isLinked) {
+        if (isFull()) throw new IllegalStateException("The batch is full");
+        mostSigs[size] = mostSig;
+        leastSigs[size] = leastSig;
+        linked[size] = isLinked;
+        size++;
+        return isFull();
+    }
+
+    boolean add(@NotNull final UUID id, final boolean isLinked) {
+        return add(id.getMostSignificantBits(), id.getLeastSignificantBits(), isLinked);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == mostSigs.length;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+}
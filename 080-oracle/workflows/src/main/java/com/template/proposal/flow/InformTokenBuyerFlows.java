@@ -12,13 +12,16 @@ import net.corda.core.flows.*;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.Party;
 import net.corda.core.node.StatesToRecord;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
 import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.serialization.CordaSerializable;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.utilities.ProgressTracker;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collections;
-import java.util.List;
+import java.security.PublicKey;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public interface InformTokenBuyerFlows {
@@ -153,4 +156,230 @@ public interface InformTokenBuyerFlows {
         }
     }
 
+    /**
+     * What came of a {@link SendBatch}, by host, so that a host that fails does not fail the others.
+     */
+    @CordaSerializable
+    class BatchOutcome {
+
+        /**
+         * The hosts that rejected the transactions, with why. They would reject them again.
+         */
+        @NotNull
+        private final Map<Party, String> rejections;
+        /**
+         * The buyers on the hosts whose flow ended before they answered, as when the host restarted. They are worth
+         * trying again. A host that is offline does not end its flow, it is waited for instead, so the caller has to
+         * bound the wait.
+         */
+        @NotNull
+        private final List<AbstractParty> unreached;
+
+        public BatchOutcome(
+                @NotNull final Map<Party, String> rejections,
+                @NotNull final List<AbstractParty> unreached) {
+            //noinspection ConstantConditions
+            if (rejections == null) throw new NullPointerException("The rejections cannot be null");
+            //noinspection ConstantConditions
+            if (unreached == null) throw new NullPointerException("The unreached cannot be null");
+            this.rejections = new LinkedHashMap<>(rejections);
+            this.unreached = new ArrayList<>(unreached);
+        }
+
+        public boolean isComplete() {
+            return rejections.isEmpty() && unreached.isEmpty();
+        }
+
+        @NotNull
+        public Map<Party, String> getRejections() {
+            return Collections.unmodifiableMap(rejections);
+        }
+
+        @NotNull
+        public List<AbstractParty> getUnreached() {
+            return Collections.unmodifiableList(unreached);
+        }
+    }
+
+    /**
+     * Informs many buyers of many transactions, with one session per host of buyers instead of one per buyer and
+     * transaction. A host is sent its buyers and all the transactions. The hosts are served in turn, so a slow or
+     * offline host holds back those after it: give it the buyers of a single host to keep the hosts apart, as
+     * {@code SalesProposalService} does. Its handler is {@link ReceiveBatch}.
+     */
+    @InitiatingFlow
+    @StartableByService
+    @StartableByRPC
+    class SendBatch extends FlowLogic<BatchOutcome> {
+
+        private final static ProgressTracker.Step FETCHING_HOSTS = new ProgressTracker.Step(
+                "Fetching hosts of the buyers.");
+        private final static ProgressTracker.Step SENDING = new ProgressTracker.Step("Sending information to hosts.");
+        private final static ProgressTracker.Step WAITING = new ProgressTracker.Step("Waiting for hosts to record.");
+
+        @NotNull
+        public static ProgressTracker tracker() {
+            return new ProgressTracker(FETCHING_HOSTS, SENDING, WAITING);
+        }
+
+        @NotNull
+        private final List<AbstractParty> buyers;
+        @NotNull
+        private final List<SignedTransaction> txs;
+        @NotNull
+        private final ProgressTracker progressTracker;
+
+        public SendBatch(@NotNull final List<AbstractParty> buyers,
+                         @NotNull final List<SignedTransaction> txs,
+                         @NotNull final ProgressTracker progressTracker) {
+            //noinspection ConstantConditions
+            if (buyers == null) throw new NullPointerException("The buyers cannot be null");
+            if (buyers.isEmpty()) throw new IllegalArgumentException("The buyers cannot be empty");
+            //noinspection ConstantConditions
+            if (txs == null) throw new NullPointerException("The txs cannot be null");
+            if (txs.isEmpty()) throw new IllegalArgumentException("The txs cannot be empty");
+            //noinspection ConstantConditions
+            if (progressTracker == null) throw new NullPointerException("The progressTracker cannot be null");
+            this.buyers = new ArrayList<>(buyers);
+            this.txs = new ArrayList<>(txs);
+            this.progressTracker = progressTracker;
+        }
+
+        public SendBatch(@NotNull final List<AbstractParty> buyers,
+                         @NotNull final List<SignedTransaction> txs) {
+            this(buyers, txs, tracker());
+        }
+
+        /**
+         * A host that rejects the transactions, or whose flow ends, does not stop the others from being served. One
+         * that does not answer does.
+         */
+        @Suspendable
+        @Override
+        public BatchOutcome call() throws FlowException {
+            progressTracker.setCurrentStep(FETCHING_HOSTS);
+            final Map<Party, List<AbstractParty>> buyersByHost = new LinkedHashMap<>();
+            for (final AbstractParty buyer : buyers) {
+                final Party host = getServiceHub().getIdentityService().requireWellKnownPartyFromAnonymous(buyer);
+                buyersByHost.computeIfAbsent(host, it -> new ArrayList<>()).add(buyer);
+            }
+
+            progressTracker.setCurrentStep(SENDING);
+            final Map<Party, String> rejections = new LinkedHashMap<>();
+            final List<AbstractParty> unreached = new ArrayList<>();
+            final Map<Party, FlowSession> hostSessions = new LinkedHashMap<>(buyersByHost.size());
+            for (final Map.Entry<Party, List<AbstractParty>> entry : buyersByHost.entrySet()) {
+                final FlowSession hostSession = initiateFlow(entry.getKey());
+                try {
+                    hostSession.send(entry.getValue());
+                    hostSession.send(txs.size());
+                    for (final SignedTransaction tx : txs) subFlow(new SendTransactionFlow(hostSession, tx));
+                    hostSessions.put(entry.getKey(), hostSession);
+                } catch (UnexpectedFlowEndException e) {
+                    unreached.addAll(entry.getValue());
+                } catch (FlowException e) {
+                    rejections.put(entry.getKey(), String.valueOf(e.getMessage()));
+                }
+            }
+
+            // The hosts were served in turn, each SendTransactionFlow waiting for its host to resolve the backchain.
+            // Only their last checks and recording may overlap. In order to catch exceptions on their side.
+            progressTracker.setCurrentStep(WAITING);
+            for (final Map.Entry<Party, FlowSession> entry : hostSessions.entrySet()) {
+                try {
+                    entry.getValue().receive(String.class).unwrap(it -> it);
+                } catch (UnexpectedFlowEndException e) {
+                    unreached.addAll(buyersByHost.get(entry.getKey()));
+                } catch (FlowException e) {
+                    rejections.put(entry.getKey(), String.valueOf(e.getMessage()));
+                }
+            }
+            return new BatchOutcome(rejections, unreached);
+        }
+    }
+
+    @InitiatedBy(SendBatch.class)
+    class ReceiveBatch extends FlowLogic<Void> {
+
+        private static final int PAGE_SIZE = 1_000;
+
+        @NotNull
+        private final FlowSession sellerSession;
+
+        public ReceiveBatch(@NotNull final FlowSession sellerSession) {
+            //noinspection ConstantConditions
+            if (sellerSession == null) throw new NullPointerException("The sellerSession cannot be null");
+            this.sellerSession = sellerSession;
+        }
+
+        @Suspendable
+        @Override
+        public Void call() throws FlowException {
+            final List<AbstractParty> buyers = sellerSession.receive(List.class).unwrap(it -> {
+                if (it.isEmpty()) throw new FlowException("No buyers");
+                final List<AbstractParty> checked = new ArrayList<>(it.size());
+                for (final Object element : it) {
+                    if (!(element instanceof AbstractParty)) throw new FlowException("Unexpected buyer");
+                    checked.add((AbstractParty) element);
+                }
+                return checked;
+            });
+            final Set<PublicKey> buyerKeys = buyers.stream()
+                    .map(AbstractParty::getOwningKey)
+                    .collect(Collectors.toSet());
+            final Set<PublicKey> myKeys = new HashSet<>();
+            getServiceHub().getKeyManagementService().filterMyKeys(buyerKeys).forEach(myKeys::add);
+            if (!myKeys.equals(buyerKeys)) throw new FlowException("These buyers are not all hosted here");
+            final int txCount = sellerSession.receive(Integer.class).unwrap(it -> {
+                if (it <= 0) throw new FlowException("No transactions");
+                return it;
+            });
+
+            final Set<UniqueIdentifier> proposedIds = getProposedTypeIds(buyers);
+            final List<SignedTransaction> txs = new ArrayList<>(txCount);
+            for (int i = 0; i < txCount; i++) {
+                final SignedTransaction tx = subFlow(new ReceiveTransactionFlow(sellerSession));
+                final List<UniqueIdentifier> outputIds = tx.getCoreTransaction()
+                        .outputsOfType(EvolvableTokenType.class)
+                        .stream()
+                        .map(EvolvableTokenType::getLinearId)
+                        .collect(Collectors.toList());
+                if (outputIds.isEmpty()) throw new FlowException("No EvolvableTokenType, stopping");
+                if (outputIds.stream().noneMatch(proposedIds::contains))
+                    throw new FlowException("There is no SalesProposal here for this transaction");
+                txs.add(tx);
+            }
+
+            // Finally satisfied that these transactions make sense.
+            getServiceHub().recordTransactions(StatesToRecord.ALL_VISIBLE, txs);
+            sellerSession.send("Ok");
+            return null;
+        }
+
+        /**
+         * @return The linear ids of the evolvable token types proposed to the buyers, in one vault query per page.
+         */
+        @NotNull
+        private Set<UniqueIdentifier> getProposedTypeIds(@NotNull final List<AbstractParty> buyers)
+                throws TransactionResolutionException {
+            final QueryCriteria criteria = new QueryCriteria.LinearStateQueryCriteria().withParticipants(buyers);
+            final Set<UniqueIdentifier> typeIds = new HashSet<>();
+            long seen = 0;
+            for (int page = 1; ; page++) {
+                final Vault.Page<SalesProposal> found = getServiceHub().getVaultService().queryBy(
+                        SalesProposal.class, criteria, new PageSpecification(page, PAGE_SIZE));
+                // Because of the checked exception, we cannot use .stream().
+                for (final StateAndRef<SalesProposal> proposal : found.getStates()) {
+                    final TokenType it = proposal.getState().getData()
+                            .getAsset().resolve(getServiceHub()).getState().getData().getTokenType();
+                    // The pointer carries the linear id, no need to resolve it.
+                    if (it.isPointer()) typeIds.add(((TokenPointer<?>) it).getPointer().getPointer());
+                }
+                seen += found.getStates().size();
+                if (found.getStates().size() < PAGE_SIZE || seen >= found.getTotalStatesAvailable()) break;
+            }
+            return typeIds;
+        }
+    }
+
 }
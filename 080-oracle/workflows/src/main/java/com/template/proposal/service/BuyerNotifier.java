@@ -0,0 +1,237 @@
+package com.template.proposal.service;
+
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.AbstractParty;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Debounces the notifications to the buyers of a token type, by the linear id of the type. A notification waits for
+ * the window, and is replaced by any that comes for the same type meanwhile, so that the buyers are only sent the
+ * latest. {@link #offer} never blocks: at most one notification per type waits, so the backlog is bounded by the
+ * number of types. The notifier's own thread hands them to the executor, and it is this thread that is held back
+ * when the executor is full. A notification already handed to the executor, but not started, is dropped when a later
+ * one comes. So is one whose sender failed, when the executor retries it after a later one came. Its thread runs
+ * until it is closed.
+ *
+ * @param <T> What is sent, the transaction that evolved the type.
+ */
+class BuyerNotifier<T> implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(BuyerNotifier.class);
+
+    interface Sender<T> {
+        /**
+         * @return The buyers that could not be reached and are worth trying again, empty when done.
+         */
+        @NotNull
+        List<AbstractParty> send(@NotNull T message, @NotNull List<AbstractParty> buyers);
+    }
+
+    private static class Pending<T> {
+        final long version;
+        @NotNull
+        final T message;
+        @NotNull
+        final List<AbstractParty> buyers;
+
+        Pending(final long version, @NotNull final T message, @NotNull final List<AbstractParty> buyers) {
+            this.version = version;
+            this.message = message;
+            this.buyers = buyers;
+        }
+    }
+
+    /**
+     * A type whose window ends at the given time.
+     */
+    private static class Due implements Delayed {
+        @NotNull
+        final UniqueIdentifier typeId;
+        final long atNanos;
+
+        Due(@NotNull final UniqueIdentifier typeId, final long atNanos) {
+            this.typeId = typeId;
+            this.atNanos = atNanos;
+        }
+
+        @Override
+        public long getDelay(@NotNull final TimeUnit unit) {
+            return unit.convert(atNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(@NotNull final Delayed other) {
+            return Long.compare(atNanos, ((Due) other).atNanos);
+        }
+    }
+
+    /**
+     * Run, and run again on a transient failure, by the executor. Only the buyers not reached yet are tried again.
+     */
+    private class Delivery implements Runnable {
+        @NotNull
+        final UniqueIdentifier typeId;
+        @NotNull
+        final Pending<T> pending;
+        @NotNull
+        volatile List<AbstractParty> remaining;
+
+        Delivery(@NotNull final UniqueIdentifier typeId, @NotNull final Pending<T> pending) {
+            this.typeId = typeId;
+            this.pending = pending;
+            this.remaining = pending.buyers;
+        }
+
+        @Override
+        public void run() {
+            // A later one came while this one was queued, or waiting for a retry.
+            final Long latestVersion = latestVersions.get(typeId);
+            if (latestVersion == null || latestVersion != pending.version) {
+                savedCount.addAndGet(remaining.size());
+                return;
+            }
+            final List<AbstractParty> unreached = sender.send(pending.message, remaining);
+            sentCount.addAndGet(remaining.size() - unreached.size());
+            remaining = new ArrayList<>(unreached);
+            if (!unreached.isEmpty()) throw new NotificationScheduler.TransientFailure(
+                    unreached.size() + " buyers of " + typeId + " could not be reached", null);
+            // The executor may run it again until then, so it only lets go of the version once all are sent.
+            latestVersions.remove(typeId, pending.version);
+        }
+    }
+
+    private final long windowNanos;
+    @NotNull
+    private final Executor executor;
+    @NotNull
+    private final Sender<T> sender;
+    /**
+     * The notification of a type waiting to be handed to the executor, one per type at most.
+     */
+    @NotNull
+    private final ConcurrentMap<UniqueIdentifier, Pending<T>> waiting = new ConcurrentHashMap<>();
+    /**
+     * The types of the waiting notifications, each once, by the end of their window.
+     */
+    @NotNull
+    private final BlockingQueue<Due> due = new DelayQueue<>();
+    /**
+     * The version of the latest notification of a type, until it is sent.
+     */
+    @NotNull
+    private final ConcurrentMap<UniqueIdentifier, Long> latestVersions = new ConcurrentHashMap<>();
+    @NotNull
+    private final Thread feeder;
+    private volatile boolean closed = false;
+    @NotNull
+    private final AtomicLong versionSource = new AtomicLong();
+    @NotNull
+    private final AtomicLong sentCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong savedCount = new AtomicLong();
+
+    /**
+     * @param window   0 to hand the notifications to the executor as soon as the notifier's thread can.
+     * @param executor Called on the notifier's thread only, so it may block while it is full.
+     */
+    BuyerNotifier(
+            @NotNull final Duration window,
+            @NotNull final Executor executor,
+            @NotNull final Sender<T> sender) {
+        //noinspection ConstantConditions
+        if (window == null) throw new NullPointerException("window cannot be null");
+        //noinspection ConstantConditions
+        if (executor == null) throw new NullPointerException("executor cannot be null");
+        //noinspection ConstantConditions
+        if (sender == null) throw new NullPointerException("sender cannot be null");
+        if (window.isNegative()) throw new IllegalArgumentException("window cannot be negative");
+        this.windowNanos = window.toNanos();
+        this.executor = executor;
+        this.sender = sender;
+        this.feeder = new Thread(this::feed, "buyer-notifier");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    /**
+     * Called with the notifications of a type in the order of its evolutions. It does not block.
+     */
+    void offer(
+            @NotNull final UniqueIdentifier typeId,
+            @NotNull final T message,
+            @NotNull final List<AbstractParty> buyers) {
+        final long version = versionSource.incrementAndGet();
+        latestVersions.put(typeId, version);
+        final Pending<T> replaced = waiting.put(typeId, new Pending<>(version, message, new ArrayList<>(buyers)));
+        // Its type is already due, the latest will go in its place.
+        if (replaced != null) savedCount.addAndGet(replaced.buyers.size());
+        else due.add(new Due(typeId, System.nanoTime() + windowNanos));
+    }
+
+    private void feed() {
+        while (!closed) {
+            final Pending<T> pending;
+            final UniqueIdentifier typeId;
+            try {
+                typeId = due.take().typeId;
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending = waiting.remove(typeId);
+            if (pending == null) continue;
+            try {
+                executor.execute(new Delivery(typeId, pending));
+            } catch (RuntimeException e) {
+                // Interrupted by the close while the executor was full.
+                if (closed) return;
+                log.error("Failed to hand the notification of " + typeId + " to " + pending.buyers.size()
+                        + " buyers", e);
+            }
+        }
+    }
+
+    /**
+     * Stops handing the notifications to the executor, those still waiting are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        feeder.interrupt();
+    }
+
+    /**
+     * @return The number of types whose notification waits to be handed to the executor.
+     */
+    int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * @return The number of notifications to a buyer that the sender sent, or that were rejected.
+     */
+    long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * @return The number of notifications to a buyer that were replaced by a later one before being sent.
+     */
+    long getSavedCount() {
+        return savedCount.get();
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.template.proposal.service;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the notifications to buyers on a fixed number of threads, each of which waits for its notification to be
+ * done, so that this number caps the notifications in flight. The queue is bounded, and {@link #execute} blocks while
+ * it is full, so that a burst slows down whoever produces the notifications instead of piling up. Nothing is dropped.
+ * A notification that throws a {@link TransientFailure} is run again later, with an exponential backoff, up to a
+ * number of attempts. One that throws anything else would fail the same again, and is given up on at once. Its
+ * threads run until it is closed, which drops the notifications still waiting.
+ */
+class NotificationScheduler implements Executor, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(NotificationScheduler.class);
+
+    /**
+     * Thrown by a notification that may succeed when tried again.
+     */
+    static class TransientFailure extends RuntimeException {
+        TransientFailure(@NotNull final String message, final Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static class Task {
+        @NotNull
+        final Runnable runnable;
+        final int attempt;
+
+        Task(@NotNull final Runnable runnable, final int attempt) {
+            this.runnable = runnable;
+            this.attempt = attempt;
+        }
+    }
+
+    @NotNull
+    private final BlockingQueue<Task> queue;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    @NotNull
+    private final ScheduledExecutorService retryTimer;
+    @NotNull
+    private final List<Thread> workers;
+    private volatile boolean closed = false;
+    @NotNull
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    @NotNull
+    private final AtomicLong retryCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * @param concurrency    The number of notifications in flight at most.
+     * @param queueCapacity  The number of notifications waiting at most.
+     * @param maxAttempts    The number of times a notification is tried, 1 for no retry.
+     * @param initialBackoff The wait before the first retry, doubled on each retry after it.
+     */
+    NotificationScheduler(
+            final int concurrency,
+            final int queueCapacity,
+            final int maxAttempts,
+            @NotNull final Duration initialBackoff) {
+        if (concurrency <= 0) throw new IllegalArgumentException("concurrency must be positive");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be positive");
+        if (maxAttempts <= 0) throw new IllegalArgumentException("maxAttempts must be positive");
+        //noinspection ConstantConditions
+        if (initialBackoff == null) throw new NullPointerException("initialBackoff cannot be null");
+        if (initialBackoff.isNegative()) throw new IllegalArgumentException("initialBackoff cannot be negative");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(it -> {
+            final Thread thread = new Thread(it, "buyer-notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final Thread worker = new Thread(this::work, "buyer-notification-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Blocks while the queue is full, so it is not to be called on a thread that must not wait.
+     * @throws RejectedExecutionException When closed, or interrupted while waiting, the notification was not taken.
+     */
+    @Override
+    public void execute(@NotNull final Runnable notification) {
+        //noinspection ConstantConditions
+        if (notification == null) throw new NullPointerException("notification cannot be null");
+        if (closed) throw new RejectedExecutionException("The buyer notifications are closed");
+        try {
+            queue.put(new Task(notification, 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room for a buyer notification", e);
+        }
+    }
+
+    private void work() {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
+            final Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            inFlightCount.incrementAndGet();
+            try {
+                task.runnable.run();
+            } catch (TransientFailure e) {
+                if (!closed) retryOrGiveUp(task, e);
+            } catch (RuntimeException e) {
+                // Interrupted by the close.
+                if (closed) return;
+                failedCount.incrementAndGet();
+                log.error("Gave up on a buyer notification that cannot succeed", e);
+            } finally {
+                inFlightCount.decrementAndGet();
+            }
+        }
+    }
+
+    private void retryOrGiveUp(@NotNull final Task task, @NotNull final RuntimeException error) {
+        if (maxAttempts <= task.attempt) {
+            failedCount.incrementAndGet();
+            log.error("Gave up on a buyer notification after " + task.attempt + " attempts", error);
+            return;
+        }
+        final long backoffMillis = initialBackoffMillis << Math.min(task.attempt - 1, 20);
+        log.warn("Buyer notification failed on attempt " + task.attempt + ", retrying in " + backoffMillis + " ms",
+                error);
+        retryCount.incrementAndGet();
+        retryLater(new Task(task.runnable, task.attempt + 1), backoffMillis);
+    }
+
+    /**
+     * Does not block the timer, it tries again after the same delay while the queue is full.
+     */
+    private void retryLater(@NotNull final Task task, final long delayMillis) {
+        try {
+            retryTimer.schedule(() -> {
+                if (!queue.offer(task)) retryLater(task, Math.max(1, delayMillis));
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile.
+        }
+    }
+
+    /**
+     * Interrupts the notifications in flight, and does not wait for them to end.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        retryTimer.shutdownNow();
+        workers.forEach(Thread::interrupt);
+        queue.clear();
+    }
+
+    /**
+     * @return The number of notifications waiting for a thread.
+     */
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    int getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * @return The number of notifications given up on, after their last attempt or on a failure not transient.
+     */
+    long getFailedCount() {
+        return failedCount.get();
+    }
+
+}
@@ -5,12 +5,21 @@ import com.r3.corda.lib.tokens.contracts.types.TokenPointer;
 import com.r3.corda.lib.tokens.contracts.types.TokenType;
 import com.template.proposal.flow.InformTokenBuyerFlows;
 import com.template.proposal.state.SalesProposal;
+import com.template.service.ServiceStartup;
+import kotlin.Unit;
 import net.corda.core.contracts.*;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.flows.FlowException;
 import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.FlowHandle;
 import net.corda.core.node.AppServiceHub;
 import net.corda.core.node.services.CordaService;
 import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
 import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
 import net.corda.core.serialization.SingletonSerializeAsToken;
 import net.corda.core.transactions.SignedTransaction;
 import org.jetbrains.annotations.NotNull;
@@ -18,105 +27,237 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This service informs potential buyers of SalesProposals when the underlying token type has changed.
+ * This service informs potential buyers of SalesProposals when the underlying token type has changed. The proposals
+ * already in the vault are loaded once the node has started, see {@link ServiceStartup}, and the vault updates that
+ * come in before then are held until they are loaded. Only the updates about {@link SalesProposal} or
+ * {@link EvolvableTokenType} reach the handler, so that the cash moving through the vault costs next to nothing. The
+ * buyers are tracked by the linear id of the token type, see {@link TrackedTokenTypes}, so that it is not re-keyed
+ * when the type evolves, and the notifications can read it from other threads. The notifications about a type are
+ * debounced by {@link BuyerNotifier}, which keeps one per type at most so that the vault updates never wait on it,
+ * then sent by {@link NotificationScheduler}, which retries the hosts that could not be reached.
  */
 @CordaService
-public class SalesProposalService extends SingletonSerializeAsToken {
+public class SalesProposalService extends SingletonSerializeAsToken implements ServiceStartup.Lazy {
 
-    private static final int THREAD_COUNT = 4;
+    /**
+     * How long, in milliseconds, the notifications about a token type wait for a later evolution to replace them. 0
+     * sends them at once.
+     */
+    public static final String NOTIFY_DEBOUNCE_CONFIG = "salesProposalNotifyDebounceMillis";
+    public static final Duration DEFAULT_NOTIFY_DEBOUNCE = Duration.ZERO;
+    /**
+     * How many notification flows run at the same time at most.
+     */
+    public static final String NOTIFY_CONCURRENCY_CONFIG = "salesProposalNotifyConcurrency";
+    public static final int DEFAULT_NOTIFY_CONCURRENCY = 4;
+    /**
+     * How many notifications wait for a flow at most, before the notifier stops handing more.
+     */
+    public static final String NOTIFY_QUEUE_CAPACITY_CONFIG = "salesProposalNotifyQueueCapacity";
+    public static final int DEFAULT_NOTIFY_QUEUE_CAPACITY = 1_000;
+    /**
+     * How many times a notification flow is tried, 1 for no retry.
+     */
+    public static final String NOTIFY_MAX_ATTEMPTS_CONFIG = "salesProposalNotifyMaxAttempts";
+    public static final int DEFAULT_NOTIFY_MAX_ATTEMPTS = 5;
+    /**
+     * How long, in milliseconds, before the first retry of a failed notification flow. It doubles on each retry.
+     */
+    public static final String NOTIFY_BACKOFF_CONFIG = "salesProposalNotifyBackoffMillis";
+    public static final Duration DEFAULT_NOTIFY_BACKOFF = Duration.ofSeconds(1);
+    /**
+     * How long, in milliseconds, the notification flows to the hosts of a transaction have to end, before those left
+     * are killed and their buyers retried. A host that is offline would otherwise hold a flow slot forever.
+     */
+    public static final String NOTIFY_TIMEOUT_CONFIG = "salesProposalNotifyTimeoutMillis";
+    public static final Duration DEFAULT_NOTIFY_TIMEOUT = Duration.ofMinutes(1);
+    private static final int PAGE_SIZE = 1_000;
     private final static Logger log = LoggerFactory.getLogger(SalesProposalService.class);
-    private final static Executor executor = Executors.newFixedThreadPool(THREAD_COUNT);
 
     @NotNull
     private final AppServiceHub serviceHub;
+    @NotNull
+    private final ServiceStartup startup;
     /**
-     * Map key: The EvolvableTokenType.
-     * Map value: The potential buyer.
+     * The updates received before the proposals were loaded, null once they are. Guarded by this.
      */
+    @Nullable
+    private List<Vault.Update<ContractState>> pendingUpdates = new ArrayList<>();
+    @NotNull
+    private final TrackedTokenTypes trackedTypes = new TrackedTokenTypes();
+    @NotNull
+    private final NotificationScheduler scheduler;
+    @NotNull
+    private final BuyerNotifier<SignedTransaction> notifier;
+    private final long notifyTimeoutMillis;
     @NotNull
-    private final Map<StateAndRef<? extends EvolvableTokenType>, List<AbstractParty>> trackedTypesToBuyers;
+    private final AtomicLong handledUpdateCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong skippedUpdateCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong handlerNanos = new AtomicLong();
 
     @SuppressWarnings("unused")
     public SalesProposalService(@NotNull final AppServiceHub serviceHub) {
         this.serviceHub = serviceHub;
-        this.trackedTypesToBuyers = new HashMap<>();
-        trackAndNotify();
-    }
-
-    private void trackAndNotify() {
-        // We track before we collect the current stuff.
-        // It would be more pleasant to have 2 trackBy, but this does not work as they compete for the db connection.
-        serviceHub.getVaultService()
-                .trackBy(
-                        ContractState.class,
-                        new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL))
-                .getUpdates().subscribe(
-                this::handleUpdate,
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        this.scheduler = new NotificationScheduler(
+                config.exists(NOTIFY_CONCURRENCY_CONFIG)
+                        ? config.getInt(NOTIFY_CONCURRENCY_CONFIG)
+                        : DEFAULT_NOTIFY_CONCURRENCY,
+                config.exists(NOTIFY_QUEUE_CAPACITY_CONFIG)
+                        ? config.getInt(NOTIFY_QUEUE_CAPACITY_CONFIG)
+                        : DEFAULT_NOTIFY_QUEUE_CAPACITY,
+                config.exists(NOTIFY_MAX_ATTEMPTS_CONFIG)
+                        ? config.getInt(NOTIFY_MAX_ATTEMPTS_CONFIG)
+                        : DEFAULT_NOTIFY_MAX_ATTEMPTS,
+                config.exists(NOTIFY_BACKOFF_CONFIG)
+                        ? Duration.ofMillis(config.getLong(NOTIFY_BACKOFF_CONFIG))
+                        : DEFAULT_NOTIFY_BACKOFF);
+        this.notifyTimeoutMillis = config.exists(NOTIFY_TIMEOUT_CONFIG)
+                ? config.getLong(NOTIFY_TIMEOUT_CONFIG)
+                : DEFAULT_NOTIFY_TIMEOUT.toMillis();
+        this.notifier = new BuyerNotifier<>(config.exists(NOTIFY_DEBOUNCE_CONFIG)
+                ? Duration.ofMillis(config.getLong(NOTIFY_DEBOUNCE_CONFIG))
+                : DEFAULT_NOTIFY_DEBOUNCE,
+                scheduler,
+                this::sendToBuyers);
+        serviceHub.registerUnloadHandler(() -> {
+            notifier.close();
+            scheduler.close();
+            return Unit.INSTANCE;
+        });
+        // We track before we collect the current stuff. Unlike trackBy, this does not query the vault.
+        serviceHub.getVaultService().getUpdates()
+                .filter(update -> {
+                    if (isOfInterest(update)) return true;
+                    skippedUpdateCount.incrementAndGet();
+                    return false;
+                })
+                .subscribe(
+                this::receiveUpdate,
                 error -> log.error("In ContractState tracking", error),
                 () -> log.info("ContractState updates closed!"));
-        serviceHub.getVaultService().queryBy(SalesProposal.class).getStates()
-                .forEach(it -> {
-                    try {
-                        putProposal(it.getState().getData());
-                    } catch (TransactionResolutionException e) {
-                        log.error("Failed to resolve asset", e);
-                    }
-                });
+        this.startup = new ServiceStartup(serviceHub, SalesProposalService.class);
+    }
+
+    @NotNull
+    @Override
+    public ServiceStartup getStartup() {
+        return startup;
+    }
+
+    /**
+     * Loads the proposals of the vault, page by page, then applies the updates that came in meanwhile. The pages are
+     * sorted on the state ref, and include the consumed states, so that a proposal consumed while paging does not
+     * shift a later one out of the pages. A proposal repeated across pages, or also carried by a pending update, is
+     * left to the update.
+     */
+    @Override
+    public void warmUp() {
+        final Map<StateRef, StateAndRef<SalesProposal>> proposals = new LinkedHashMap<>();
+        final QueryCriteria all = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.ALL);
+        final Sort byRef = new Sort(Collections.singleton(new Sort.SortColumn(
+                new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF), Sort.Direction.ASC)));
+        long seen = 0;
+        for (int page = 1; ; page++) {
+            final Vault.Page<SalesProposal> found = serviceHub.getVaultService().queryBy(
+                    SalesProposal.class, all, new PageSpecification(page, PAGE_SIZE), byRef);
+            for (int i = 0; i < found.getStates().size(); i++) {
+                if (found.getStatesMetadata().get(i).getStatus() != Vault.StateStatus.UNCONSUMED) continue;
+                final StateAndRef<SalesProposal> it = found.getStates().get(i);
+                proposals.put(it.getRef(), it);
+            }
+            seen += found.getStates().size();
+            if (found.getStates().size() < PAGE_SIZE || seen >= found.getTotalStatesAvailable()) break;
+        }
+        synchronized (this) {
+            assert pendingUpdates != null;
+            pendingUpdates.forEach(update -> {
+                update.getConsumed().forEach(it -> proposals.remove(it.getRef()));
+                update.getProduced().forEach(it -> proposals.remove(it.getRef()));
+            });
+            proposals.values().forEach(it -> {
+                try {
+                    putProposal(it.getState().getData(), it.getRef());
+                } catch (TransactionResolutionException e) {
+                    log.error("Failed to resolve asset", e);
+                }
+            });
+            log.info("Loaded " + proposals.size() + " proposals, then " + pendingUpdates.size() + " pending updates");
+            pendingUpdates.forEach(this::handleUpdate);
+            pendingUpdates = null;
+        }
+    }
+
+    /**
+     * Called on every update of the vault, so it only looks at the types of the states.
+     */
+    private static boolean isOfInterest(@NotNull final Vault.Update<ContractState> update) {
+        for (final StateAndRef<ContractState> it : update.getConsumed()) {
+            if (isOfInterest(it.getState().getData())) return true;
+        }
+        for (final StateAndRef<ContractState> it : update.getProduced()) {
+            if (isOfInterest(it.getState().getData())) return true;
+        }
+        return false;
+    }
+
+    private static boolean isOfInterest(@NotNull final ContractState state) {
+        return state instanceof SalesProposal || state instanceof EvolvableTokenType;
+    }
+
+    private synchronized void receiveUpdate(@NotNull final Vault.Update<ContractState> update) {
+        if (pendingUpdates != null) pendingUpdates.add(update);
+        else handleUpdate(update);
     }
 
     private void handleUpdate(@NotNull final Vault.Update<ContractState> update) {
+        final long start = System.nanoTime();
         // For EvolvableTokenType, we care only about the "net" result. For the same id, there may be more than 1 consumed,
         // but if there is any consumed, then there is a single produced.
-        // Map key: EvolvableTokenType linear id
-        // Map value: Tracked and consumed EvolvableTokenType
-        final Map<UniqueIdentifier, StateAndRef<EvolvableTokenType>> toNotify = new HashMap<>();
-        // We need to look at consumed first to build the pair in the map.
+        // The linear ids of the tracked EvolvableTokenTypes consumed.
+        final Set<UniqueIdentifier> consumedTypeIds = new HashSet<>();
+        // We need to look at consumed first.
         update.getConsumed().forEach(it -> {
             if (it.getState().getData() instanceof SalesProposal) {
                 try {
-                    removeProposal((SalesProposal) it.getState().getData());
+                    removeProposal((SalesProposal) it.getState().getData(), it.getRef());
                 } catch (TransactionResolutionException e) {
                     log.error("Failed to resolve asset", e);
                 }
             } else if (it.getState().getData() instanceof EvolvableTokenType) {
-                final StateAndRef<EvolvableTokenType> consumed = convertToType(it);
-                if (trackedTypesToBuyers.get(consumed) != null) {
-                    final UniqueIdentifier id = consumed.getState().getData().getLinearId();
-                    assert toNotify.get(id) == null; // Because it should be the first time we see it.
-                    // We will need to notify
-                    toNotify.put(id, consumed);
-                }
+                final UniqueIdentifier id = ((EvolvableTokenType) it.getState().getData()).getLinearId();
+                if (trackedTypes.contains(id)) consumedTypeIds.add(id);
             }
         });
-        // Clean the outdated information if a consumed SalesProposal removed a tracking.
-        toNotify.forEach((id, state) -> {
-            if (trackedTypesToBuyers.get(state) == null) toNotify.remove(id);
-        });
         update.getProduced().forEach(it -> {
             if (it.getState().getData() instanceof SalesProposal) {
                 try {
-                    putProposal((SalesProposal) it.getState().getData());
+                    putProposal((SalesProposal) it.getState().getData(), it.getRef());
                 } catch (TransactionResolutionException e) {
                     log.error("Failed to resolve asset", e);
                 }
             } else if (it.getState().getData() instanceof EvolvableTokenType) {
-                final StateAndRef<EvolvableTokenType> produced = convertToType(it);
-                final UniqueIdentifier id = produced.getState().getData().getLinearId();
-                final StateAndRef<EvolvableTokenType> consumed = toNotify.get(id);
-                if (consumed != null) {
-                    trackedTypesToBuyers.put(produced, trackedTypesToBuyers.get(consumed));
-                    notifyUpdate(consumed, produced);
-                    toNotify.remove(id);
-                }
+                final UniqueIdentifier id = ((EvolvableTokenType) it.getState().getData()).getLinearId();
+                if (!consumedTypeIds.remove(id)) return;
+                // Null if a consumed SalesProposal removed the last buyer.
+                final List<AbstractParty> buyers = trackedTypes.evolve(id, it.getRef());
+                if (buyers != null) notifyUpdate(id, buyers, it.getRef());
             }
         });
         // The remaining ones have exited the ledger for good. At the moment, this is impossible.
-        toNotify.forEach((id, state) -> trackedTypesToBuyers.remove(state));
+        consumedTypeIds.forEach(trackedTypes::remove);
+        handledUpdateCount.incrementAndGet();
+        handlerNanos.addAndGet(System.nanoTime() - start);
     }
 
     @NotNull
@@ -153,55 +294,170 @@ public class SalesProposalService extends SingletonSerializeAsToken {
                 .resolve(serviceHub);
     }
 
-    private void putProposal(@NotNull final SalesProposal proposal) throws TransactionResolutionException {
+    /**
+     * Unlike {@link #getTokenType}, it does not look up the token type itself.
+     */
+    @Nullable
+    private UniqueIdentifier getTokenTypeId(@NotNull final SalesProposal proposal)
+            throws TransactionResolutionException {
+        final TokenType type = proposal.getAsset().resolve(serviceHub).getState().getData().getTokenType();
+        if (!type.isPointer()) return null;
+        return ((TokenPointer<?>) type).getPointer().getPointer();
+    }
+
+    private void putProposal(@NotNull final SalesProposal proposal, @NotNull final StateRef ref)
+            throws TransactionResolutionException {
         // If we are not the seller, we do not need to watch.
         if (!isMyKey(proposal.getSeller())) return;
         final StateAndRef<EvolvableTokenType> tokenType = getTokenType(proposal);
         // If it is not evolvable, there is nothing to track.
         if (tokenType == null) return;
-        final List<AbstractParty> buyers = trackedTypesToBuyers.get(tokenType);
-        if (buyers == null) {
-            trackedTypesToBuyers.put(tokenType, new ArrayList<>(Collections.singletonList(proposal.getBuyer())));
-        } else {
-            buyers.add(proposal.getBuyer());
-        }
+        trackedTypes.addBuyer(
+                tokenType.getState().getData().getLinearId(), tokenType.getRef(), proposal.getBuyer(), ref);
     }
 
-    private void removeProposal(@NotNull final SalesProposal proposal) throws TransactionResolutionException {
-        final StateAndRef<EvolvableTokenType> tokenType = getTokenType(proposal);
+    private void removeProposal(@NotNull final SalesProposal proposal, @NotNull final StateRef ref)
+            throws TransactionResolutionException {
+        final UniqueIdentifier tokenTypeId = getTokenTypeId(proposal);
         // If it is not evolvable, nothing was tracked in the first place.
-        if (tokenType == null) return;
-        trackedTypesToBuyers.remove(tokenType);
+        if (tokenTypeId == null) return;
+        trackedTypes.removeBuyer(tokenTypeId, proposal.getBuyer(), ref);
     }
 
     private void notifyUpdate(
-            @NotNull final StateAndRef<EvolvableTokenType> consumed,
-            @NotNull final StateAndRef<EvolvableTokenType> replacement) {
-        final UniqueIdentifier stateId = consumed.getState().getData().getLinearId();
-        final List<AbstractParty> buyers = trackedTypesToBuyers.get(consumed);
-        final SignedTransaction tx = serviceHub.getValidatedTransactions().getTransaction(
-                replacement.getRef().getTxhash());
-        assert buyers != null;
+            @NotNull final UniqueIdentifier stateId,
+            @NotNull final List<AbstractParty> buyers,
+            @NotNull final StateRef replacement) {
+        final SignedTransaction tx = serviceHub.getValidatedTransactions().getTransaction(replacement.getTxhash());
         assert tx != null; // Should never happen.
-        for (final AbstractParty buyer : buyers)
-            executor.execute(() ->
-                    serviceHub.startTrackedFlow(new InformTokenBuyerFlows.Send(buyer, tx))
-                            .getProgress()
-                            .subscribe(
-                                    result -> log.info("Notified buyer " + buyer + " of change of " + stateId +
-                                            "with result " + result),
-                                    e -> log.error("Failed to notify buyer " + buyer + " of change of " + stateId, e),
-                                    () -> trackedTypesToBuyers.remove(consumed)
-                            ));
+        notifier.offer(stateId, tx, buyers);
+    }
+
+    /**
+     * With one flow per host of buyers, so that a slow or offline host does not hold back the others. It waits for
+     * the flows to end, so that the scheduler can cap the flows in flight, but no longer than the notify timeout, after
+     * which the flows left are killed. A host that rejected the transaction would reject it again, so only the buyers
+     * on the hosts that could not be reached, or whose flow failed for another reason or timed out, are returned to be
+     * retried.
+     */
+    @NotNull
+    private List<AbstractParty> sendToBuyers(
+            @NotNull final SignedTransaction tx,
+            @NotNull final List<AbstractParty> buyers) {
+        final Map<Party, List<AbstractParty>> buyersByHost = new LinkedHashMap<>();
+        final List<AbstractParty> unreached = new ArrayList<>();
+        for (final AbstractParty buyer : buyers) {
+            final Party host = serviceHub.getIdentityService().wellKnownPartyFromAnonymous(buyer);
+            // Its identity may reach us later.
+            if (host == null) unreached.add(buyer);
+            else buyersByHost.computeIfAbsent(host, it -> new ArrayList<>()).add(buyer);
+        }
+        final Map<Party, FlowHandle<InformTokenBuyerFlows.BatchOutcome>> flows = new LinkedHashMap<>();
+        buyersByHost.forEach((host, hosted) -> flows.put(host, serviceHub.startFlow(
+                new InformTokenBuyerFlows.SendBatch(hosted, Collections.singletonList(tx)))));
+        final long deadline = System.currentTimeMillis() + notifyTimeoutMillis;
+        int rejectedCount = 0;
+        for (final Map.Entry<Party, FlowHandle<InformTokenBuyerFlows.BatchOutcome>> entry : flows.entrySet()) {
+            try {
+                final InformTokenBuyerFlows.BatchOutcome outcome = entry.getValue().getReturnValue()
+                        .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                for (final Map.Entry<Party, String> rejection : outcome.getRejections().entrySet()) {
+                    log.warn(rejection.getKey() + " rejected the notification of " + tx.getId() + ": "
+                            + rejection.getValue());
+                }
+                rejectedCount += outcome.getRejections().size();
+                unreached.addAll(outcome.getUnreached());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof FlowException) {
+                    log.warn("Failed to notify " + entry.getKey() + " of " + tx.getId(), e.getCause());
+                    rejectedCount++;
+                } else {
+                    log.info("Failed to notify " + entry.getKey() + " of " + tx.getId() + ", to retry", e.getCause());
+                    unreached.addAll(buyersByHost.get(entry.getKey()));
+                }
+            } catch (TimeoutException e) {
+                log.info(entry.getKey() + " did not answer the notification of " + tx.getId() + " within "
+                        + notifyTimeoutMillis + " ms, to retry");
+                serviceHub.killFlow(entry.getValue().getId());
+                unreached.addAll(buyersByHost.get(entry.getKey()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while notifying the buyers of " + tx.getId(), e);
+            }
+        }
+        log.info("Notified the buyers of " + tx.getId() + " on " + flows.size() + " hosts, " + rejectedCount
+                + " rejected it and " + unreached.size() + " buyers could not be reached");
+        return unreached;
     }
 
     public int getTokenTypeCount() {
-        return trackedTypesToBuyers.size();
+        startup.checkReady();
+        return trackedTypes.size();
     }
 
+    /**
+     * @return The number of vault updates that went through the handler.
+     */
+    public long getHandledUpdateCount() {
+        return handledUpdateCount.get();
+    }
+
+    /**
+     * @return The number of vault updates that were of no interest, and were dropped before the handler.
+     */
+    public long getSkippedUpdateCount() {
+        return skippedUpdateCount.get();
+    }
+
+    public long getHandlerNanos() {
+        return handlerNanos.get();
+    }
+
+    /**
+     * @return The number of notifications to a buyer that were sent.
+     */
+    public long getSentNotificationCount() {
+        return notifier.getSentCount();
+    }
+
+    /**
+     * @return The number of notifications to a buyer that were not sent, as a later evolution replaced them.
+     */
+    public long getSavedNotificationCount() {
+        return notifier.getSavedCount();
+    }
+
+    /**
+     * @return The number of notification flows waiting to start.
+     */
+    public int getNotificationQueueDepth() {
+        return scheduler.getQueueDepth();
+    }
+
+    public int getNotificationsInFlight() {
+        return scheduler.getInFlightCount();
+    }
+
+    public long getNotificationRetryCount() {
+        return scheduler.getRetryCount();
+    }
+
+    /**
+     * @return The number of notification flows given up on, after their last attempt or on a failure not transient.
+     */
+    public long getFailedNotificationCount() {
+        return scheduler.getFailedCount();
+    }
+
+    /**
+     * @return The buyers, in the order they came, if this is the latest known state of the token type.
+     */
     @Nullable
     public List<AbstractParty> getBuyersOf(@NotNull final StateAndRef<? extends EvolvableTokenType> tokenType) {
-        return trackedTypesToBuyers.get(tokenType);
+        startup.checkReady();
+        final TrackedTokenTypes.Tracked tracked = trackedTypes.get(tokenType.getState().getData().getLinearId());
+        if (tracked == null || !tracked.getLatest().equals(tokenType.getRef())) return null;
+        return tracked.getBuyers();
     }
 
 }
\ No newline at end of file
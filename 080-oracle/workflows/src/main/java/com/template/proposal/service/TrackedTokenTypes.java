@@ -0,0 +1,141 @@
+package com.template.proposal.service;
+
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.AbstractParty;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The potential buyers of the evolvable token types that are for sale, keyed by the linear id of the type, which does
+ * not change when the type evolves. All its methods are safe to call from any thread. A buyer stays until the last of
+ * its proposals on the type is gone, and a type is dropped as soon as it has no buyers left. Each change to a type is
+ * atomic. The proposals are known by their refs, so that a proposal seen twice, by the warm-up query and by an update,
+ * counts once.
+ */
+class TrackedTokenTypes {
+
+    static class Tracked {
+        @NotNull
+        private volatile StateRef latest;
+        /**
+         * Map value: the proposals of the buyer. In the order they came, and few per type, so copy-on-write suits the
+         * notifications that iterate over them. Only replaced within the computation of the type.
+         */
+        @NotNull
+        private volatile Map<AbstractParty, Set<StateRef>> buyers = Collections.emptyMap();
+
+        private Tracked(@NotNull final StateRef latest) {
+            this.latest = latest;
+        }
+
+        @NotNull
+        StateRef getLatest() {
+            return latest;
+        }
+
+        @NotNull
+        List<AbstractParty> getBuyers() {
+            return new ArrayList<>(buyers.keySet());
+        }
+
+        private void addProposal(@NotNull final AbstractParty buyer, @NotNull final StateRef proposal) {
+            final Set<StateRef> proposals = buyers.get(buyer);
+            if (proposals != null && proposals.contains(proposal)) return;
+            final Set<StateRef> copyProposals = proposals == null ? new HashSet<>() : new HashSet<>(proposals);
+            copyProposals.add(proposal);
+            final Map<AbstractParty, Set<StateRef>> copy = new LinkedHashMap<>(buyers);
+            copy.put(buyer, copyProposals);
+            buyers = copy;
+        }
+
+        private void removeProposal(@NotNull final AbstractParty buyer, @NotNull final StateRef proposal) {
+            final Set<StateRef> proposals = buyers.get(buyer);
+            if (proposals == null || !proposals.contains(proposal)) return;
+            final Map<AbstractParty, Set<StateRef>> copy = new LinkedHashMap<>(buyers);
+            if (proposals.size() == 1) {
+                copy.remove(buyer);
+            } else {
+                final Set<StateRef> copyProposals = new HashSet<>(proposals);
+                copyProposals.remove(proposal);
+                copy.put(buyer, copyProposals);
+            }
+            buyers = copy;
+        }
+    }
+
+    @NotNull
+    private final ConcurrentMap<UniqueIdentifier, Tracked> tracked = new ConcurrentHashMap<>();
+
+    /**
+     * Called per proposal, so a buyer with many proposals on the type is added as many times. Adding the same proposal
+     * again changes nothing.
+     *
+     * @param latest The state of the type as known when the buyer came. It is only used if the type is new.
+     */
+    void addBuyer(
+            @NotNull final UniqueIdentifier typeId,
+            @NotNull final StateRef latest,
+            @NotNull final AbstractParty buyer,
+            @NotNull final StateRef proposal) {
+        tracked.compute(typeId, (id, current) -> {
+            final Tracked result = current == null ? new Tracked(latest) : current;
+            result.addProposal(buyer, proposal);
+            return result;
+        });
+    }
+
+    /**
+     * Called per proposal gone, and ignores one that was not added. Drops the buyer when it was its last proposal, and
+     * the type when it was the last buyer.
+     */
+    void removeBuyer(
+            @NotNull final UniqueIdentifier typeId,
+            @NotNull final AbstractParty buyer,
+            @NotNull final StateRef proposal) {
+        tracked.computeIfPresent(typeId, (id, current) -> {
+            current.removeProposal(buyer, proposal);
+            return current.buyers.isEmpty() ? null : current;
+        });
+    }
+
+    /**
+     * @return The buyers to tell about the new state of the type, or null when it is not tracked.
+     */
+    @Nullable
+    List<AbstractParty> evolve(@NotNull final UniqueIdentifier typeId, @NotNull final StateRef latest) {
+        final Tracked evolved = tracked.computeIfPresent(typeId, (id, current) -> {
+            current.latest = latest;
+            return current;
+        });
+        return evolved == null ? null : evolved.getBuyers();
+    }
+
+    void remove(@NotNull final UniqueIdentifier typeId) {
+        tracked.remove(typeId);
+    }
+
+    boolean contains(@NotNull final UniqueIdentifier typeId) {
+        return tracked.containsKey(typeId);
+    }
+
+    @Nullable
+    Tracked get(@NotNull final UniqueIdentifier typeId) {
+        return tracked.get(typeId);
+    }
+
+    int size() {
+        return tracked.size();
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.template.service;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.cordapp.CordappConfig;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowExternalAsyncOperation;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByService;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.ServiceLifecycleEvent;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static net.corda.core.node.AppServiceHub.SERVICE_PRIORITY_NORMAL;
+
+/**
+ * Lets a {@link net.corda.core.node.services.CordaService} do its heavy start-up work once the node is up, in a flow
+ * of its own, instead of in its constructor, where it holds up the boot of the node and where it cannot use other
+ * services or flows yet. Until the work is done, the service turns callers away with {@link #checkReady()}, and flows
+ * suspend in {@link #awaitReady(FlowLogic, Lazy)} before they call it, so that no flow worker is held while waiting.
+ */
+public class ServiceStartup {
+
+    private final static Logger log = LoggerFactory.getLogger(ServiceStartup.class);
+
+    /**
+     * How long, in seconds, flows wait for a service to be ready before giving up.
+     */
+    public static final String TIMEOUT_CONFIG = "serviceStartupTimeoutSeconds";
+    public static final long DEFAULT_TIMEOUT_SECONDS = 60;
+    private static final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(it -> {
+        final Thread thread = new Thread(it, "service-startup-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Implemented by the services that start lazily.
+     */
+    public interface Lazy {
+        @NotNull
+        ServiceStartup getStartup();
+
+        /**
+         * Called once, after the node has started, on a flow thread, so within a database transaction.
+         */
+        void warmUp() throws Exception;
+    }
+
+    @NotNull
+    private final String name;
+    private final long timeoutSeconds;
+    private final long createdAt = System.currentTimeMillis();
+    @NotNull
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile boolean isReady = false;
+    private volatile long warmUpMillis = -1;
+
+    public ServiceStartup(
+            @NotNull final AppServiceHub serviceHub,
+            @NotNull final Class<? extends Lazy> serviceClass) {
+        //noinspection ConstantConditions
+        if (serviceHub == null) throw new NullPointerException("serviceHub cannot be null");
+        //noinspection ConstantConditions
+        if (serviceClass == null) throw new NullPointerException("serviceClass cannot be null");
+        this.name = serviceClass.getSimpleName();
+        final CordappConfig config = serviceHub.getAppContext().getConfig();
+        this.timeoutSeconds = config.exists(TIMEOUT_CONFIG)
+                ? config.getLong(TIMEOUT_CONFIG)
+                : DEFAULT_TIMEOUT_SECONDS;
+        if (timeoutSeconds <= 0) throw new IllegalArgumentException(TIMEOUT_CONFIG + " must be positive");
+        serviceHub.register(SERVICE_PRIORITY_NORMAL, event -> {
+            if (event != ServiceLifecycleEvent.STATE_MACHINE_STARTED) return;
+            log.info(name + " created " + (System.currentTimeMillis() - createdAt) + " ms before the node started");
+            serviceHub.startFlow(new WarmUpFlow(serviceClass))
+                    .getReturnValue()
+                    .toCompletableFuture()
+                    .whenComplete((result, error) -> {
+                        // In case the flow failed before even reaching the warm-up.
+                        if (error != null && ready.completeExceptionally(error)) {
+                            log.error(name + " failed to start", error);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Done once the service has warmed up, failed if it could not.
+     */
+    @NotNull
+    public CompletableFuture<Void> getReady() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * Never blocks, so that it can sit in front of the hot paths.
+     *
+     * @throws IllegalStateException When it has not warmed up yet, or failed to.
+     */
+    public void checkReady() {
+        if (isReady) return;
+        if (ready.isCompletedExceptionally()) throw new IllegalStateException(name + " failed to start");
+        throw new IllegalStateException(name + " is not ready yet");
+    }
+
+    /**
+     * Suspends the flow until the service is ready, without holding its thread, which the warm-up may need. Returns
+     * at once when ready.
+     *
+     * @throws IllegalStateException When it failed to warm up, or did not within the configured timeout.
+     */
+    @Suspendable
+    public static void awaitReady(@NotNull final FlowLogic<?> flow, @NotNull final Lazy service) {
+        if (service.getStartup().isReady()) return;
+        flow.await(new ReadyOperation(service));
+    }
+
+    /**
+     * @return Completed with true once ready, or exceptionally when it failed or the timeout elapsed first.
+     */
+    @NotNull
+    private CompletableFuture<Boolean> readyWithinTimeout() {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        ready.whenComplete((ignored, error) -> {
+            if (error == null) result.complete(true);
+            else result.completeExceptionally(new IllegalStateException(name + " failed to start", error));
+        });
+        final ScheduledFuture<?> timeout = timeouts.schedule(
+                () -> result.completeExceptionally(new IllegalStateException(
+                        name + " not ready after " + timeoutSeconds + " s")),
+                timeoutSeconds, TimeUnit.SECONDS);
+        result.whenComplete((ignored, error) -> timeout.cancel(false));
+        return result;
+    }
+
+    /**
+     * @return How long the warm-up took, or -1 when it has not finished.
+     */
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    private void warmUp(@NotNull final Lazy service) throws Exception {
+        if (ready.isDone()) throw new IllegalStateException(name + " was already started");
+        final long start = System.nanoTime();
+        try {
+            service.warmUp();
+        } catch (Exception e) {
+            ready.completeExceptionally(e);
+            log.error(name + " failed to warm up", e);
+            throw e;
+        }
+        warmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        isReady = true;
+        ready.complete(null);
+        log.info(name + " ready after " + warmUpMillis + " ms of warm-up, "
+                + (System.currentTimeMillis() - createdAt) + " ms after it was created");
+    }
+
+    private static class ReadyOperation implements FlowExternalAsyncOperation<Boolean> {
+        @NotNull
+        private final Lazy service;
+
+        ReadyOperation(@NotNull final Lazy service) {
+            this.service = service;
+        }
+
+        @NotNull
+        @Override
+        public CompletableFuture<Boolean> execute(@NotNull final String deduplicationId) {
+            return service.getStartup().readyWithinTimeout();
+        }
+    }
+
+    /**
+     * Started by the service itself once the node is up. It does not suspend, so that no other flow gets in before the
+     * service is ready.
+     */
+    @StartableByService
+    public static class WarmUpFlow extends FlowLogic<Void> {
+
+        @NotNull
+        private final Class<? extends Lazy> serviceClass;
+
+        public WarmUpFlow(@NotNull final Class<? extends Lazy> serviceClass) {
+            //noinspection ConstantConditions
+            if (serviceClass == null) throw new NullPointerException("serviceClass cannot be null");
+            this.serviceClass = serviceClass;
+        }
+
+        @Suspendable
+        @Override
+        public Void call() throws FlowException {
+            final Lazy service = getServiceHub().cordaService(serviceClass);
+            try {
+                service.getStartup().warmUp(service);
+            } catch (Exception e) {
+                throw new FlowException("Failed to warm up " + serviceClass.getSimpleName(), e);
+            }
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.example.flow;
+
+import com.example.contract.FxContract.Commands.Swap;
+import com.example.oracle.FxQuote;
+import com.example.state.FxState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.common.internal.ParametersUtilitiesKt;
+import net.corda.testing.node.MockNetworkNotarySpec;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import net.corda.testing.node.TestCordapp;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.Map;
+
+public interface FxOracleCourseHelpers {
+    CordaX500Name NOTARY = CordaX500Name.parse("O=Notary, L=London, C=GB");
+    CordaX500Name FX_ORACLE = CordaX500Name.parse("O=FX Oracle, L=London, C=GB");
+
+    @NotNull
+    static MockNetworkParameters prepareMockNetworkParameters() {
+        return prepareMockNetworkParameters(Collections.emptyMap());
+    }
+
+    /**
+     * @param oracleConfig The CorDapp config given to the FX oracle service.
+     */
+    @NotNull
+    static MockNetworkParameters prepareMockNetworkParameters(@NotNull final Map<String, Object> oracleConfig) {
+        return prepareMockNetworkParameters(oracleConfig, Collections.emptyMap());
+    }
+
+    /**
+     * @param oracleConfig The CorDapp config given to the FX oracle service.
+     * @param flowConfig   The CorDapp config given to the flows and the router.
+     */
+    @NotNull
+    static MockNetworkParameters prepareMockNetworkParameters(
+            @NotNull final Map<String, Object> oracleConfig,
+            @NotNull final Map<String, Object> flowConfig) {
+        return new MockNetworkParameters()
+                .withNotarySpecs(Collections.singletonList(new MockNetworkNotarySpec(NOTARY)))
+                .withCordappsForAllNodes(ImmutableList.of(
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.contracts"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.workflows"),
+                        TestCordapp.findCordapp("com.r3.corda.lib.tokens.money"),
+                        TestCordapp.findCordapp("com.example.contract"),
+                        TestCordapp.findCordapp("com.example.state"),
+                        TestCordapp.findCordapp("com.example.oracle").withConfig(oracleConfig),
+                        TestCordapp.findCordapp("com.example.flow").withConfig(flowConfig)))
+                .withNetworkParameters(ParametersUtilitiesKt.testNetworkParameters(
+                        Collections.emptyList(), 4
+                ));
+    }
+
+    /**
+     * Builds, on the given node, a transaction whose only command is a swap at the given quote.
+     */
+    @NotNull
+    static WireTransaction createSwapTx(
+            @NotNull final StartedMockNode node,
+            @NotNull final Party notary,
+            @NotNull final Party oracle,
+            @NotNull final FxQuote quote) {
+        final Party me = node.getInfo().getLegalIdentities().get(0);
+        return node.transaction(() -> new TransactionBuilder(notary)
+                .addOutputState(new FxState(Collections.singletonList(me)))
+                .addCommand(new Swap(quote), oracle.getOwningKey())
+                .toWireTransaction(node.getServices()));
+    }
+}
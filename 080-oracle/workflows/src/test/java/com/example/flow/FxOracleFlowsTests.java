@@ -0,0 +1,191 @@
+package com.example.flow;
+
+import com.example.oracle.FxOracle;
+import com.example.oracle.FxQuote;
+import com.example.oracle.FxSignOutcome;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import javafx.util.Pair;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class FxOracleFlowsTests {
+    private static final String SHARED_SECRET = Base64.getEncoder().encodeToString(
+            "a secret shared by the oracle fleet".getBytes());
+
+    private final MockNetwork network;
+    private final StartedMockNode oracle1;
+    private final StartedMockNode oracle2;
+    private final StartedMockNode alice;
+    private final Party notaryParty;
+    private final Party oracle1Party;
+    private final Party oracle2Party;
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+
+    public FxOracleFlowsTests() {
+        network = new MockNetwork(FxOracleCourseHelpers.prepareMockNetworkParameters(
+                Collections.singletonMap(FxOracle.MAC_KEY_CONFIG, SHARED_SECRET)));
+        notaryParty = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        oracle1 = network.createNode(new MockNodeParameters()
+                .withLegalName(FxOracleCourseHelpers.FX_ORACLE));
+        oracle1Party = oracle1.getInfo().getLegalIdentities().get(0);
+        oracle2 = network.createNode(new MockNodeParameters()
+                .withLegalName(CordaX500Name.parse("O=FX Oracle 2, L=Frankfurt, C=DE")));
+        oracle2Party = oracle2.getInfo().getLegalIdentities().get(0);
+        alice = network.createNode(new MockNodeParameters()
+                .withLegalName(CordaX500Name.parse("O=Alice, L=Istanbul, C=TR")));
+    }
+
+    @Before
+    public void setup() {
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @NotNull
+    private FxQuote query(@NotNull final Party oracle) throws Exception {
+        final CordaFuture<FxQuote> future = alice.startFlow(new FxOracleFlows.Query.Request(usd, cad, oracle));
+        network.runNetwork();
+        return future.get();
+    }
+
+    @NotNull
+    private TransactionSignature sign(
+            @NotNull final Party oracle,
+            @NotNull final WireTransaction tx) throws Exception {
+        final CordaFuture<TransactionSignature> future = alice.startFlow(new FxOracleFlows.Sign.Request(oracle, tx));
+        network.runNetwork();
+        return future.get();
+    }
+
+    @Test
+    public void statelessQuoteCarriesMac() throws Exception {
+        final FxQuote quote = query(oracle1Party);
+        assertNotNull(quote.getMac());
+        assertTrue(oracle1.getServices().cordaService(FxOracle.class).isStateless());
+    }
+
+    @Test
+    public void quoteFromOneOracleIsSignedByTheOther() throws Exception {
+        final FxQuote quote = query(oracle1Party);
+        final WireTransaction tx = FxOracleCourseHelpers.createSwapTx(alice, notaryParty, oracle2Party, quote);
+
+        final TransactionSignature sig = sign(oracle2Party, tx);
+
+        assertEquals(oracle2Party.getOwningKey(), sig.getBy());
+        tx.checkSignature(sig);
+    }
+
+    @Test
+    public void repeatedQueryIsServedFromCache() throws Exception {
+        final FxQuoteCache cache = alice.getServices().cordaService(FxQuoteCache.class);
+        final FxQuote first = query(oracle1Party);
+        final FxQuote second = query(oracle1Party);
+        final FxQuote fromOther = query(oracle2Party);
+
+        assertEquals(first, second);
+        assertNotEquals(first, fromOther);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        final CordaFuture<FxQuote> future = alice.startFlow(new FxOracleFlows.Query.Request(
+                usd, cad, oracle1Party, false));
+        network.runNetwork();
+        future.get();
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void batchedQueryReturnsQuotesInOrder() throws Exception {
+        final List<Pair<TokenType, TokenType>> pairs = Arrays.asList(new Pair<>(usd, cad), new Pair<>(cad, usd));
+        final CordaFuture<List<FxQuote>> future = alice.startFlow(new FxOracleFlows.QueryBatch.Request(
+                pairs, oracle1Party));
+        network.runNetwork();
+        final List<FxQuote> quotes = future.get();
+
+        assertEquals(2, quotes.size());
+        assertEquals(usd, quotes.get(0).getBase());
+        assertEquals(cad, quotes.get(1).getBase());
+    }
+
+    @Test
+    public void batchedQueryOf50PairsIsASingleRequest() throws Exception {
+        final FxOracle fxOracle = oracle1.getServices().cordaService(FxOracle.class);
+        final int pairCount = 50;
+        final List<Pair<TokenType, TokenType>> pairs = new ArrayList<>(pairCount);
+        for (int i = 0; i < pairCount; i++) pairs.add(i % 2 == 0 ? new Pair<>(usd, cad) : new Pair<>(cad, usd));
+
+        final long singleStart = fxOracle.getQuoteRequestCount();
+        for (final Pair<TokenType, TokenType> pair : pairs) {
+            // Without the cache, so that each one is a round trip.
+            final CordaFuture<FxQuote> future = alice.startFlow(new FxOracleFlows.Query.Request(
+                    pair.getKey(), pair.getValue(), oracle1Party, false));
+            network.runNetwork();
+            future.get();
+        }
+        assertEquals(pairCount, fxOracle.getQuoteRequestCount() - singleStart);
+
+        final long batchStart = fxOracle.getQuoteRequestCount();
+        final CordaFuture<List<FxQuote>> future = alice.startFlow(new FxOracleFlows.QueryBatch.Request(
+                pairs, oracle1Party));
+        network.runNetwork();
+        assertEquals(pairCount, future.get().size());
+        assertEquals(1, fxOracle.getQuoteRequestCount() - batchStart);
+    }
+
+    @Test
+    public void batchSignReportsPerItemFailures() throws Exception {
+        final FxQuote quote = query(oracle1Party);
+        final FxQuote tampered = new FxQuote(quote.getBase(), quote.getCounter(),
+                quote.getRate().add(quote.getRate()), quote.getExpirationDate(), quote.getMac());
+        final List<WireTransaction> txs = Arrays.asList(
+                FxOracleCourseHelpers.createSwapTx(alice, notaryParty, oracle2Party, quote),
+                FxOracleCourseHelpers.createSwapTx(alice, notaryParty, oracle2Party, tampered),
+                FxOracleCourseHelpers.createSwapTx(alice, notaryParty, oracle2Party, query(oracle2Party)));
+
+        final CordaFuture<List<FxSignOutcome>> future = alice.startFlow(new FxOracleFlows.SignBatch.Request(
+                oracle2Party, txs));
+        network.runNetwork();
+        final List<FxSignOutcome> outcomes = future.get();
+
+        assertEquals(3, outcomes.size());
+        assertTrue(outcomes.get(0).isSuccess());
+        assertFalse(outcomes.get(1).isSuccess());
+        assertNotNull(outcomes.get(1).getError());
+        assertTrue(outcomes.get(2).isSuccess());
+        //noinspection ConstantConditions
+        txs.get(2).checkSignature(outcomes.get(2).getSignature());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void tamperedQuoteIsRejected() throws Exception {
+        final FxQuote quote = query(oracle1Party);
+        final FxQuote tampered = new FxQuote(quote.getBase(), quote.getCounter(),
+                quote.getRate().add(quote.getRate()), quote.getExpirationDate(), quote.getMac());
+        final WireTransaction tx = FxOracleCourseHelpers.createSwapTx(alice, notaryParty, oracle2Party, tampered);
+
+        sign(oracle2Party, tx);
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.example.flow;
+
+import com.example.oracle.FxOracle;
+import com.example.oracle.FxQuote;
+import com.example.oracle.ReplayFxRateSource;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import javafx.util.Pair;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.node.services.api.NetworkMapCacheInternal;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FxOracleRouterTests {
+    private static final int ORACLE_COUNT = 3;
+    private static final int CURRENCY_COUNT = 20;
+    private static final int ROUTED_QUERY_COUNT = 30;
+    private static final long QUERY_TIMEOUT_MILLIS = 1_000;
+
+    private final MockNetwork network;
+    private final List<StartedMockNode> oracles = new ArrayList<>(ORACLE_COUNT);
+    private final StartedMockNode alice;
+    private final Party notaryParty;
+    private final List<TokenType> currencies = new ArrayList<>(CURRENCY_COUNT);
+
+    public FxOracleRouterTests() {
+        network = new MockNetwork(FxOracleCourseHelpers.prepareMockNetworkParameters(
+                Collections.emptyMap(),
+                Collections.singletonMap(FxOracleRouter.QUERY_TIMEOUT_CONFIG, QUERY_TIMEOUT_MILLIS)));
+        notaryParty = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        for (int i = 1; i <= ORACLE_COUNT; i++) {
+            oracles.add(network.createNode(new MockNodeParameters()
+                    .withLegalName(CordaX500Name.parse("O=FX Oracle " + i + ", L=London, C=GB"))));
+        }
+        alice = network.createNode(new MockNodeParameters()
+                .withLegalName(CordaX500Name.parse("O=Alice, L=Istanbul, C=TR")));
+        for (int i = 0; i < CURRENCY_COUNT; i++) currencies.add(new TokenType(String.format("C%02d", i), 2));
+    }
+
+    @Before
+    public void setup() throws Exception {
+        network.runNetwork();
+        // Every currency against the first one, the other pairs are triangulated.
+        final StringBuilder feed = new StringBuilder();
+        for (int i = 1; i < CURRENCY_COUNT; i++) {
+            feed.append("0,C00,").append(currencies.get(i).getTokenIdentifier()).append(',')
+                    .append(BigDecimal.valueOf(100 + i, 2)).append('\n');
+        }
+        final Path feedFile = Files.createTempFile("fx-feed", ".csv");
+        Files.write(feedFile, feed.toString().getBytes(StandardCharsets.UTF_8));
+        for (final StartedMockNode oracle : oracles) {
+            final ReplayFxRateSource source = new ReplayFxRateSource(feedFile, false);
+            oracle.getServices().cordaService(FxOracle.class).useRateSource(source);
+            assertTrue(source.awaitDone(10, TimeUnit.SECONDS));
+        }
+        Files.delete(feedFile);
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @NotNull
+    private List<Pair<TokenType, TokenType>> allPairs() {
+        final List<Pair<TokenType, TokenType>> pairs = new ArrayList<>();
+        for (final TokenType base : currencies) {
+            for (final TokenType counter : currencies) {
+                if (!base.equals(counter)) pairs.add(new Pair<>(base, counter));
+            }
+        }
+        return pairs;
+    }
+
+    @NotNull
+    private static Party partyOf(@NotNull final StartedMockNode node) {
+        return node.getInfo().getLegalIdentities().get(0);
+    }
+
+    @NotNull
+    private FxQuote routedQuery(@NotNull final Pair<TokenType, TokenType> pair) throws Exception {
+        final CordaFuture<FxQuote> future = alice.startFlow(new FxOracleFlows.RoutedQuery.Request(
+                pair.getKey(), pair.getValue()));
+        network.runNetwork();
+        return future.get();
+    }
+
+    @Test
+    public void pairsAreSpreadEvenlyOverTheFleet() {
+        final FxOracleRouter router = alice.getServices().cordaService(FxOracleRouter.class);
+        final FxOracleRouter otherRouter = oracles.get(0).getServices().cordaService(FxOracleRouter.class);
+        assertEquals(ORACLE_COUNT, router.getOracles().size());
+
+        final Map<Party, Integer> shardSizes = new HashMap<>();
+        final List<Pair<TokenType, TokenType>> pairs = allPairs();
+        for (final Pair<TokenType, TokenType> pair : pairs) {
+            final List<Party> route = router.route(pair.getKey(), pair.getValue());
+            assertEquals(ORACLE_COUNT, route.size());
+            // All nodes agree on the shards.
+            assertEquals(route, otherRouter.route(pair.getKey(), pair.getValue()));
+            shardSizes.merge(route.get(0), 1, Integer::sum);
+        }
+        assertEquals(ORACLE_COUNT, shardSizes.size());
+        for (final int shardSize : shardSizes.values()) {
+            assertTrue("Shard of " + shardSize + " out of " + pairs.size(),
+                    pairs.size() / 5 < shardSize && shardSize < pairs.size() / 2);
+        }
+    }
+
+    @Test
+    public void routedQuotesAreSignedByTheirShard() throws Exception {
+        final FxOracleRouter router = alice.getServices().cordaService(FxOracleRouter.class);
+        final List<Pair<TokenType, TokenType>> pairs = allPairs().subList(0, ROUTED_QUERY_COUNT);
+        for (final Pair<TokenType, TokenType> pair : pairs) {
+            final FxQuote quote = routedQuery(pair);
+            final Party shard = router.route(pair.getKey(), pair.getValue()).get(0);
+            final WireTransaction tx = FxOracleCourseHelpers.createSwapTx(alice, notaryParty, shard, quote);
+
+            final CordaFuture<List<TransactionSignature>> future = alice.startFlow(
+                    new FxOracleFlows.RoutedSign.Request(tx));
+            network.runNetwork();
+            final List<TransactionSignature> sigs = future.get();
+
+            assertEquals(1, sigs.size());
+            assertEquals(shard.getOwningKey(), sigs.get(0).getBy());
+        }
+        // Each oracle only created the quotes of its own shard.
+        long total = 0;
+        for (final StartedMockNode oracle : oracles) {
+            final long created = oracle.getServices().cordaService(FxOracle.class).getNewQuoteCount();
+            assertTrue(0 < created);
+            total += created;
+        }
+        assertEquals(ROUTED_QUERY_COUNT, total);
+    }
+
+    @Test
+    public void quoteFailsOverWhenShardLeavesNetworkMap() throws Exception {
+        final FxOracleRouter router = alice.getServices().cordaService(FxOracleRouter.class);
+        final StartedMockNode gone = oracles.get(ORACLE_COUNT - 1);
+        final Pair<TokenType, TokenType> pair = allPairs().stream()
+                .filter(it -> router.route(it.getKey(), it.getValue()).get(0).equals(partyOf(gone)))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+
+        ((NetworkMapCacheInternal) alice.getServices().getNetworkMapCache()).removeNode(gone.getInfo());
+        final List<Party> route = router.route(pair.getKey(), pair.getValue());
+        final FxQuote quote = routedQuery(pair);
+
+        assertEquals(ORACLE_COUNT - 1, route.size());
+        assertFalse(route.contains(partyOf(gone)));
+        assertEquals(0, gone.getServices().cordaService(FxOracle.class).getNewQuoteCount());
+        final WireTransaction tx = FxOracleCourseHelpers.createSwapTx(alice, notaryParty, route.get(0), quote);
+        final CordaFuture<List<TransactionSignature>> future = alice.startFlow(
+                new FxOracleFlows.RoutedSign.Request(tx));
+        network.runNetwork();
+        assertEquals(route.get(0).getOwningKey(), future.get().get(0).getBy());
+    }
+
+    @Test
+    public void quoteFailsOverWhenShardIsUnreachable() throws Exception {
+        final FxOracleRouter router = alice.getServices().cordaService(FxOracleRouter.class);
+        final StartedMockNode gone = oracles.get(ORACLE_COUNT - 1);
+        final Party goneParty = partyOf(gone);
+        final Pair<TokenType, TokenType> pair = allPairs().stream()
+                .filter(it -> router.route(it.getKey(), it.getValue()).get(0).equals(goneParty))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+
+        // Still in the network map, so the session to it waits instead of failing.
+        gone.stop();
+        final List<Party> route = router.route(pair.getKey(), pair.getValue());
+        assertEquals(ORACLE_COUNT, route.size());
+        assertEquals(goneParty, route.get(0));
+
+        final CordaFuture<FxQuote> future = alice.startFlow(new FxOracleFlows.RoutedQuery.Request(
+                pair.getKey(), pair.getValue()));
+        final long deadline = System.currentTimeMillis() + 20 * QUERY_TIMEOUT_MILLIS;
+        while (!future.isDone() && System.currentTimeMillis() < deadline) {
+            network.runNetwork();
+            Thread.sleep(50);
+        }
+        final FxQuote quote = future.get(1, TimeUnit.SECONDS);
+        // The query to the unreachable shard was killed, not left waiting for it.
+        while (!alice.findStateMachines(FxOracleFlows.Query.Request.class).isEmpty()) {
+            if (deadline < System.currentTimeMillis()) fail("The query to " + goneParty + " is still running");
+            network.runNetwork();
+            Thread.sleep(50);
+        }
+
+        final WireTransaction tx = FxOracleCourseHelpers.createSwapTx(alice, notaryParty, route.get(1), quote);
+        final CordaFuture<List<TransactionSignature>> signed = alice.startFlow(
+                new FxOracleFlows.RoutedSign.Request(tx));
+        network.runNetwork();
+        assertEquals(route.get(1).getOwningKey(), signed.get().get(0).getBy());
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.example.flow;
+
+import com.example.contract.TemperatureContract.Commands.HowWarm;
+import com.example.flow.TemperatureSubscriptionFlows.Notification;
+import com.example.oracle.ReplayTemperatureSource;
+import com.example.oracle.TemperatureOracle;
+import net.corda.core.concurrent.CordaFuture;
+import net.corda.core.flows.FlowException;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TemperatureSubscriptionTests {
+    private static final int NODE_COUNT = 5;
+    private static final int SUBSCRIBER_COUNT = 500;
+    private static final Duration INTERVAL = Duration.ofMillis(200);
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    private final MockNetwork network;
+    private final StartedMockNode oracleNode;
+    private final Party oracleParty;
+    private final List<StartedMockNode> clients = new ArrayList<>(NODE_COUNT);
+
+    public TemperatureSubscriptionTests() {
+        // A thread per node, so that the notifications started by the oracle run on their own.
+        network = new MockNetwork(FxOracleCourseHelpers.prepareMockNetworkParameters().withThreadPerNode(true));
+        oracleNode = network.createNode(new MockNodeParameters()
+                .withLegalName(CordaX500Name.parse("O=Temperature Oracle, L=Oslo, C=NO")));
+        oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+        for (int i = 1; i <= NODE_COUNT; i++) {
+            clients.add(network.createNode(new MockNodeParameters()
+                    .withLegalName(CordaX500Name.parse("O=Insurer " + i + ", L=Zurich, C=CH"))));
+        }
+    }
+
+    @Before
+    public void setup() throws Exception {
+        feed(new BigDecimal("20"));
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    /**
+     * Replays the temperatures on the oracle, one millisecond apart from now, and waits until they are all in.
+     */
+    private void feed(@NotNull final BigDecimal... temperatures) throws Exception {
+        final long start = System.currentTimeMillis();
+        final StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < temperatures.length; i++) {
+            lines.append(start + i).append(',').append(temperatures[i].toPlainString()).append('\n');
+        }
+        final Path file = Files.createTempFile("temperatures", ".csv");
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+        final ReplayTemperatureSource source = new ReplayTemperatureSource(file, false);
+        oracleNode.getServices().cordaService(TemperatureOracle.class).useSource(source);
+        assertTrue(source.awaitDone(10, TimeUnit.SECONDS));
+        Files.delete(file);
+    }
+
+    /**
+     * From 20 to 25 degrees by tenths.
+     */
+    @NotNull
+    private static BigDecimal[] warmUp() {
+        final BigDecimal[] temperatures = new BigDecimal[51];
+        for (int i = 0; i < temperatures.length; i++) temperatures[i] = BigDecimal.valueOf(200 + i, 1);
+        return temperatures;
+    }
+
+    /**
+     * Bounds 2 degrees wide, from [21, 23] to [30, 32].
+     */
+    @NotNull
+    private static HowWarm boundsOf(final int subscriber) {
+        final BigDecimal low = BigDecimal.valueOf(21 + subscriber % 10);
+        return new HowWarm(low, low.add(BigDecimal.valueOf(2)));
+    }
+
+    @NotNull
+    private List<Notification> subscribeAll() throws Exception {
+        final List<CordaFuture<Notification>> futures = new ArrayList<>(SUBSCRIBER_COUNT);
+        for (int i = 0; i < SUBSCRIBER_COUNT; i++) {
+            futures.add(clients.get(i % NODE_COUNT).startFlow(
+                    new TemperatureSubscriptionFlows.Subscribe.Request(oracleParty, boundsOf(i), INTERVAL)));
+        }
+        final List<Notification> initial = new ArrayList<>(SUBSCRIBER_COUNT);
+        for (final CordaFuture<Notification> future : futures) initial.add(future.get());
+        return initial;
+    }
+
+    /**
+     * @return Whether all the subscribers were told where they stand within the timeout.
+     */
+    private boolean awaitStates(
+            @NotNull final List<Notification> subscriptions,
+            @NotNull final BigDecimal temperature) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            boolean allKnown = true;
+            for (int i = 0; i < subscriptions.size() && allKnown; i++) {
+                final HowWarm bounds = boundsOf(i);
+                final boolean expected = bounds.getLowBound().compareTo(temperature) <= 0
+                        && temperature.compareTo(bounds.getHighBound()) <= 0;
+                final Notification latest = clients.get(i % NODE_COUNT).getServices()
+                        .cordaService(TemperatureAlerts.class)
+                        .getLatest(subscriptions.get(i).getSubscriptionId());
+                allKnown = latest != null && latest.isInBounds() == expected;
+            }
+            if (allKnown) return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    @Test
+    public void subscribersAreToldOfCrossingsInFewMessages() throws Exception {
+        final List<Notification> initial = subscribeAll();
+        final TemperatureSubscriptions subscriptions = oracleNode.getServices()
+                .cordaService(TemperatureSubscriptions.class);
+        assertEquals(SUBSCRIBER_COUNT, subscriptions.getSubscriptionCount());
+        for (final Notification notification : initial) assertFalse(notification.isInBounds());
+
+        final BigDecimal[] temperatures = warmUp();
+        feed(temperatures);
+        assertTrue(awaitStates(initial, temperatures[temperatures.length - 1]));
+
+        // Polling would have taken a flow per subscriber and sample.
+        final long messages = subscriptions.getMessageCount();
+        assertTrue("Sent " + messages + " messages", messages < SUBSCRIBER_COUNT / 10);
+        long received = 0;
+        for (final StartedMockNode client : clients) {
+            received += client.getServices().cordaService(TemperatureAlerts.class).getMessageCount();
+        }
+        assertTrue(0 < received && received <= messages);
+    }
+
+    @Test
+    public void unsubscribedAreNoLongerNotified() throws Exception {
+        final StartedMockNode client = clients.get(0);
+        final Notification subscribed = client.startFlow(new TemperatureSubscriptionFlows.Subscribe.Request(
+                oracleParty, new HowWarm(new BigDecimal("24"), new BigDecimal("26")), INTERVAL)).get();
+        client.startFlow(new TemperatureSubscriptionFlows.Unsubscribe.Request(subscribed.getSubscriptionId())).get();
+
+        feed(warmUp());
+        final TemperatureSubscriptions subscriptions = oracleNode.getServices()
+                .cordaService(TemperatureSubscriptions.class);
+        assertEquals(0, subscriptions.getSubscriptionCount());
+        assertEquals(0, subscriptions.getMessageCount());
+        assertNull(client.getServices().cordaService(TemperatureAlerts.class)
+                .getLatest(subscribed.getSubscriptionId()));
+    }
+
+    @Test
+    public void intervalFollowsTheRemainingSubscriptions() throws Exception {
+        final StartedMockNode client = clients.get(0);
+        final Party clientParty = client.getInfo().getLegalIdentities().get(0);
+        final TemperatureSubscriptions subscriptions = oracleNode.getServices()
+                .cordaService(TemperatureSubscriptions.class);
+        final HowWarm bounds = new HowWarm(new BigDecimal("24"), new BigDecimal("26"));
+        final Duration longInterval = INTERVAL.multipliedBy(10);
+        final Notification fast = client.startFlow(new TemperatureSubscriptionFlows.Subscribe.Request(
+                oracleParty, bounds, INTERVAL)).get();
+        final Notification slow = client.startFlow(new TemperatureSubscriptionFlows.Subscribe.Request(
+                oracleParty, bounds, longInterval)).get();
+        assertEquals(INTERVAL, subscriptions.getInterval(clientParty));
+
+        client.startFlow(new TemperatureSubscriptionFlows.Unsubscribe.Request(fast.getSubscriptionId())).get();
+        assertEquals(longInterval, subscriptions.getInterval(clientParty));
+        assertEquals(1, subscriptions.getSubscriberCount());
+
+        client.startFlow(new TemperatureSubscriptionFlows.Unsubscribe.Request(slow.getSubscriptionId())).get();
+        assertNull(subscriptions.getInterval(clientParty));
+        assertEquals(0, subscriptions.getSubscriberCount());
+    }
+
+    @Test
+    public void tooShortIntervalIsRejected() throws Exception {
+        try {
+            clients.get(0).startFlow(new TemperatureSubscriptionFlows.Subscribe.Request(oracleParty,
+                    boundsOf(0), TemperatureSubscriptions.MIN_INTERVAL.minusMillis(1))).get();
+            fail("Should have been rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof FlowException);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import javafx.util.Pair;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class FxCrossRatesTests {
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType eur = FiatCurrency.Companion.getInstance("EUR");
+    private final TokenType gbp = FiatCurrency.Companion.getInstance("GBP");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+
+    private FxRateUpdate update(final TokenType base, final TokenType counter, final String rate) {
+        return new FxRateUpdate(new Pair<>(base, counter), new BigDecimal(rate), Instant.now());
+    }
+
+    @Test
+    public void publishedLegIsUsedAsIs() {
+        final FxCrossRates rates = FxCrossRates.EMPTY.with(Collections.singletonList(update(usd, cad, "1.39")));
+        assertEquals(new BigDecimal("1.390000"), rates.rate(usd, cad));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aZeroRateIsRejected() {
+        update(usd, cad, "0");
+    }
+
+    @Test
+    public void inverseLegIsImplied() {
+        final FxCrossRates rates = FxCrossRates.EMPTY.with(Collections.singletonList(update(usd, eur, "0.8")));
+        assertEquals(new BigDecimal("1.250000"), rates.rate(eur, usd));
+    }
+
+    @Test
+    public void crossRateIsTriangulated() {
+        final FxCrossRates rates = FxCrossRates.EMPTY.with(Arrays.asList(
+                update(usd, gbp, "0.8"),
+                update(gbp, eur, "1.15")));
+        assertEquals(new BigDecimal("0.920000"), rates.rate(usd, eur));
+        assertEquals(new BigDecimal("1.086957"), rates.rate(eur, usd));
+    }
+
+    @Test
+    public void bestPathIsChosen() {
+        final FxCrossRates rates = FxCrossRates.EMPTY.with(Arrays.asList(
+                update(usd, gbp, "0.8"),
+                update(gbp, eur, "1.15"),
+                update(usd, cad, "1.4"),
+                update(cad, eur, "0.7")));
+        // Via GBP gives 0.92, via CAD gives 0.98.
+        assertEquals(new BigDecimal("0.980000"), rates.rate(usd, eur));
+    }
+
+    @Test
+    public void changedLegIsRecomputedIncrementally() {
+        final FxCrossRates before = FxCrossRates.EMPTY.with(Arrays.asList(
+                update(usd, gbp, "0.8"),
+                update(gbp, eur, "1.15")));
+        final FxCrossRates after = before.with(Collections.singletonList(update(gbp, eur, "1.2")));
+        assertEquals(new BigDecimal("0.920000"), before.rate(usd, eur));
+        assertEquals(new BigDecimal("0.960000"), after.rate(usd, eur));
+    }
+
+    @Test
+    public void noPathOfAtMost2LegsGivesNull() {
+        final FxCrossRates rates = FxCrossRates.EMPTY.with(Arrays.asList(
+                update(usd, gbp, "0.8"),
+                update(gbp, eur, "1.15"),
+                update(eur, cad, "1.5")));
+        assertNull(rates.rate(usd, cad));
+        assertNull(rates.rate(usd, FiatCurrency.Companion.getInstance("JPY")));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.example.oracle;
+
+import com.example.flow.FxOracleCourseHelpers;
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FxOracleTests {
+    private static final int THREAD_COUNT = 16;
+    private static final int CALL_COUNT = 2_000;
+
+    private final MockNetwork network;
+    private final StartedMockNode oracleNode;
+    private final Party notaryParty;
+    private final Party oracleParty;
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+
+    public FxOracleTests() {
+        network = new MockNetwork(FxOracleCourseHelpers.prepareMockNetworkParameters());
+        notaryParty = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        oracleNode = network.createNode(new MockNodeParameters()
+                .withLegalName(FxOracleCourseHelpers.FX_ORACLE));
+        oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+    }
+
+    @Before
+    public void setup() {
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void concurrentQuotesAndSignsAreAllHonoured() throws Exception {
+        final FxOracle oracle = oracleNode.getServices().cordaService(FxOracle.class);
+        final List<WireTransaction> txs = new ArrayList<>(CALL_COUNT);
+        for (int i = 0; i < CALL_COUNT; i++) {
+            final FxQuote quote = oracle.getQuote(i % 2 == 0 ? usd : cad, i % 2 == 0 ? cad : usd);
+            //noinspection ConstantConditions
+            txs.add(FxOracleCourseHelpers.createSwapTx(oracleNode, notaryParty, oracleParty, quote));
+        }
+
+        // Sign the prepared ones while new quotes keep coming in.
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        final List<Future<TransactionSignature>> signatures = new ArrayList<>(CALL_COUNT);
+        final List<Future<FxQuote>> quotes = new ArrayList<>(CALL_COUNT);
+        try {
+            for (final WireTransaction tx : txs) {
+                signatures.add(executor.submit(() -> oracle.sign(FxOracleUtilities.filter(tx, oracleParty))));
+                quotes.add(executor.submit(() -> oracle.getQuote(usd, cad)));
+            }
+            for (int i = 0; i < CALL_COUNT; i++) {
+                final TransactionSignature sig = signatures.get(i).get();
+                assertEquals(oracleParty.getOwningKey(), sig.getBy());
+                txs.get(i).checkSignature(sig);
+                assertEquals(usd, quotes.get(i).get().getBase());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void quotesFollowReplayedRates() throws Exception {
+        final FxOracle oracle = oracleNode.getServices().cordaService(FxOracle.class);
+        final StringBuilder feed = new StringBuilder("# offsetMillis,base,counter,rate\n");
+        for (int i = 0; i < 1_000; i++) {
+            feed.append(i / 10).append(",USD,CAD,").append(BigDecimal.valueOf(130_000 + i, 5)).append('\n');
+        }
+        feed.append("1000,EUR,USD,1.08\n");
+        final Path feedFile = Files.createTempFile("fx-feed", ".csv");
+        Files.write(feedFile, feed.toString().getBytes(StandardCharsets.UTF_8));
+        final long versionBefore = oracle.getRateSnapshotVersion();
+
+        final ReplayFxRateSource source = new ReplayFxRateSource(feedFile, false);
+        oracle.useRateSource(source);
+        assertTrue(source.awaitDone(10, TimeUnit.SECONDS));
+
+        // One snapshot per offset.
+        assertEquals(versionBefore + 101, oracle.getRateSnapshotVersion());
+        //noinspection ConstantConditions
+        assertEquals(BigDecimal.valueOf(130_999, 5), oracle.getQuote(usd, cad).getRate());
+        assertNotNull(oracle.getQuote(FiatCurrency.Companion.getInstance("EUR"), usd));
+        // Triangulated via USD.
+        assertNotNull(oracle.getQuote(FiatCurrency.Companion.getInstance("EUR"), cad));
+        assertNull(oracle.getQuote(FiatCurrency.Companion.getInstance("JPY"), cad));
+        Files.delete(feedFile);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotSignUnknownQuote() throws Exception {
+        final FxOracle oracle = oracleNode.getServices().cordaService(FxOracle.class);
+        //noinspection ConstantConditions
+        final FxQuote sent = oracle.getQuote(usd, cad);
+        final FxQuote forged = new FxQuote(usd, cad, sent.getRate().add(sent.getRate()), sent.getExpirationDate());
+        oracle.sign(FxOracleUtilities.filter(
+                FxOracleCourseHelpers.createSwapTx(oracleNode, notaryParty, oracleParty, forged),
+                oracleParty));
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import javafx.util.Pair;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class FxQuoteCoalescerTests {
+    private static final int THREAD_COUNT = 32;
+
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+    private final Pair<TokenType, TokenType> usdCad = new Pair<>(usd, cad);
+    private final AtomicInteger creatorCalls = new AtomicInteger();
+    private final Supplier<FxQuote> creator = () -> {
+        creatorCalls.incrementAndGet();
+        return new FxQuote(usd, cad, BigDecimal.valueOf(139, 2), Instant.now().plusSeconds(20));
+    };
+
+    @Test
+    public void concurrentRequestsShareOneQuote() throws Exception {
+        final FxQuoteCoalescer coalescer = new FxQuoteCoalescer(Duration.ofSeconds(10));
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<FxQuote>> quotes = new ArrayList<>(THREAD_COUNT);
+        try {
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                quotes.add(executor.submit(() -> {
+                    start.await();
+                    return coalescer.getOrCreate(usdCad, 1, creator);
+                }));
+            }
+            start.countDown();
+            final FxQuote first = quotes.get(0).get();
+            for (final Future<FxQuote> quote : quotes) assertSame(first, quote.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, creatorCalls.get());
+        assertEquals(1, coalescer.getCreatedCount());
+        assertEquals(THREAD_COUNT - 1, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void newRatesOrAnElapsedWindowMakeANewQuote() throws Exception {
+        final FxQuoteCoalescer coalescer = new FxQuoteCoalescer(Duration.ofMillis(50));
+        final FxQuote first = coalescer.getOrCreate(usdCad, 1, creator);
+        assertSame(first, coalescer.getOrCreate(usdCad, 1, creator));
+        // A request that saw older rates still gets the shared one.
+        assertSame(first, coalescer.getOrCreate(usdCad, 0, creator));
+        final FxQuote second = coalescer.getOrCreate(usdCad, 2, creator);
+        assertNotSame(first, second);
+        Thread.sleep(100);
+        assertNotSame(second, coalescer.getOrCreate(usdCad, 2, creator));
+        assertEquals(3, coalescer.getCreatedCount());
+        assertEquals(2, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void slowCreationDoesNotHoldUpOtherPairs() throws Exception {
+        final FxQuoteCoalescer coalescer = new FxQuoteCoalescer(Duration.ofSeconds(10));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final Future<FxQuote> slow = executor.submit(() -> coalescer.getOrCreate(usdCad, 1, () -> {
+                creating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return creator.get();
+            }));
+            assertTrue(creating.await(5, TimeUnit.SECONDS));
+            // Every other pair is served while the first one is still being created.
+            for (int i = 0; i < 100; i++) {
+                final TokenType other = new TokenType("T" + i, 2);
+                assertNotNull(coalescer.getOrCreate(new Pair<>(usd, other), 1, () ->
+                        new FxQuote(usd, other, BigDecimal.ONE, Instant.now().plusSeconds(20))));
+            }
+            assertFalse(slow.isDone());
+            release.countDown();
+            assertNotNull(slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(101, coalescer.getCreatedCount());
+    }
+
+    @Test
+    public void zeroWindowNeverShares() {
+        final FxQuoteCoalescer coalescer = new FxQuoteCoalescer(Duration.ZERO);
+        assertNotSame(coalescer.getOrCreate(usdCad, 1, creator), coalescer.getOrCreate(usdCad, 1, creator));
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void unavailablePairIsNotShared() {
+        final FxQuoteCoalescer coalescer = new FxQuoteCoalescer(Duration.ofSeconds(10));
+        assertNull(coalescer.getOrCreate(usdCad, 1, () -> null));
+        assertNotNull(coalescer.getOrCreate(usdCad, 1, creator));
+        assertEquals(1, coalescer.getCreatedCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class FxQuoteJournalTests {
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("fx-quote-journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    private FxQuote quoteExpiringIn(final Duration validity, final long rateUnscaled) {
+        return new FxQuote(usd, cad, BigDecimal.valueOf(rateUnscaled, 4), Instant.now().plus(validity));
+    }
+
+    private long segmentFileCount() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void recoversOnlyUnexpiredQuotes() throws Exception {
+        final List<FxQuote> fresh = new ArrayList<>();
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 64, it -> fail("Nothing to recover"))) {
+            for (int i = 0; i < 100; i++) {
+                final FxQuote quote = quoteExpiringIn(Duration.ofSeconds(20), 13_900 + i);
+                assertTrue(journal.append(quote));
+                fresh.add(quote);
+                assertTrue(journal.append(quoteExpiringIn(Duration.ofMillis(50), i)));
+            }
+        }
+        Thread.sleep(100);
+
+        final List<FxQuote> recovered = new ArrayList<>();
+        try (final FxQuoteJournal ignored = new FxQuoteJournal(directory, 64, recovered::add)) {
+            assertEquals(fresh, recovered);
+        }
+    }
+
+    @Test
+    public void recoveredQuotesAreHonouredByTheRegistry() throws Exception {
+        final FxQuote quote = quoteExpiringIn(Duration.ofSeconds(20), 13_900);
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, it -> fail("Nothing to recover"))) {
+            journal.append(quote);
+        }
+        final FxQuoteRegistry registry = new FxQuoteRegistry(Duration.ofSeconds(20));
+        try (final FxQuoteJournal ignored = new FxQuoteJournal(directory, registry::register)) {
+            assertTrue(registry.contains(quote));
+        }
+    }
+
+    @Test
+    public void deletesExpiredSegments() throws Exception {
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 16, it -> fail("Nothing to recover"))) {
+            for (int i = 0; i < 64; i++) journal.append(quoteExpiringIn(Duration.ofMillis(50), i));
+            assertEquals(4, journal.getSegmentCount());
+            Thread.sleep(100);
+            // Opens the 5th segment, which purges the 4 full ones.
+            journal.append(quoteExpiringIn(Duration.ofSeconds(20), 13_900));
+            assertEquals(1, journal.getSegmentCount());
+            assertEquals(1, segmentFileCount());
+        }
+        Thread.sleep(100);
+        // On recovery, the segment of the fresh quote stays, and appends go to a new one.
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 16, it -> {})) {
+            journal.append(quoteExpiringIn(Duration.ofSeconds(20), 14_000));
+            assertEquals(2, segmentFileCount());
+        }
+    }
+
+    @Test
+    public void purgesRecoveredSegmentsOnceTheyExpire() throws Exception {
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 16, it -> fail("Nothing to recover"))) {
+            for (int i = 0; i < 20; i++) journal.append(quoteExpiringIn(Duration.ofMillis(500), i));
+        }
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 16, it -> {})) {
+            assertEquals(2, journal.getSegmentCount());
+            // Without any append, so without any rollover.
+            final long end = System.currentTimeMillis() + 5_000;
+            while (0 < journal.getSegmentCount()) {
+                if (end < System.currentTimeMillis()) fail("Timed out");
+                Thread.sleep(50);
+            }
+            assertEquals(0, segmentFileCount());
+        }
+    }
+
+    @Test
+    public void recoversWhatWasForcedOnEachAppend() throws Exception {
+        final FxQuote quote = quoteExpiringIn(Duration.ofSeconds(20), 13_900);
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 16, Duration.ZERO,
+                it -> fail("Nothing to recover"))) {
+            assertTrue(journal.append(quote));
+        }
+        final List<FxQuote> recovered = new ArrayList<>();
+        try (final FxQuoteJournal ignored = new FxQuoteJournal(directory, 16, recovered::add)) {
+            assertEquals(Collections.singletonList(quote), recovered);
+        }
+    }
+
+    @Test
+    public void concurrentRolloversKeepTheQuotesOfWritersInFlight() throws Exception {
+        final int threadCount = 8;
+        final int perThread = 2_000;
+        final List<FxQuote> fresh = Collections.synchronizedList(new ArrayList<>());
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, 4, it -> fail("Nothing to recover"))) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        // Mostly quotes already expired, so that segments are purged as soon as they are full.
+                        if (i % 50 == 0) {
+                            final FxQuote quote = quoteExpiringIn(Duration.ofSeconds(20), thread * perThread + i);
+                            assertTrue(journal.append(quote));
+                            fresh.add(quote);
+                        } else {
+                            assertTrue(journal.append(quoteExpiringIn(Duration.ofMillis(-1), i)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        final List<FxQuote> recovered = new ArrayList<>();
+        try (final FxQuoteJournal ignored = new FxQuoteJournal(directory, 4, recovered::add)) {
+            assertEquals(new HashSet<>(fresh), new HashSet<>(recovered));
+        }
+    }
+
+    @Test
+    public void skipsQuotesThatDoNotFitARecord() throws Exception {
+        try (final FxQuoteJournal journal = new FxQuoteJournal(directory, it -> fail("Nothing to recover"))) {
+            assertFalse(journal.append(new FxQuote(new TokenType("TOO-LONG-ID", 2), cad,
+                    BigDecimal.ONE, Instant.now().plus(Duration.ofSeconds(20)))));
+            assertFalse(journal.append(new FxQuote(usd, cad,
+                    new BigDecimal("123456789012345678901234567890"), Instant.now().plus(Duration.ofSeconds(20)))));
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.example.oracle;
+
+import com.r3.corda.lib.tokens.contracts.types.TokenType;
+import com.r3.corda.lib.tokens.money.FiatCurrency;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class FxQuoteRegistryTests {
+    private final TokenType usd = FiatCurrency.Companion.getInstance("USD");
+    private final TokenType cad = FiatCurrency.Companion.getInstance("CAD");
+
+    private FxQuote quoteExpiringIn(final Duration validity, final long rateUnscaled) {
+        return new FxQuote(usd, cad, BigDecimal.valueOf(rateUnscaled, 4), Instant.now().plus(validity));
+    }
+
+    @Test
+    public void containsRegisteredQuoteOnly() {
+        final FxQuoteRegistry registry = new FxQuoteRegistry(Duration.ofSeconds(20));
+        final FxQuote registered = quoteExpiringIn(Duration.ofSeconds(20), 13_900);
+        registry.register(registered);
+        assertTrue(registry.contains(registered));
+        assertFalse(registry.contains(quoteExpiringIn(Duration.ofSeconds(20), 14_000)));
+    }
+
+    @Test
+    public void expiresAllStaleQuotes() throws Exception {
+        final FxQuoteRegistry registry = new FxQuoteRegistry(Duration.ofMillis(200), Duration.ofMillis(10));
+        final List<FxQuote> stale = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            final FxQuote quote = quoteExpiringIn(Duration.ofMillis(50), i);
+            stale.add(quote);
+            registry.register(quote);
+        }
+        assertEquals(1_000, registry.size());
+        Thread.sleep(100);
+        final FxQuote fresh = quoteExpiringIn(Duration.ofSeconds(20), 1_000_000);
+        registry.register(fresh);
+        assertEquals(1, registry.size());
+        stale.forEach(it -> assertFalse(registry.contains(it)));
+        assertTrue(registry.contains(fresh));
+    }
+
+    @Test
+    public void concurrentRegisterAndContains() throws Exception {
+        final FxQuoteRegistry registry = new FxQuoteRegistry(Duration.ofSeconds(20), Duration.ofMillis(1));
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<Boolean>> found = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                final long rate = i;
+                found.add(executor.submit(() -> {
+                    final FxQuote quote = quoteExpiringIn(Duration.ofSeconds(20), rate);
+                    registry.register(quote);
+                    return registry.contains(quote);
+                }));
+            }
+            for (final Future<Boolean> it : found) assertTrue(it.get());
+            assertEquals(10_000, registry.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.example.oracle;
+
+import com.example.contract.TemperatureContract.Commands.HowWarm;
+import com.example.flow.FxOracleCourseHelpers;
+import com.example.state.FxState;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNodeParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TemperatureOracleTests {
+    private static final CordaX500Name TEMPERATURE_ORACLE = CordaX500Name.parse("O=Temperature Oracle, L=Oslo, C=NO");
+
+    private final MockNetwork network;
+    private final StartedMockNode oracleNode;
+    private final Party notaryParty;
+    private final Party oracleParty;
+    private final Instant start = Instant.now().minusSeconds(60);
+
+    public TemperatureOracleTests() {
+        network = new MockNetwork(FxOracleCourseHelpers.prepareMockNetworkParameters());
+        notaryParty = network.getDefaultNotaryNode().getInfo().getLegalIdentities().get(0);
+        oracleNode = network.createNode(new MockNodeParameters().withLegalName(TEMPERATURE_ORACLE));
+        oracleParty = oracleNode.getInfo().getLegalIdentities().get(0);
+    }
+
+    @Before
+    public void setup() throws Exception {
+        network.runNetwork();
+        // 20 degrees for the first 10 seconds, then 25.5 for 10 seconds, then 30.
+        final Path samples = Files.createTempFile("temperatures", ".csv");
+        Files.write(samples, ("# epochMillis,degrees\n"
+                + start.toEpochMilli() + ",20\n"
+                + start.plusSeconds(10).toEpochMilli() + ",25.5\n"
+                + start.plusSeconds(20).toEpochMilli() + ",30\n").getBytes(StandardCharsets.UTF_8));
+        final ReplayTemperatureSource source = new ReplayTemperatureSource(samples, false);
+        oracleNode.getServices().cordaService(TemperatureOracle.class).useSource(source);
+        assertTrue(source.awaitDone(10, TimeUnit.SECONDS));
+        Files.delete(samples);
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @NotNull
+    private WireTransaction createTx(
+            @Nullable final Instant untilTime,
+            @NotNull final BigDecimal lowBound,
+            @NotNull final BigDecimal highBound) {
+        return oracleNode.transaction(() -> {
+            final TransactionBuilder builder = new TransactionBuilder(notaryParty)
+                    .addOutputState(new FxState(Collections.singletonList(oracleParty)))
+                    .addCommand(new HowWarm(lowBound, highBound), oracleParty.getOwningKey());
+            if (untilTime != null) builder.setTimeWindow(TimeWindow.untilOnly(untilTime));
+            return builder.toWireTransaction(oracleNode.getServices());
+        });
+    }
+
+    @NotNull
+    private TransactionSignature sign(@NotNull final WireTransaction tx) throws Exception {
+        return oracleNode.getServices().cordaService(TemperatureOracle.class)
+                .sign(TemperatureOracleUtilities.filter(tx, oracleParty));
+    }
+
+    @Test
+    public void temperaturesAreKeptOverTime() {
+        final TemperatureOracle oracle = oracleNode.getServices().cordaService(TemperatureOracle.class);
+        assertEquals(0, new BigDecimal("30").compareTo(oracle.getCurrentTemperature()));
+        assertNull(oracle.getTemperatureAt(start.minusMillis(1)));
+        assertEquals(0, new BigDecimal("20").compareTo(oracle.getTemperatureAt(start.plusSeconds(5))));
+        assertEquals(0, new BigDecimal("25.5").compareTo(oracle.getTemperatureAt(start.plusSeconds(10))));
+    }
+
+    @Test
+    public void signsOverTheTemperatureAtTheTimeWindow() throws Exception {
+        final WireTransaction tx = createTx(start.plusSeconds(15), new BigDecimal("25.5"), new BigDecimal("26"));
+        final TransactionSignature sig = sign(tx);
+        assertEquals(oracleParty.getOwningKey(), sig.getBy());
+        tx.checkSignature(sig);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesWhenTheTemperatureThenIsOutOfBounds() throws Exception {
+        // In bounds now, but not at the time of the transaction.
+        sign(createTx(start.plusSeconds(5), new BigDecimal("29"), new BigDecimal("31")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesBeforeTheFirstSample() throws Exception {
+        sign(createTx(start.minusSeconds(1), BigDecimal.ZERO, new BigDecimal("100")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesWithoutTimeWindow() throws Exception {
+        sign(createTx(null, BigDecimal.ZERO, new BigDecimal("100")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesFutureTimeWindow() throws Exception {
+        sign(createTx(Instant.now().plusSeconds(60), BigDecimal.ZERO, new BigDecimal("100")));
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.oracle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TemperatureSeriesTests {
+    private static final int CAPACITY = 256;
+
+    @Test
+    public void emptySeriesHasNoReading() {
+        final TemperatureSeries series = new TemperatureSeries(CAPACITY);
+        assertEquals(TemperatureSeries.NO_READING, series.latestReading());
+        assertEquals(TemperatureSeries.NO_READING, series.readingAt(1_000L));
+        assertEquals(0, series.size());
+    }
+
+    @Test
+    public void readingAtIsThatOfTheLatestSampleNotAfter() {
+        final TemperatureSeries series = new TemperatureSeries(CAPACITY);
+        assertTrue(series.add(1_000L, 10));
+        assertTrue(series.add(2_000L, 20));
+        assertTrue(series.add(3_000L, 30));
+
+        assertEquals(TemperatureSeries.NO_READING, series.readingAt(999L));
+        assertEquals(10, series.readingAt(1_000L));
+        assertEquals(10, series.readingAt(1_999L));
+        assertEquals(20, series.readingAt(2_000L));
+        assertEquals(30, series.readingAt(3_000L));
+        assertEquals(30, series.readingAt(Long.MAX_VALUE));
+        assertEquals(30, series.latestReading());
+    }
+
+    @Test
+    public void olderSamplesAreRejected() {
+        final TemperatureSeries series = new TemperatureSeries(CAPACITY);
+        assertTrue(series.add(2_000L, 20));
+        assertFalse(series.add(1_000L, 10));
+        // Same time is fine, the later one wins.
+        assertTrue(series.add(2_000L, 21));
+        assertEquals(21, series.readingAt(2_000L));
+        assertEquals(2, series.size());
+    }
+
+    @Test
+    public void overwrittenSamplesAreNoLongerKnown() {
+        final TemperatureSeries series = new TemperatureSeries(CAPACITY);
+        for (int i = 0; i < 3 * CAPACITY; i++) series.add(i, i);
+
+        assertEquals(CAPACITY, series.size());
+        assertEquals(TemperatureSeries.NO_READING, series.readingAt(2 * CAPACITY - 1));
+        assertEquals(3 * CAPACITY - 1, series.readingAt(3 * CAPACITY - 1));
+        assertEquals(3 * CAPACITY - 100, series.readingAt(3 * CAPACITY - 100));
+    }
+
+    @Test
+    public void readersNeverSeeATornSample() throws Exception {
+        final TemperatureSeries series = new TemperatureSeries(CAPACITY);
+        final int sampleCount = 200_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < sampleCount; i++) series.add(i, i * 10L);
+            });
+            final List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(executor.submit(() -> {
+                    while (!writer.isDone()) {
+                        final long latest = series.latestReading();
+                        if (latest == TemperatureSeries.NO_READING) continue;
+                        final long time = latest / 10 - CAPACITY / 2;
+                        final long reading = series.readingAt(time);
+                        // The sample of that time, or one that is no longer known.
+                        assertTrue(reading == TemperatureSeries.NO_READING || time < 0 || reading == time * 10L);
+                    }
+                    return null;
+                }));
+            }
+            writer.get(30, TimeUnit.SECONDS);
+            for (final Future<?> reader : readers) reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals((sampleCount - 1) * 10L, series.latestReading());
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.flow.DiligenceOracleInternalFlows.ImportReport;
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import net.corda.core.contracts.UniqueIdentifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DiligenceStatusImporterTests {
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("diligence-import");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Test
+    public void importsCsvInBatches() throws Exception {
+        final List<UniqueIdentifier> linked = new ArrayList<>();
+        final List<UniqueIdentifier> released = new ArrayList<>();
+        final StringBuilder lines = new StringBuilder("# tokenId,status\n");
+        for (int i = 0; i < 1_000; i++) {
+            final UniqueIdentifier kept = new UniqueIdentifier();
+            lines.append(kept.getId()).append(",Linked\n");
+            linked.add(kept);
+            final UniqueIdentifier cleared = new UniqueIdentifier();
+            lines.append(cleared.getId()).append(",Linked\n");
+            lines.append(cleared.getId()).append(", Clear\n");
+            released.add(cleared);
+        }
+        final Path file = directory.resolve("statuses.csv");
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        final List<Long> progress = new ArrayList<>();
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory.resolve("log"))) {
+            final ImportReport report = new DiligenceStatusImporter(registry, 256, progress::add).importFrom(file);
+            assertEquals(3_000, report.getRecordCount());
+            assertEquals(2_000, report.getLinkedCount());
+            assertEquals(1_000, registry.getLinkedCount());
+            for (final UniqueIdentifier id : linked) assertEquals(Status.Linked, registry.get(id));
+            for (final UniqueIdentifier id : released) assertEquals(Status.Clear, registry.get(id));
+        }
+        assertEquals(12, progress.size());
+        assertEquals(256L, (long) progress.get(0));
+        assertEquals(3_000L, (long) progress.get(progress.size() - 1));
+        // And it was logged.
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory.resolve("log"))) {
+            assertEquals(1_000, registry.getLinkedCount());
+        }
+    }
+
+    @Test
+    public void importsBinary() throws Exception {
+        final Path file = directory.resolve("statuses.bin");
+        final List<UUID> ids = new ArrayList<>();
+        try (final OutputStream out = Files.newOutputStream(file)) {
+            final ByteBuffer record = ByteBuffer.allocate(DiligenceStatusImporter.BINARY_RECORD_SIZE);
+            for (int i = 0; i < 10_000; i++) {
+                final UUID id = UUID.randomUUID();
+                ids.add(id);
+                record.clear();
+                record.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                        .put((byte) (i % 2));
+                out.write(record.array());
+            }
+        }
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(null)) {
+            final ImportReport report = new DiligenceStatusImporter(registry, 1_000, it -> {}).importFrom(file);
+            assertEquals(10_000, report.getRecordCount());
+            assertEquals(5_000, registry.getLinkedCount());
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(i % 2 == 1 ? Status.Linked : Status.Clear,
+                        registry.get(new UniqueIdentifier(null, ids.get(i))));
+            }
+        }
+    }
+
+    @Test
+    public void keepsBatchesBeforeMalformedRecord() throws Exception {
+        final UniqueIdentifier first = new UniqueIdentifier();
+        final UniqueIdentifier second = new UniqueIdentifier();
+        final Path file = directory.resolve("statuses.csv");
+        Files.write(file, (first.getId() + ",Linked\n" + second.getId() + ",Linked\nnot-a-record\n")
+                .getBytes(StandardCharsets.UTF_8));
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(null)) {
+            try {
+                new DiligenceStatusImporter(registry, 1, it -> {}).importFrom(file);
+                fail("Should have been rejected");
+            } catch (IllegalArgumentException e) {
+                assertEquals(Status.Linked, registry.get(first));
+                assertEquals(Status.Linked, registry.get(second));
+            }
+        }
+    }
+
+    /**
+     * Each batch links an id, then others, then clears the id again, so a reader seeing a batch in part would find it
+     * linked.
+     */
+    @Test
+    public void readersSeeWholeBatches() throws Exception {
+        final int batchSize = 1_000;
+        final UniqueIdentifier flickering = new UniqueIdentifier();
+        final StringBuilder lines = new StringBuilder();
+        for (int batch = 0; batch < 100; batch++) {
+            lines.append(flickering.getId()).append(",Linked\n");
+            for (int i = 2; i < batchSize; i++) lines.append(UUID.randomUUID()).append(",Linked\n");
+            lines.append(flickering.getId()).append(",Clear\n");
+        }
+        final Path file = directory.resolve("statuses.csv");
+        Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        final ExecutorService readers = Executors.newFixedThreadPool(4);
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(null)) {
+            final AtomicBoolean done = new AtomicBoolean();
+            final List<Future<Long>> checks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                checks.add(readers.submit(() -> {
+                    long seenLinked = 0;
+                    while (!done.get()) {
+                        if (registry.get(flickering) == Status.Linked) seenLinked++;
+                    }
+                    return seenLinked;
+                }));
+            }
+            final ImportReport report = new DiligenceStatusImporter(registry, batchSize, it -> {}).importFrom(file);
+            done.set(true);
+            assertEquals(100 * batchSize, report.getRecordCount());
+            for (final Future<Long> check : checks) assertEquals(0L, (long) check.get());
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.template.diligence.flow;
+
+import com.template.diligence.state.DiligenceOracleUtilities.Status;
+import net.corda.core.contracts.UniqueIdentifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DiligenceStatusRegistryTests {
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("diligence-statuses");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    private long segmentFileCount() throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void unknownIdsAreClearWithoutLookingUpTheIndex() throws Exception {
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(null)) {
+            registry.set(new UniqueIdentifier(), Status.Linked);
+            for (int i = 0; i < 1_000; i++) assertEquals(Status.Clear, registry.get(new UniqueIdentifier()));
+            assertEquals(0, registry.getSegmentCount());
+            assertTrue(registry.getFilteredCount() > 950);
+            assertEquals(1_000, registry.getFilteredCount() + registry.getIndexedCount());
+        }
+    }
+
+    @Test
+    public void recoversTheLastStatusOfEachId() throws Exception {
+        final List<UniqueIdentifier> linked = new ArrayList<>();
+        final List<UniqueIdentifier> cleared = new ArrayList<>();
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 64, 16)) {
+            for (int i = 0; i < 100; i++) {
+                final UniqueIdentifier kept = new UniqueIdentifier();
+                registry.set(kept, Status.Linked);
+                linked.add(kept);
+                final UniqueIdentifier released = new UniqueIdentifier();
+                registry.set(released, Status.Linked);
+                registry.set(released, Status.Clear);
+                cleared.add(released);
+            }
+            // The zero id is the empty slot of the index.
+            registry.set(new UniqueIdentifier(null, new UUID(0, 0)), Status.Linked);
+        }
+
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 64, 16)) {
+            assertEquals(101, registry.getLinkedCount());
+            for (final UniqueIdentifier id : linked) assertEquals(Status.Linked, registry.get(id));
+            for (final UniqueIdentifier id : cleared) assertEquals(Status.Clear, registry.get(id));
+            assertEquals(Status.Linked, registry.get(new UniqueIdentifier(null, new UUID(0, 0))));
+        }
+    }
+
+    @Test
+    public void compactsMostlySupersededLog() throws Exception {
+        final UniqueIdentifier kept = new UniqueIdentifier();
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 16, 16)) {
+            registry.set(kept, Status.Linked);
+            for (int i = 0; i < 100; i++) {
+                final UniqueIdentifier released = new UniqueIdentifier();
+                registry.set(released, Status.Linked);
+                registry.set(released, Status.Clear);
+            }
+            assertEquals(13, registry.getSegmentCount());
+        }
+
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 16, 16)) {
+            assertEquals(1, registry.getSegmentCount());
+            assertEquals(1, segmentFileCount());
+            assertEquals(Status.Linked, registry.get(kept));
+            final UniqueIdentifier added = new UniqueIdentifier();
+            registry.set(added, Status.Linked);
+            assertEquals(Status.Linked, registry.get(added));
+        }
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 16, 16)) {
+            assertEquals(2, registry.getLinkedCount());
+        }
+    }
+
+    @Test
+    public void stopsAtTornRecordAndWritesOverIt() throws Exception {
+        final UniqueIdentifier first = new UniqueIdentifier();
+        final UniqueIdentifier torn = new UniqueIdentifier();
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 16, 16)) {
+            registry.set(first, Status.Linked);
+            registry.set(torn, Status.Linked);
+        }
+        final Path segment;
+        try (final Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        // Flip a byte of the id of the second record, so that its CRC no longer matches.
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), DiligenceStatusRegistry.RECORD_SIZE + 12);
+        }
+
+        final UniqueIdentifier next = new UniqueIdentifier();
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 16, 16)) {
+            assertEquals(1, registry.getLinkedCount());
+            assertEquals(Status.Linked, registry.get(first));
+            assertEquals(Status.Clear, registry.get(torn));
+            registry.set(next, Status.Linked);
+        }
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(directory, 16, 16)) {
+            assertEquals(2, registry.getLinkedCount());
+            assertEquals(Status.Linked, registry.get(next));
+        }
+    }
+
+    @Test
+    public void filterGrowsWithTheLinkedIds() throws Exception {
+        final List<UniqueIdentifier> linked = new ArrayList<>();
+        try (final DiligenceStatusRegistry registry = new DiligenceStatusRegistry(null, 16, 16)) {
+            for (int i = 0; i < 1_000; i++) {
+                final UniqueIdentifier id = new UniqueIdentifier();
+                registry.set(id, Status.Linked);
+                linked.add(id);
+            }
+            for (final UniqueIdentifier id : linked) assertEquals(Status.Linked, registry.get(id));
+            assertEquals(0, registry.getFilteredCount());
+        }
+    }
+
+}
@@ -11,9 +11,12 @@ import com.template.car.flow.CarTokenTypeConstants;
 import com.template.car.flow.IssueCarToHolderFlows.IssueCarToHolderFlow;
 import com.template.car.flow.IssueCarTokenTypeFlows.IssueCarTokenTypeFlow;
 import com.template.car.state.CarTokenType;
+import com.template.diligence.flow.DiligenceOracleInternalFlows.ImportReport;
+import com.template.diligence.flow.DiligenceOracleInternalFlows.ImportStatuses;
 import com.template.diligence.flow.DiligenceOracleInternalFlows.SetStatus;
 import com.template.diligence.state.DiligenceOracleUtilities.Status;
 import com.template.diligence.state.DueDiligence;
+import com.template.service.ServiceStartup;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.contracts.UniqueIdentifier;
@@ -29,13 +32,20 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DueDiligenceOracleFlowsTests {
     private final MockNetwork network;
@@ -64,7 +74,7 @@ public class DueDiligenceOracleFlowsTests {
         oracleParty = requestNewKey(dmv, createAccount(dmv, DiligenceOracle.ACCOUNT_NAME).getState().getData());
         informKeys(dmv, Collections.singletonList(oracleParty.getOwningKey()),
                 Arrays.asList(bmwDealer, alice, bob));
-        setOracleKey(oracleParty.getOwningKey());
+        // The oracle finds the key of its account on its own.
     }
 
     @Before
@@ -113,13 +123,6 @@ public class DueDiligenceOracleFlowsTests {
         }
     }
 
-    private void setOracleKey(@NotNull final PublicKey oracleKey) throws Exception {
-        final DiligenceOracleInternalFlows.SetOracleKeyFlow flow = new DiligenceOracleInternalFlows.SetOracleKeyFlow(oracleKey);
-        final CordaFuture<Void> future = dmv.startFlow(flow);
-        network.runNetwork();
-        future.get();
-    }
-
     private void setStatus(
             @NotNull final UniqueIdentifier tokenId,
             @NotNull final Status status) throws Exception {
@@ -160,6 +163,14 @@ public class DueDiligenceOracleFlowsTests {
         return future.get().getCoreTransaction().outRef(0);
     }
 
+    @Test
+    public void oracleIsReadyOnceTheNodeHasStarted() {
+        final ServiceStartup startup = dmv.getServices().cordaService(DiligenceOracle.class).getStartup();
+        assertTrue(startup.isReady());
+        assertTrue(startup.getReady().isDone());
+        assertTrue(0 <= startup.getWarmUpMillis());
+    }
+
     @Test
     public void canQueryOracleForClear() throws Exception {
         network.runNetwork();
@@ -190,6 +201,89 @@ public class DueDiligenceOracleFlowsTests {
         assertEquals(Status.Linked, status);
     }
 
+    @NotNull
+    private Status query(@NotNull final UniqueIdentifier tokenId, final boolean useCache) throws Exception {
+        final CordaFuture<Status> future = alice.startFlow(
+                new DueDiligenceOracleFlows.Query.Request(oracleParty, tokenId, useCache));
+        network.runNetwork();
+        return future.get();
+    }
+
+    @Test
+    public void repeatedQueryIsServedFromCache() throws Exception {
+        final DiligenceStatusCache cache = alice.getServices().cordaService(DiligenceStatusCache.class);
+        final UniqueIdentifier tokenId = new UniqueIdentifier();
+        setStatus(tokenId, Status.Linked);
+        assertEquals(Status.Linked, query(tokenId, true));
+        setStatus(tokenId, Status.Clear);
+
+        assertEquals(Status.Linked, query(tokenId, true));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        assertEquals(Status.Clear, query(tokenId, false));
+        assertEquals(Status.Clear, query(tokenId, true));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // The batch only asks about the token it does not know about.
+        final UniqueIdentifier other = new UniqueIdentifier();
+        setStatus(other, Status.Linked);
+        final CordaFuture<Set<UniqueIdentifier>> future = alice.startFlow(
+                new DueDiligenceOracleFlows.QueryBatch.Request(oracleParty, Arrays.asList(tokenId, other)));
+        network.runNetwork();
+        assertEquals(Collections.singleton(other), future.get());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(Status.Linked, query(other, true));
+        assertEquals(4, cache.getHitCount());
+    }
+
+    @Test
+    public void cachedStatusIsDroppedOnceCertified() throws Exception {
+        final DiligenceStatusCache cache = alice.getServices().cordaService(DiligenceStatusCache.class);
+        final StateAndRef<CarTokenType> bmwType = createNewBmw("abc123", "Bmw",
+                Collections.singletonList(dealerParty));
+        final StateAndRef<NonFungibleToken> bmw = issueCarTo(bmwType.getState().getData().toPointer(CarTokenType.class),
+                bobParty);
+        final UniqueIdentifier tokenId = bmw.getState().getData().getLinearId();
+        final CordaFuture<StateAndRef<DueDiligence>> prepareFuture = alice.startFlow(
+                new DueDiligenceOracleFlows.Prepare.PrepareFlow(
+                        Arrays.asList(aliceParty, bobParty), tokenId, notaryParty, oracleParty));
+        network.runNetwork();
+        final StateAndRef<DueDiligence> dueDilRef = prepareFuture.get();
+        setStatus(tokenId, Status.Clear);
+        assertEquals(Status.Clear, query(tokenId, true));
+        assertEquals(1, cache.getSize());
+
+        final CordaFuture<SignedTransaction> signFuture = alice.startFlow(
+                new DueDiligenceOracleFlows.Certify.RequestStraight(dueDilRef, Status.Clear));
+        network.runNetwork();
+        signFuture.get();
+
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(0, cache.getSize());
+        assertEquals(Status.Clear, query(tokenId, true));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void canQueryOracleForManyAtOnce() throws Exception {
+        final List<UniqueIdentifier> lot = new ArrayList<>();
+        for (int i = 0; i < 200; i++) lot.add(new UniqueIdentifier());
+        setStatus(lot.get(3), Status.Linked);
+        setStatus(lot.get(150), Status.Linked);
+        setStatus(lot.get(150), Status.Clear);
+        setStatus(lot.get(199), Status.Linked);
+
+        final CordaFuture<Set<UniqueIdentifier>> future = alice.startFlow(
+                new DueDiligenceOracleFlows.QueryBatch.Request(oracleParty, lot));
+        network.runNetwork();
+
+        assertEquals(new HashSet<>(Arrays.asList(lot.get(3), lot.get(199))), future.get());
+    }
+
     @Test
     public void canSignIfLinkedCorrect() throws Exception {
         final StateAndRef<CarTokenType> bmwType = createNewBmw("abc123", "Bmw",
@@ -218,4 +312,61 @@ public class DueDiligenceOracleFlowsTests {
         assertEquals(notaryParty.getOwningKey(), signTx.getSigs().get(1).getBy());
     }
 
+    @Test
+    public void canImportStatusesInBulk() throws Exception {
+        final UniqueIdentifier linked = new UniqueIdentifier();
+        final UniqueIdentifier cleared = new UniqueIdentifier();
+        setStatus(cleared, Status.Linked);
+        final Path file = Files.createTempFile("statuses", DiligenceStatusImporter.CSV_EXTENSION);
+        Files.write(file, (linked.getId() + ",Linked\n" + cleared.getId() + ",Clear\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        // The flow is checkpointed with its Import operation while the file is read.
+        final CordaFuture<ImportReport> importFuture = dmv.startFlow(new ImportStatuses(file.toString(), 1));
+        network.runNetwork();
+        final ImportReport report = importFuture.get();
+        Files.delete(file);
+        assertEquals(2, report.getRecordCount());
+        assertEquals(1, report.getLinkedCount());
+
+        final CordaFuture<Status> linkedFuture = alice.startFlow(
+                new DueDiligenceOracleFlows.Query.Request(oracleParty, linked));
+        final CordaFuture<Status> clearedFuture = alice.startFlow(
+                new DueDiligenceOracleFlows.Query.Request(oracleParty, cleared));
+        network.runNetwork();
+        assertEquals(Status.Linked, linkedFuture.get());
+        assertEquals(Status.Clear, clearedFuture.get());
+    }
+
+    @Test
+    public void canCertifyManyInOneTransaction() throws Exception {
+        final List<StateAndRef<DueDiligence>> dueDilRefs = new ArrayList<>();
+        final List<Status> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final StateAndRef<CarTokenType> bmwType = createNewBmw("abc12" + i, "Bmw",
+                    Collections.singletonList(dealerParty));
+            final StateAndRef<NonFungibleToken> bmw = issueCarTo(
+                    bmwType.getState().getData().toPointer(CarTokenType.class), bobParty);
+            final UniqueIdentifier tokenId = bmw.getState().getData().getLinearId();
+            final CordaFuture<StateAndRef<DueDiligence>> prepareFuture = alice.startFlow(
+                    new DueDiligenceOracleFlows.Prepare.PrepareFlow(
+                            Arrays.asList(aliceParty, bobParty), tokenId, notaryParty, oracleParty));
+            network.runNetwork();
+            dueDilRefs.add(prepareFuture.get());
+            final Status status = i == 1 ? Status.Linked : Status.Clear;
+            setStatus(tokenId, status);
+            statuses.add(status);
+        }
+
+        final CordaFuture<SignedTransaction> signFuture = alice.startFlow(
+                new DueDiligenceOracleFlows.Certify.RequestStraight(dueDilRefs, statuses));
+        network.runNetwork();
+        final SignedTransaction signTx = signFuture.get();
+
+        assertEquals(3, signTx.getInputs().size());
+        assertEquals(2, signTx.getSigs().size());
+        assertEquals(oracleParty.getOwningKey(), signTx.getSigs().get(0).getBy());
+        assertEquals(notaryParty.getOwningKey(), signTx.getSigs().get(1).getBy());
+    }
+
 }
@@ -0,0 +1,53 @@
+package com.template.diligence.flow;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class LinkedIdIndexTests {
+
+    @Test
+    public void behavesLikeASet() {
+        final LinkedIdIndex index = new LinkedIdIndex(0);
+        final Set<UUID> expected = new HashSet<>();
+        final Random random = new Random(42);
+        // Few distinct ids, with small values, so that probe chains collide and get shifted back on removal.
+        for (int i = 0; i < 200_000; i++) {
+            final UUID id = new UUID(random.nextInt(4), random.nextInt(2_000));
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), index.add(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+            } else {
+                assertEquals(expected.remove(id),
+                        index.remove(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (int most = 0; most < 4; most++) {
+            for (int least = 0; least < 2_000; least++) {
+                assertEquals(expected.contains(new UUID(most, least)), index.contains(most, least));
+            }
+        }
+        final Set<UUID> visited = new HashSet<>();
+        index.forEach((mostSig, leastSig) -> assertTrue(visited.add(new UUID(mostSig, leastSig))));
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void keepsTheZeroIdAside() {
+        final LinkedIdIndex index = new LinkedIdIndex(16);
+        assertFalse(index.contains(0, 0));
+        assertTrue(index.add(0, 0));
+        assertFalse(index.add(0, 0));
+        assertTrue(index.contains(0, 0));
+        assertEquals(1, index.size());
+        assertTrue(index.remove(0, 0));
+        assertFalse(index.contains(0, 0));
+        assertEquals(0, index.size());
+    }
+
+}
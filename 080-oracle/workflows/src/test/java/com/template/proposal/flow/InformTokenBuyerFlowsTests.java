@@ -13,7 +13,9 @@ import com.template.car.flow.IssueCarTokenTypeFlows.IssueCarTokenTypeFlow;
 import com.template.car.flow.UpdateCarTokenTypeFlows.UpdateCarTokenTypeFlow;
 import com.template.car.flow.UsdTokenConstants;
 import com.template.car.state.CarTokenType;
+import com.template.proposal.flow.InformTokenBuyerFlows.BatchOutcome;
 import com.template.proposal.flow.InformTokenBuyerFlows.Send;
+import com.template.proposal.flow.InformTokenBuyerFlows.SendBatch;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.flows.FlowException;
@@ -39,6 +41,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class InformTokenBuyerFlowsTests {
     private final MockNetwork network;
@@ -245,4 +249,96 @@ public class InformTokenBuyerFlowsTests {
         assertEquals(1, foundTypes.size());
         assertEquals(8_000L, foundTypes.get(0).getState().getData().getMileage());
     }
+
+    @NotNull
+    private SignedTransaction offer(
+            @NotNull final StateAndRef<NonFungibleToken> car,
+            @NotNull final AbstractParty buyer) throws Exception {
+        final SalesProposalOfferFlows.OfferSimpleFlow offerFlow = new SalesProposalOfferFlows.OfferSimpleFlow(
+                car.getState().getData().getLinearId(), buyer, 11_000L, "USD",
+                usMint.getInfo().getLegalIdentities().get(0), 3600);
+        final CordaFuture<SignedTransaction> offerFuture = alice.startFlow(offerFlow);
+        network.runNetwork();
+        return offerFuture.get();
+    }
+
+    private long getMileageOnBob(@NotNull final StateAndRef<CarTokenType> bmwType) {
+        final List<StateAndRef<CarTokenType>> foundTypes = bob.getServices().getVaultService().queryBy(
+                CarTokenType.class,
+                new QueryCriteria.LinearStateQueryCriteria()
+                        .withUuid(Collections.singletonList(bmwType.getState().getData().getLinearId().getId())))
+                .getStates();
+        assertEquals(1, foundTypes.size());
+        return foundTypes.get(0).getState().getData().getMileage();
+    }
+
+    @Test
+    public void recordsACarTokenTypeForManyBuyersOfAHost() throws Throwable {
+        // Seller is on alice.
+        final StateAndRef<AccountInfo> seller = createAccount(alice, "carly");
+        final AnonymousParty sellerParty = requestNewKey(alice, seller.getState().getData());
+        informKeys(alice, Collections.singletonList(sellerParty.getOwningKey()), Collections.singletonList(bmwDealer));
+        // Buyers are on bob.
+        final AnonymousParty danParty = requestNewKey(bob, createAccount(bob, "dan").getState().getData());
+        final AnonymousParty emmaParty = requestNewKey(bob, createAccount(bob, "emma").getState().getData());
+        informKeys(bob, Arrays.asList(danParty.getOwningKey(), emmaParty.getOwningKey()), Arrays.asList(alice, dmv));
+        // The cars.
+        final StateAndRef<CarTokenType> bmwType = createNewBmw("abc124", "BMW",
+                Collections.singletonList(bmwDealer.getInfo().getLegalIdentities().get(0)))
+                .getCoreTransaction().outRefsOfType(CarTokenType.class).get(0);
+        final StateAndRef<NonFungibleToken> bmw1 = issueCarTo(
+                bmwType.getState().getData().toPointer(CarTokenType.class),
+                sellerParty)
+                .getCoreTransaction().outRefsOfType(NonFungibleToken.class).get(0);
+        offer(bmw1, danParty);
+        offer(bmw1, emmaParty);
+        final SignedTransaction mileageTx = updateMileageOn(bmwType, 8_000L, 22_000L,
+                Collections.emptyList());
+
+        final SendBatch sendFlow = new SendBatch(Arrays.asList(danParty, emmaParty),
+                Collections.singletonList(mileageTx));
+        final CordaFuture<BatchOutcome> sendFuture = dmv.startFlow(sendFlow);
+        network.runNetwork();
+        assertTrue(sendFuture.get().isComplete());
+
+        assertEquals(8_000L, getMileageOnBob(bmwType));
+    }
+
+    @Test
+    public void recordsNoneOfABatchWithAWrongTransaction() throws Throwable {
+        // Seller is on alice.
+        final StateAndRef<AccountInfo> seller = createAccount(alice, "carly");
+        final AnonymousParty sellerParty = requestNewKey(alice, seller.getState().getData());
+        informKeys(alice, Collections.singletonList(sellerParty.getOwningKey()), Collections.singletonList(bmwDealer));
+        // Buyer is on bob.
+        final AnonymousParty buyerParty = requestNewKey(bob, createAccount(bob, "dan").getState().getData());
+        informKeys(bob, Collections.singletonList(buyerParty.getOwningKey()), Arrays.asList(alice, dmv));
+        // The car.
+        final SignedTransaction bmwTypeTx = createNewBmw("abc124", "BMW",
+                Arrays.asList(bmwDealer.getInfo().getLegalIdentities().get(0),
+                        bob.getInfo().getLegalIdentities().get(0)));
+        final StateAndRef<CarTokenType> bmwType = bmwTypeTx.getCoreTransaction()
+                .outRefsOfType(CarTokenType.class).get(0);
+        final SignedTransaction bmw1Tx = issueCarTo(
+                bmwType.getState().getData().toPointer(CarTokenType.class),
+                sellerParty);
+        offer(bmw1Tx.getCoreTransaction().outRefsOfType(NonFungibleToken.class).get(0), buyerParty);
+        final SignedTransaction mileageTx = updateMileageOn(bmwType, 8_000L, 22_000L,
+                Collections.emptyList());
+
+        // Seller sends a right tx and a wrong one.
+        final SendBatch sendFlow = new SendBatch(Collections.singletonList(buyerParty),
+                Arrays.asList(mileageTx, bmw1Tx));
+        final CordaFuture<BatchOutcome> sendFuture = dmv.startFlow(sendFlow);
+        network.runNetwork();
+        final BatchOutcome outcome = sendFuture.get();
+        assertEquals(
+                Collections.singletonMap(bob.getInfo().getLegalIdentities().get(0), "No EvolvableTokenType, stopping"),
+                outcome.getRejections());
+        // A rejection would come again, it is not worth retrying.
+        assertTrue(outcome.getUnreached().isEmpty());
+
+        // The right one was not recorded either.
+        assertEquals(bmwType.getState().getData().getMileage(), getMileageOnBob(bmwType));
+    }
 }
@@ -0,0 +1,246 @@
+package com.template.proposal.service;
+
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.AnonymousParty;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class BuyerNotifierTests {
+
+    private final AbstractParty alice = new AnonymousParty(Crypto.generateKeyPair().getPublic());
+    private final AbstractParty bob = new AnonymousParty(Crypto.generateKeyPair().getPublic());
+    /**
+     * What each buyer was last sent.
+     */
+    private final Map<AbstractParty, String> received = new ConcurrentHashMap<>();
+    private final List<BuyerNotifier<String>> notifiers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        notifiers.forEach(BuyerNotifier::close);
+    }
+
+    @NotNull
+    private List<AbstractParty> send(@NotNull final String message, @NotNull final List<AbstractParty> buyers) {
+        for (final AbstractParty buyer : buyers) received.put(buyer, message);
+        return Collections.emptyList();
+    }
+
+    private static void waitUntil(final BooleanSupplier condition) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (end < System.currentTimeMillis()) fail("Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void onlyTheLatestIsSentWithinTheWindow() throws Exception {
+        final CountDownLatch sent = new CountDownLatch(1);
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ofMillis(500), Runnable::run,
+                (message, buyers) -> {
+                    final List<AbstractParty> unreached = send(message, buyers);
+                    sent.countDown();
+                    return unreached;
+                });
+        notifiers.add(notifier);
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        for (int mileage = 1; mileage <= 10; mileage++) {
+            notifier.offer(typeId, "mileage " + mileage, Arrays.asList(alice, bob));
+        }
+
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertEquals("mileage 10", received.get(alice));
+        assertEquals("mileage 10", received.get(bob));
+        assertEquals(2, notifier.getSentCount());
+        assertEquals(18, notifier.getSavedCount());
+    }
+
+    @Test
+    public void typesAreDebouncedApart() throws Exception {
+        final CountDownLatch sent = new CountDownLatch(2);
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ofMillis(100), Runnable::run,
+                (message, buyers) -> {
+                    final List<AbstractParty> unreached = send(message, buyers);
+                    sent.countDown();
+                    return unreached;
+                });
+        notifiers.add(notifier);
+        notifier.offer(new UniqueIdentifier(), "car", Collections.singletonList(alice));
+        notifier.offer(new UniqueIdentifier(), "bike", Collections.singletonList(bob));
+
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertEquals("car", received.get(alice));
+        assertEquals("bike", received.get(bob));
+        assertEquals(0, notifier.getSavedCount());
+    }
+
+    /**
+     * An executor that is full holds back the notifier's thread, while the offers keep one notification per type.
+     */
+    @Test
+    public void aFullExecutorDoesNotHoldTheOffersBack() throws Exception {
+        final List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch handed = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ZERO, it -> {
+            queued.add(it);
+            handed.countDown();
+            try {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, this::send);
+        notifiers.add(notifier);
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        notifier.offer(typeId, "mileage 1", Arrays.asList(alice, bob));
+        assertTrue(handed.await(5, TimeUnit.SECONDS));
+
+        for (int mileage = 2; mileage <= 5; mileage++) {
+            notifier.offer(typeId, "mileage " + mileage, Arrays.asList(alice, bob));
+        }
+        assertEquals(1, notifier.getWaitingCount());
+        // Mileages 2 to 4 were replaced while waiting.
+        assertEquals(6, notifier.getSavedCount());
+
+        release.countDown();
+        waitUntil(() -> queued.size() == 2);
+        new ArrayList<>(queued).forEach(Runnable::run);
+        assertEquals("mileage 5", received.get(alice));
+        assertEquals("mileage 5", received.get(bob));
+        assertEquals(2, notifier.getSentCount());
+        // Mileage 1 was handed, but not started, before mileage 5 came.
+        assertEquals(8, notifier.getSavedCount());
+    }
+
+    @Test
+    public void supersededQueuedSendsAreCancelled() throws Exception {
+        final List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ZERO, queued::add, this::send);
+        notifiers.add(notifier);
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        notifier.offer(typeId, "mileage 1", Arrays.asList(alice, bob));
+        waitUntil(() -> queued.size() == 1);
+        notifier.offer(typeId, "mileage 2", Arrays.asList(alice, bob));
+        waitUntil(() -> queued.size() == 2);
+
+        new ArrayList<>(queued).forEach(Runnable::run);
+        assertEquals("mileage 2", received.get(alice));
+        assertEquals("mileage 2", received.get(bob));
+        assertEquals(2, notifier.getSentCount());
+        assertEquals(2, notifier.getSavedCount());
+
+        // Once sent, the next one is not held back.
+        notifier.offer(typeId, "mileage 3", Collections.singletonList(alice));
+        waitUntil(() -> queued.size() == 3);
+        queued.get(2).run();
+        assertEquals("mileage 3", received.get(alice));
+        assertEquals(3, notifier.getSentCount());
+    }
+
+    @Test
+    public void aRetryIsDroppedOnceALaterOneCame() throws Exception {
+        final List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+        final boolean[] fails = {true};
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ZERO, queued::add, (message, buyers) -> {
+            if (fails[0]) throw new NotificationScheduler.TransientFailure("Host down", null);
+            return send(message, buyers);
+        });
+        notifiers.add(notifier);
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        notifier.offer(typeId, "mileage 1", Collections.singletonList(alice));
+        waitUntil(() -> queued.size() == 1);
+        try {
+            queued.get(0).run();
+            fail("The sender should have thrown");
+        } catch (NotificationScheduler.TransientFailure ignored) {
+        }
+        assertEquals(0, notifier.getSentCount());
+
+        // Retried as long as it is the latest.
+        fails[0] = false;
+        queued.get(0).run();
+        assertEquals("mileage 1", received.get(alice));
+        assertEquals(1, notifier.getSentCount());
+
+        fails[0] = true;
+        notifier.offer(typeId, "mileage 2", Collections.singletonList(alice));
+        waitUntil(() -> queued.size() == 2);
+        try {
+            queued.get(1).run();
+            fail("The sender should have thrown");
+        } catch (NotificationScheduler.TransientFailure ignored) {
+        }
+        notifier.offer(typeId, "mileage 3", Collections.singletonList(alice));
+        waitUntil(() -> queued.size() == 3);
+        fails[0] = false;
+        queued.get(1).run();
+        assertEquals("mileage 1", received.get(alice));
+        assertEquals(1, notifier.getSavedCount());
+        queued.get(2).run();
+        assertEquals("mileage 3", received.get(alice));
+        assertEquals(2, notifier.getSentCount());
+    }
+
+    @Test
+    public void onlyTheUnreachedBuyersAreRetried() throws Exception {
+        final List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+        final List<List<AbstractParty>> attempts = Collections.synchronizedList(new ArrayList<>());
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ZERO, queued::add, (message, buyers) -> {
+            attempts.add(new ArrayList<>(buyers));
+            // Bob's host is down on the first attempt.
+            if (attempts.size() == 1) {
+                send(message, Collections.singletonList(alice));
+                return Collections.singletonList(bob);
+            }
+            return send(message, buyers);
+        });
+        notifiers.add(notifier);
+        notifier.offer(new UniqueIdentifier(), "mileage 1", Arrays.asList(alice, bob));
+        waitUntil(() -> queued.size() == 1);
+        try {
+            queued.get(0).run();
+            fail("Bob should be retried");
+        } catch (NotificationScheduler.TransientFailure ignored) {
+        }
+        assertEquals(1, notifier.getSentCount());
+
+        queued.get(0).run();
+        assertEquals(Arrays.asList(Arrays.asList(alice, bob), Collections.singletonList(bob)), attempts);
+        assertEquals("mileage 1", received.get(bob));
+        assertEquals(2, notifier.getSentCount());
+    }
+
+    @Test
+    public void nothingIsHandedOnceClosed() throws Exception {
+        final List<Runnable> queued = Collections.synchronizedList(new ArrayList<>());
+        final BuyerNotifier<String> notifier = new BuyerNotifier<>(Duration.ZERO, queued::add, this::send);
+        notifiers.add(notifier);
+        notifier.offer(new UniqueIdentifier(), "car", Collections.singletonList(alice));
+        waitUntil(() -> queued.size() == 1);
+
+        notifier.close();
+        notifier.offer(new UniqueIdentifier(), "bike", Collections.singletonList(bob));
+        Thread.sleep(100);
+        assertEquals(1, queued.size());
+        assertEquals(1, notifier.getWaitingCount());
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.template.proposal.service;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class NotificationSchedulerTests {
+
+    private static void waitUntil(final BooleanSupplier condition) throws InterruptedException {
+        final long end = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (end < System.currentTimeMillis()) fail("Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void failedNotificationsAreRetriedWithBackoff() throws Exception {
+        try (final NotificationScheduler scheduler = new NotificationScheduler(
+                1, 10, 4, Duration.ofMillis(50))) {
+            final AtomicInteger attempts = new AtomicInteger();
+            final CountDownLatch sent = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            scheduler.execute(() -> {
+                if (attempts.incrementAndGet() < 3)
+                    throw new NotificationScheduler.TransientFailure("Host down", null);
+                sent.countDown();
+            });
+
+            assertTrue(sent.await(5, TimeUnit.SECONDS));
+            // 50 ms before the second attempt, then 100 ms before the third.
+            assertTrue(150 <= TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            assertEquals(3, attempts.get());
+            assertEquals(2, scheduler.getRetryCount());
+            assertEquals(0, scheduler.getFailedCount());
+        }
+    }
+
+    @Test
+    public void givesUpAfterTheLastAttempt() throws Exception {
+        try (final NotificationScheduler scheduler = new NotificationScheduler(
+                1, 10, 3, Duration.ofMillis(10))) {
+            final AtomicInteger attempts = new AtomicInteger();
+            scheduler.execute(() -> {
+                attempts.incrementAndGet();
+                throw new NotificationScheduler.TransientFailure("Host down", null);
+            });
+
+            waitUntil(() -> scheduler.getFailedCount() == 1);
+            assertEquals(3, attempts.get());
+            assertEquals(2, scheduler.getRetryCount());
+            waitUntil(() -> scheduler.getInFlightCount() == 0);
+        }
+    }
+
+    @Test
+    public void aRejectionIsNotRetried() throws Exception {
+        try (final NotificationScheduler scheduler = new NotificationScheduler(
+                1, 10, 3, Duration.ofMillis(10))) {
+            final AtomicInteger attempts = new AtomicInteger();
+            scheduler.execute(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("There is no SalesProposal here for this transaction");
+            });
+
+            waitUntil(() -> scheduler.getFailedCount() == 1);
+            assertEquals(1, attempts.get());
+            assertEquals(0, scheduler.getRetryCount());
+            waitUntil(() -> scheduler.getInFlightCount() == 0);
+        }
+    }
+
+    /**
+     * Notifications that hang until released fill the threads, then the queue, after which the producer is held back.
+     */
+    @Test
+    public void inFlightIsCappedAndAFullQueueHoldsTheProducerBack() throws Exception {
+        final int concurrency = 2;
+        final int capacity = 3;
+        try (final NotificationScheduler scheduler = new NotificationScheduler(
+                concurrency, capacity, 1, Duration.ZERO)) {
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final AtomicInteger done = new AtomicInteger();
+            final Runnable hanging = () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                running.decrementAndGet();
+                done.incrementAndGet();
+            };
+            for (int i = 0; i < concurrency; i++) scheduler.execute(hanging);
+            waitUntil(() -> scheduler.getInFlightCount() == concurrency);
+            for (int i = 0; i < capacity; i++) scheduler.execute(hanging);
+            assertEquals(capacity, scheduler.getQueueDepth());
+
+            // Held back until there is room, however long it takes, and nothing is dropped.
+            final Thread producer = new Thread(() -> scheduler.execute(hanging));
+            producer.start();
+            Thread.sleep(200);
+            assertTrue(producer.isAlive());
+            release.countDown();
+            producer.join(5_000);
+            assertFalse(producer.isAlive());
+
+            waitUntil(() -> done.get() == concurrency + capacity + 1);
+            assertEquals(concurrency, maxRunning.get());
+            assertEquals(0, scheduler.getFailedCount());
+            assertEquals(0, scheduler.getQueueDepth());
+            waitUntil(() -> scheduler.getInFlightCount() == 0);
+        }
+    }
+
+    @Test
+    public void closeInterruptsTheNotificationsInFlightAndRejectsNewOnes() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final NotificationScheduler scheduler = new NotificationScheduler(
+                1, 10, 3, Duration.ofMillis(10));
+        scheduler.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        scheduler.close();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        waitUntil(() -> scheduler.getInFlightCount() == 0);
+        assertEquals(0, scheduler.getFailedCount());
+        try {
+            scheduler.execute(() -> fail("Should not run once closed"));
+            fail("Should be rejected once closed");
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+}
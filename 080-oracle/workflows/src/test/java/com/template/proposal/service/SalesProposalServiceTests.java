@@ -25,6 +25,7 @@ import net.corda.core.identity.AbstractParty;
 import net.corda.core.identity.AnonymousParty;
 import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
+import net.corda.core.node.services.vault.PageSpecification;
 import net.corda.core.node.services.vault.QueryCriteria;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.testing.node.MockNetwork;
@@ -36,6 +37,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -155,6 +157,34 @@ public class SalesProposalServiceTests {
         return future.get();
     }
 
+    @Test
+    public void cashDoesNotReachTheHandler() throws Exception {
+        final int tokenCount = 10_000;
+        final int tokensPerTx = 500;
+        final Party bobParty = bob.getInfo().getLegalIdentities().get(0);
+        final SalesProposalService proposalService = bob.getServices().cordaService(SalesProposalService.class);
+        final long skippedBefore = proposalService.getSkippedUpdateCount();
+
+        for (int issued = 0; issued < tokenCount; issued += tokensPerTx) {
+            final List<FungibleToken> tokens = new ArrayList<>(tokensPerTx);
+            for (int i = 0; i < tokensPerTx; i++) {
+                tokens.add(new FungibleToken(AmountUtilitiesKt.amount(1L, usMintUsd), bobParty, null));
+            }
+            final CordaFuture<SignedTransaction> issueFuture = usMint.startFlow(
+                    new IssueTokens(tokens, Collections.emptyList()));
+            network.runNetwork();
+            issueFuture.get();
+        }
+
+        assertEquals(tokenCount, (long) bob.transaction(() -> bob.getServices().getVaultService()
+                .queryBy(FungibleToken.class, new QueryCriteria.VaultQueryCriteria(), new PageSpecification(1, 1))
+                .getTotalStatesAvailable()));
+        assertEquals(tokenCount / tokensPerTx, proposalService.getSkippedUpdateCount() - skippedBefore);
+        assertEquals(0, proposalService.getHandledUpdateCount());
+        // Not a nanosecond spent in the handler.
+        assertEquals(0, proposalService.getHandlerNanos());
+    }
+
     @Test
     public void carCreatedDoesNotAddToTracker() throws Exception {
         // Seller is on alice.
@@ -0,0 +1,263 @@
+package com.template.proposal.service;
+
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.Crypto;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.AnonymousParty;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TrackedTokenTypesTests {
+
+    private static final int TYPE_COUNT = 200;
+    private static final int BUYER_COUNT = 8;
+    private static final int EVOLUTION_COUNT = 20;
+
+    @NotNull
+    private static List<AbstractParty> newBuyers() {
+        final List<AbstractParty> buyers = new ArrayList<>(BUYER_COUNT);
+        for (int i = 0; i < BUYER_COUNT; i++) buyers.add(new AnonymousParty(Crypto.generateKeyPair().getPublic()));
+        return buyers;
+    }
+
+    @NotNull
+    private static List<UniqueIdentifier> newTypeIds() {
+        final List<UniqueIdentifier> typeIds = new ArrayList<>(TYPE_COUNT);
+        for (int i = 0; i < TYPE_COUNT; i++) typeIds.add(new UniqueIdentifier());
+        return typeIds;
+    }
+
+    @NotNull
+    private static StateRef newRef() {
+        return new StateRef(SecureHash.randomSHA256(), 0);
+    }
+
+    /**
+     * @return The proposal of the buyer on the type, when it has one on each type.
+     */
+    @NotNull
+    private static StateRef proposalRef(@NotNull final SecureHash buyerTx, final int typeIndex) {
+        return new StateRef(buyerTx, typeIndex);
+    }
+
+    @Test
+    public void evolutionKeepsTheBuyers() {
+        final TrackedTokenTypes tracked = new TrackedTokenTypes();
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        final List<AbstractParty> buyers = newBuyers();
+        final StateRef first = newRef();
+        final StateRef proposal0 = newRef();
+        final StateRef proposal1 = newRef();
+        tracked.addBuyer(typeId, first, buyers.get(0), proposal0);
+        tracked.addBuyer(typeId, newRef(), buyers.get(1), proposal1);
+        assertEquals(first, tracked.get(typeId).getLatest());
+
+        final StateRef second = newRef();
+        assertEquals(Arrays.asList(buyers.get(0), buyers.get(1)), tracked.evolve(typeId, second));
+        assertEquals(second, tracked.get(typeId).getLatest());
+        assertNull(tracked.evolve(new UniqueIdentifier(), second));
+
+        tracked.removeBuyer(typeId, buyers.get(0), proposal0);
+        assertEquals(Collections.singletonList(buyers.get(1)), tracked.get(typeId).getBuyers());
+        tracked.removeBuyer(typeId, buyers.get(1), proposal1);
+        assertFalse(tracked.contains(typeId));
+        assertEquals(0, tracked.size());
+    }
+
+    @Test
+    public void buyerStaysUntilItsLastProposalIsGone() {
+        final TrackedTokenTypes tracked = new TrackedTokenTypes();
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        final List<AbstractParty> buyers = newBuyers();
+        final StateRef offer = newRef();
+        final StateRef reOffer = newRef();
+        tracked.addBuyer(typeId, newRef(), buyers.get(0), offer);
+        // A re-offer at another price.
+        tracked.addBuyer(typeId, newRef(), buyers.get(0), reOffer);
+        tracked.addBuyer(typeId, newRef(), buyers.get(1), newRef());
+        assertEquals(Arrays.asList(buyers.get(0), buyers.get(1)), tracked.get(typeId).getBuyers());
+
+        // One of the two is rejected.
+        tracked.removeBuyer(typeId, buyers.get(0), offer);
+        assertEquals(Arrays.asList(buyers.get(0), buyers.get(1)), tracked.evolve(typeId, newRef()));
+        // Gone already.
+        tracked.removeBuyer(typeId, buyers.get(0), offer);
+        assertEquals(Arrays.asList(buyers.get(0), buyers.get(1)), tracked.get(typeId).getBuyers());
+        tracked.removeBuyer(typeId, buyers.get(0), reOffer);
+        assertEquals(Collections.singletonList(buyers.get(1)), tracked.get(typeId).getBuyers());
+    }
+
+    /**
+     * As when the warm-up query and a pending update both carry the proposal.
+     */
+    @Test
+    public void aProposalAddedTwiceIsGoneOnItsRemoval() {
+        final TrackedTokenTypes tracked = new TrackedTokenTypes();
+        final UniqueIdentifier typeId = new UniqueIdentifier();
+        final List<AbstractParty> buyers = newBuyers();
+        final StateRef proposal = newRef();
+        tracked.addBuyer(typeId, newRef(), buyers.get(0), proposal);
+        tracked.addBuyer(typeId, newRef(), buyers.get(0), proposal);
+        assertEquals(Collections.singletonList(buyers.get(0)), tracked.get(typeId).getBuyers());
+
+        tracked.removeBuyer(typeId, buyers.get(0), proposal);
+        assertFalse(tracked.contains(typeId));
+        assertEquals(0, tracked.size());
+    }
+
+    /**
+     * A thread per buyer puts proposals on all the types, while others evolve them, then takes them back.
+     */
+    @Test
+    public void concurrentProposalsAndEvolutionsLoseNothing() throws Exception {
+        final TrackedTokenTypes tracked = new TrackedTokenTypes();
+        final List<UniqueIdentifier> typeIds = newTypeIds();
+        final List<AbstractParty> buyers = newBuyers();
+        final int evolverCount = 4;
+        // The last evolution of each type.
+        final StateRef[] latest = new StateRef[TYPE_COUNT];
+        final List<SecureHash> buyerTxs = new ArrayList<>(BUYER_COUNT);
+        for (int b = 0; b < BUYER_COUNT; b++) buyerTxs.add(SecureHash.randomSHA256());
+        // So that all the types are tracked before they evolve.
+        for (int t = 0; t < TYPE_COUNT; t++) {
+            latest[t] = newRef();
+            tracked.addBuyer(typeIds.get(t), latest[t], buyers.get(0), proposalRef(buyerTxs.get(0), t));
+        }
+        final ExecutorService pool = Executors.newFixedThreadPool(BUYER_COUNT + evolverCount);
+        try {
+            final CountDownLatch go = new CountDownLatch(1);
+            final List<Future<?>> done = new ArrayList<>();
+            for (int b = 1; b < BUYER_COUNT; b++) {
+                final AbstractParty buyer = buyers.get(b);
+                final SecureHash buyerTx = buyerTxs.get(b);
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int t = 0; t < TYPE_COUNT; t++) {
+                        tracked.addBuyer(typeIds.get(t), newRef(), buyer, proposalRef(buyerTx, t));
+                    }
+                    return null;
+                }));
+            }
+            for (int e = 0; e < evolverCount; e++) {
+                final int evolver = e;
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int round = 0; round < EVOLUTION_COUNT; round++) {
+                        // Each type has a single evolver, as on the ledger.
+                        for (int t = evolver; t < TYPE_COUNT; t += evolverCount) {
+                            latest[t] = newRef();
+                            tracked.evolve(typeIds.get(t), latest[t]);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (final Future<?> it : done) it.get(30, TimeUnit.SECONDS);
+
+            assertEquals(TYPE_COUNT, tracked.size());
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                final TrackedTokenTypes.Tracked type = tracked.get(typeIds.get(t));
+                assertNotNull(type);
+                assertEquals(new HashSet<>(buyers), new HashSet<>(type.getBuyers()));
+                assertEquals(BUYER_COUNT, type.getBuyers().size());
+                assertEquals(buyers.get(0), type.getBuyers().get(0));
+                assertEquals(latest[t], type.getLatest());
+            }
+
+            done.clear();
+            final CountDownLatch goBack = new CountDownLatch(1);
+            for (int b = 0; b < BUYER_COUNT; b++) {
+                final AbstractParty buyer = buyers.get(b);
+                final SecureHash buyerTx = buyerTxs.get(b);
+                done.add(pool.submit(() -> {
+                    goBack.await();
+                    for (int t = 0; t < TYPE_COUNT; t++) {
+                        tracked.removeBuyer(typeIds.get(t), buyer, proposalRef(buyerTx, t));
+                    }
+                    return null;
+                }));
+            }
+            for (int e = 0; e < evolverCount; e++) {
+                final int evolver = e;
+                done.add(pool.submit(() -> {
+                    goBack.await();
+                    for (int round = 0; round < EVOLUTION_COUNT; round++) {
+                        for (int t = evolver; t < TYPE_COUNT; t += evolverCount) {
+                            final List<AbstractParty> toNotify = tracked.evolve(typeIds.get(t), newRef());
+                            if (toNotify != null) assertTrue(buyers.containsAll(toNotify));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            goBack.countDown();
+            for (final Future<?> it : done) it.get(30, TimeUnit.SECONDS);
+
+            // No type came back to life without buyers.
+            assertEquals(0, tracked.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Half the buyers come and go and end up gone, the other half end up there, so that types keep being dropped
+     * while buyers come.
+     */
+    @Test
+    public void buyersComingAndGoingAreNotLost() throws Exception {
+        final TrackedTokenTypes tracked = new TrackedTokenTypes();
+        final List<UniqueIdentifier> typeIds = newTypeIds();
+        final List<AbstractParty> buyers = newBuyers();
+        final ExecutorService pool = Executors.newFixedThreadPool(BUYER_COUNT);
+        try {
+            final CountDownLatch go = new CountDownLatch(1);
+            final List<Future<?>> done = new ArrayList<>();
+            for (int b = 0; b < BUYER_COUNT; b++) {
+                final AbstractParty buyer = buyers.get(b);
+                final boolean staysOn = BUYER_COUNT / 2 <= b;
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int round = 0; round < EVOLUTION_COUNT; round++) {
+                        for (final UniqueIdentifier typeId : typeIds) {
+                            final StateRef proposal = newRef();
+                            tracked.addBuyer(typeId, newRef(), buyer, proposal);
+                            tracked.removeBuyer(typeId, buyer, proposal);
+                        }
+                    }
+                    if (!staysOn) return null;
+                    for (final UniqueIdentifier typeId : typeIds) tracked.addBuyer(typeId, newRef(), buyer, newRef());
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (final Future<?> it : done) it.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(TYPE_COUNT, tracked.size());
+        for (final UniqueIdentifier typeId : typeIds) {
+            final TrackedTokenTypes.Tracked type = tracked.get(typeId);
+            assertNotNull(type);
+            assertEquals(new HashSet<>(buyers.subList(BUYER_COUNT / 2, BUYER_COUNT)), new HashSet<>(type.getBuyers()));
+        }
+    }
+
+}